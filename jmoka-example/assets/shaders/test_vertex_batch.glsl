@@ -2,12 +2,13 @@
 
 layout (location = 0) in vec2 a_position;
 layout (location = 1) in vec2 a_texCoord;
+
+// packed as four unsigned bytes, normalized to [0, 1] when read.
 layout (location = 2) in vec4 a_color;
 
 uniform mat3 u_projectedView;
 
 out vec4 color;
-out float out_position;
 out vec2 texCoord;
 
 void main() {
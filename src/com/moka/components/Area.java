@@ -1,10 +1,12 @@
 package com.moka.components;
 
+import com.moka.core.Moka;
 import com.moka.physics.PhysicsBody;
 import com.moka.scene.entity.ComponentAttribute;
 import com.moka.scene.entity.Entity;
 import com.moka.triggers.Trigger;
 import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyDef;
 import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.FixtureDef;
@@ -14,15 +16,41 @@ public class Area extends PhysicsBody
 {
     private Trigger<Entity> onEnterTrigger;
     private Trigger<Entity> onExitTrigger;
+    private final Vec2 target = new Vec2();
 
+    /**
+     * Moves the sensor to its entity, only if the entity moved.
+     */
     @Override
     public void sync()
     {
-        float newX = toPos(getTransform().getPosition().x);
-        float newY = toPos(getTransform().getPosition().y);
+        Body body = getBody();
+        float x = toPos(getTransform().getPosition().x);
+        float y = toPos(getTransform().getPosition().y);
 
-        getBody().setLinearVelocity(new Vec2(1, 1));
-        getBody().setTransform(new Vec2(newX, newY), 0);
+        if (body.getPosition().x == x && body.getPosition().y == y)
+            return;
+
+        target.set(x, y);
+        body.setTransform(target, 0);
+
+        // moving it doesn't wake it up, and a sleeping sensor doesn't look for new contacts.
+        Moka.getPhysics().wake(this);
+    }
+
+    /**
+     * The entity moves the sensor, nothing is copied back.
+     */
+    @Override
+    public void fixedUpdate()
+    {
+
+    }
+
+    @Override
+    protected boolean followsEntity()
+    {
+        return true;
     }
 
     @Override
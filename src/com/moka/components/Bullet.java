@@ -1,6 +1,7 @@
 package com.moka.components;
 
 import com.moka.core.Moka;
+import com.moka.math.Matrix3;
 import com.moka.math.Vector2;
 import com.moka.scene.entity.Component;
 import com.moka.scene.entity.ComponentAttribute;
@@ -35,19 +36,19 @@ public class Bullet extends Component
 	@Override
 	public void onUpdate()
 	{
-		Vector2 buffer = Pools.vec2.take(0, 0);
+        // the front of the transform is the first column of its rotation.
+        Matrix3 rotation = getTransform().getRotation();
 
-		getTransform().getFront(buffer).mul(speed * Moka.getTime().getDelta());
-
-        rigidBody.setLinearVelocity(buffer.x, buffer.y);
+        // the step is fixed, so this only reaches the body when it turned or something changed
+        // its velocity.
+        float step = speed * Moka.getTime().getDelta();
+        rigidBody.setLinearVelocity(rotation.get(0, 0) * step, rotation.get(1, 0) * step);
 
         if ((destroyCondition & LIFE_TIME) != 0)
             checkLifeTime();
 
         if ((destroyCondition & MAX_DISTANCE) != 0)
             checkMaxDistance();
-
-		Pools.vec2.put(buffer);
 	}
 
     private void checkMaxDistance()
@@ -81,6 +82,10 @@ public class Bullet extends Component
         this.damage = damage;
     }
 
+    /**
+     * @param speed towards the front of the entity. Multiplied by the fixed step it is the velocity
+     *              of the body in meters per second.
+     */
     @ComponentAttribute("Speed")
 	public void setSpeed(float speed)
 	{
@@ -2,28 +2,77 @@ package com.moka.components;
 
 import com.moka.core.Moka;
 import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
 import com.moka.math.Vector2;
 import com.moka.scene.entity.Component;
+import com.moka.scene.entity.ComponentAttribute;
 import com.moka.utils.JMokaException;
-import com.moka.utils.Pools;
 
+/**
+ * An orthographic camera. Every enabled camera of the current scene is drawn by the renderer, in
+ * their order, inside their viewport and only showing the layers of their mask, which allows
+ * split screens and minimaps. The main camera (see {@link #setAsMain()}) is the one used to
+ * translate the cursor position.
+ * <p>
+ * The view-projection matrix is kept until the camera moves or its projection changes.
+ *
+ * @author Shelo
+ */
 public class Camera extends Component
 {
 	private Matrix3 projection;
+	private float left;
+	private float right;
+	private float bottom;
+	private float top;
 	private Matrix3 transBuffer = new Matrix3();
 	private Matrix3 buffer = new Matrix3();
 
+	// position used by the cached view-projection.
+	private float viewX;
+	private float viewY;
+	private boolean viewChanged = true;
+
+	private Rectangle viewport = new Rectangle(0, 0, 1, 1);
+	private int layerMask = ~0;
+	private int order;
+
 	@Override
 	public void onCreate()
 	{
-		projection = new Matrix3();
-		projection.toOrthographic(0, Moka.getDisplay().getWidth(), 0, Moka.getDisplay().getHeight());
+		setOrthographic(0, Moka.getDisplay().getWidth(), 0, Moka.getDisplay().getHeight());
+		Moka.getRenderer().addCamera(this);
+	}
+
+	@Override
+	public void onDestroy()
+	{
+		Moka.getRenderer().removeCamera(this);
+	}
+
+	@Override
+	public void onDispose()
+	{
+		Moka.getRenderer().removeCamera(this);
 	}
 
 	public Camera(float left, float right, float bottom, float top)
 	{
-		projection = new Matrix3();
+		setOrthographic(left, right, bottom, top);
+	}
+
+	private void setOrthographic(float left, float right, float bottom, float top)
+	{
+		this.left = left;
+		this.right = right;
+		this.bottom = bottom;
+		this.top = top;
+
+		if (projection == null)
+			projection = new Matrix3();
+
 		projection.toOrthographic(left, right, bottom, top);
+		viewChanged = true;
 	}
 
 	public void setAsMain()
@@ -31,15 +80,44 @@ public class Camera extends Component
 		Moka.getRenderer().setCamera(this);
 	}
 
+	/**
+	 * Returns the view-projection matrix, only calculated again if the camera moved.
+	 *
+	 * @return the projected view, it must not be modified.
+	 */
 	public Matrix3 getProjectedView()
 	{
 		if(projection == null)
 			throw new JMokaException("Camera: " + getEntity().getName() + "'s projection is null.");
 
-		Vector2 position = Pools.vec2.take();
-		getTransform().getPosition().floor(position);
-		Matrix3 translation = transBuffer.toTranslation(position.x * (- 1), position.y * (- 1));
-		return projection.mul(translation, buffer);
+		Vector2 position = getTransform().getPosition();
+		float x = (float) Math.floor(position.x);
+		float y = (float) Math.floor(position.y);
+
+		if (viewChanged || x != viewX || y != viewY) {
+			Matrix3 translation = transBuffer.toTranslation(- x, - y);
+			projection.mul(translation, buffer);
+
+			viewX = x;
+			viewY = y;
+			viewChanged = false;
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * Calculates the area of the world that this camera is seeing.
+	 *
+	 * @param result	the resulting rectangle, left and top will hold the minimum x and y.
+	 * @return the visible rectangle.
+	 */
+	public Rectangle getWorldBounds(Rectangle result)
+	{
+		Vector2 position = getTransform().getPosition();
+		result.set((float) Math.floor(position.x) + left, (float) Math.floor(position.y) + bottom,
+				right - left, top - bottom);
+		return result;
 	}
 
 	public Matrix3 getProjection()
@@ -47,6 +125,55 @@ public class Camera extends Component
 		return projection;
 	}
 
+	/**
+	 * Sets the area of the window where the camera draws, as fractions of the window size
+	 * measured from the bottom left corner. By default the whole window.
+	 */
+	@ComponentAttribute("Viewport")
+	public void setViewport(float x, float y, float width, float height)
+	{
+		viewport.set(x, y, width, height);
+	}
+
+	public Rectangle getViewport()
+	{
+		return viewport;
+	}
+
+	/**
+	 * @param layerMask the layers drawn by this camera, bit n being layer n. Every layer by
+	 *                  default.
+	 */
+	@ComponentAttribute("LayerMask")
+	public void setLayerMask(int layerMask)
+	{
+		this.layerMask = layerMask;
+	}
+
+	public int getLayerMask()
+	{
+		return layerMask;
+	}
+
+	public boolean drawsLayer(int layer)
+	{
+		return (layerMask & (1 << layer)) != 0;
+	}
+
+	/**
+	 * @param order cameras with lower order are drawn first, so the last ones are on top.
+	 */
+	@ComponentAttribute("Order")
+	public void setOrder(int order)
+	{
+		this.order = order;
+	}
+
+	public int getOrder()
+	{
+		return order;
+	}
+
 	/**
 	 * Converts the given point to world coordinates, applying the camera transformations.
 	 *
@@ -1,6 +1,7 @@
 package com.moka.components;
 
 import com.moka.core.Package;
+import com.moka.physics.arcade.ArcadeBody;
 import com.moka.scene.entity.Component;
 
 import java.util.LinkedList;
@@ -20,14 +21,19 @@ public class PackageManifest extends Package
         components.add(Camera.class);
         components.add(Controllable.class);
         components.add(Debugger.class);
+        components.add(RenderStatsOverlay.class);
         components.add(Interval.class);
         components.add(LookAt.class);
         components.add(Shooting.class);
         components.add(Sprite.class);
+        components.add(SpriteAnimation.class);
+        components.add(ParticleEmitter.class);
         components.add(RigidBody.class);
         components.add(StaticBody.class);
         components.add(KinematicBody.class);
         components.add(Area.class);
+        components.add(ArcadeBody.class);
         components.add(TileMap.class);
+        components.add(Text.class);
     }
 }
@@ -0,0 +1,347 @@
+package com.moka.components;
+
+import com.moka.graphics.*;
+import com.moka.math.Rectangle;
+import com.moka.scene.entity.ComponentAttribute;
+
+import java.util.Random;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Emits and draws many small sprites (particles) without creating an entity for each one. The
+ * particles are stored in a {@link ParticlePool}, so a burst only costs a few array writes, and
+ * are drawn with a single draw call from a {@link DrawCommandBuffer} of the emitter, which grows
+ * to hold every particle.
+ * <p>
+ * Particles are spawned at the entity's position, moving in the direction the entity is facing
+ * with some random spread, and they don't follow the entity after being spawned. Their color and
+ * size change from the start values to the end values during their life.
+ *
+ * @author Shelo
+ */
+public class ParticleEmitter extends DrawableComponent
+{
+    private static final Rectangle FULL_REGION = new Rectangle(0, 0, 1, 1);
+
+    private final DrawCommandBuffer buffer = new DrawCommandBuffer();
+    private ParticlePool pool;
+    private Texture texture;
+    private Texture acquired;
+    private Random random = new Random();
+
+    private int capacity = 1000;
+    private int initialBurst;
+    private float rate;
+    private float pendingEmission;
+    private boolean emitting = true;
+    private boolean parallel;
+
+    private float minLife = 1;
+    private float maxLife = 1;
+    private float minSpeed = 50;
+    private float maxSpeed = 100;
+    private float spread = 360;
+    private float gravityX;
+    private float gravityY;
+    private float minSize = 8;
+    private float maxSize = 8;
+    private float endScale = 1;
+
+    private Color startColor = new Color(1, 1, 1, 1);
+    private Color endColor = new Color(1, 1, 1, 0);
+    private Color color = new Color(1, 1, 1, 1);
+    private Sprite.BLEND blend = Sprite.BLEND.NORMAL;
+
+    @Override
+    public void onCreate()
+    {
+        pool = new ParticlePool(capacity);
+        burst(initialBurst);
+
+        if (texture != null) {
+            acquired = texture;
+            acquired.acquire();
+        }
+    }
+
+    @Override
+    public void onDestroy()
+    {
+        if (acquired != null) {
+            acquired.release();
+            acquired = null;
+        }
+    }
+
+    @Override
+    public void onDispose()
+    {
+        onDestroy();
+    }
+
+    @Override
+    public void onUpdate()
+    {
+        float delta = getDelta();
+
+        if (emitting && rate > 0) {
+            pendingEmission += rate * delta;
+            int amount = (int) pendingEmission;
+            pendingEmission -= amount;
+            burst(amount);
+        }
+
+        pool.update(delta, gravityX, gravityY, parallel);
+    }
+
+    /**
+     * Spawns particles right away, whether the emitter is emitting or not. Particles that don't
+     * fit in the pool are discarded.
+     *
+     * @param amount number of particles.
+     */
+    public void burst(int amount)
+    {
+        float originX = getTransform().getPosition().x;
+        float originY = getTransform().getPosition().y;
+
+        float facing = (float) Math.atan2(getTransform().getRotation().get(1, 0),
+                getTransform().getRotation().get(0, 0));
+        float spreadRadians = spread * 0.01745329252f;
+
+        for (int i = 0; i < amount && !pool.isFull(); i++) {
+            float angle = facing + (random.nextFloat() - 0.5f) * spreadRadians;
+            float speed = range(minSpeed, maxSpeed);
+
+            pool.spawn(originX, originY, (float) Math.cos(angle) * speed,
+                    (float) Math.sin(angle) * speed, range(minLife, maxLife), range(minSize, maxSize));
+        }
+    }
+
+    private float range(float min, float max)
+    {
+        return min + random.nextFloat() * (max - min);
+    }
+
+    @Override
+    public void render(Renderer renderer)
+    {
+        if (texture == null) {
+            raiseError("there's no texture to draw.");
+        }
+
+        int count = pool.getCount();
+
+        if (count == 0) {
+            return;
+        }
+
+        buffer.clear();
+
+        if (blend == Sprite.BLEND.ADDITIVE) {
+            buffer.setBlend(GL_SRC_ALPHA, GL_ONE);
+        }
+
+        float[] x = pool.x;
+        float[] y = pool.y;
+        float[] size = pool.size;
+
+        for (int i = 0; i < count; i++) {
+            float t = pool.getProgress(i);
+
+            color.set(
+                    startColor.r + (endColor.r - startColor.r) * t,
+                    startColor.g + (endColor.g - startColor.g) * t,
+                    startColor.b + (endColor.b - startColor.b) * t,
+                    startColor.a + (endColor.a - startColor.a) * t);
+
+            int side = (int) (size[i] * (1 + (endScale - 1) * t));
+            buffer.draw(texture, x[i], y[i], side, side, color, null, FULL_REGION);
+        }
+
+        buffer.end();
+        renderer.drawCommands(buffer);
+    }
+
+    @Override
+    public boolean shouldBatch()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isRecordable()
+    {
+        return true;
+    }
+
+    /**
+     * Resumes the continuous emission.
+     */
+    public void start()
+    {
+        emitting = true;
+    }
+
+    /**
+     * Stops the continuous emission, particles already spawned keep living.
+     */
+    public void stop()
+    {
+        emitting = false;
+        pendingEmission = 0;
+    }
+
+    /**
+     * @return true while emitting or while some particle is still alive.
+     */
+    public boolean isAlive()
+    {
+        return (emitting && rate > 0) || pool.getCount() > 0;
+    }
+
+    public int getParticleCount()
+    {
+        return pool.getCount();
+    }
+
+    @ComponentAttribute(value = "Texture", required = true)
+    public void setTexture(Texture texture)
+    {
+        if (texture == null) {
+            raiseError("Texture cannot be null.");
+        }
+
+        this.texture = texture;
+
+        if (acquired != null) {
+            acquired.release();
+            acquired = texture;
+            acquired.acquire();
+        }
+    }
+
+    /**
+     * @param capacity maximum number of particles alive at the same time.
+     */
+    @ComponentAttribute("Capacity")
+    public void setCapacity(int capacity)
+    {
+        if (capacity <= 0) {
+            raiseError("The capacity has to be positive.");
+        }
+
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param rate particles spawned per second.
+     */
+    @ComponentAttribute("Rate")
+    public void setRate(float rate)
+    {
+        this.rate = rate;
+    }
+
+    /**
+     * @param amount particles spawned when the emitter is created.
+     */
+    @ComponentAttribute("Burst")
+    public void setInitialBurst(int amount)
+    {
+        this.initialBurst = amount;
+    }
+
+    @ComponentAttribute("Emitting")
+    public void setEmitting(boolean emitting)
+    {
+        this.emitting = emitting;
+    }
+
+    /**
+     * @param min minimum life in seconds.
+     * @param max maximum life in seconds.
+     */
+    @ComponentAttribute("Life")
+    public void setLife(float min, float max)
+    {
+        this.minLife = min;
+        this.maxLife = max;
+    }
+
+    /**
+     * @param min minimum speed in units per second.
+     * @param max maximum speed in units per second.
+     */
+    @ComponentAttribute("Speed")
+    public void setSpeed(float min, float max)
+    {
+        this.minSpeed = min;
+        this.maxSpeed = max;
+    }
+
+    /**
+     * @param degrees angle of the cone around the entity's front where particles are sent.
+     */
+    @ComponentAttribute("Spread")
+    public void setSpread(float degrees)
+    {
+        this.spread = degrees;
+    }
+
+    @ComponentAttribute("Gravity")
+    public void setGravity(float x, float y)
+    {
+        this.gravityX = x;
+        this.gravityY = y;
+    }
+
+    /**
+     * @param min minimum size in pixels when spawned.
+     * @param max maximum size in pixels when spawned.
+     */
+    @ComponentAttribute("Size")
+    public void setSize(float min, float max)
+    {
+        this.minSize = min;
+        this.maxSize = max;
+    }
+
+    /**
+     * @param endScale size of the particles at the end of their life, relative to their size when
+     *                 spawned.
+     */
+    @ComponentAttribute("EndScale")
+    public void setEndScale(float endScale)
+    {
+        this.endScale = endScale;
+    }
+
+    @ComponentAttribute("StartColor")
+    public void setStartColor(float r, float g, float b, float a)
+    {
+        startColor.set(r, g, b, a);
+    }
+
+    @ComponentAttribute("EndColor")
+    public void setEndColor(float r, float g, float b, float a)
+    {
+        endColor.set(r, g, b, a);
+    }
+
+    @ComponentAttribute("Blend")
+    public void setBlend(Sprite.BLEND blend)
+    {
+        this.blend = blend;
+    }
+
+    /**
+     * @param parallel update the particles using several threads when there are many of them.
+     */
+    @ComponentAttribute("Parallel")
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+}
@@ -0,0 +1,108 @@
+package com.moka.components;
+
+import com.moka.core.Moka;
+import com.moka.graphics.RenderStats;
+import com.moka.scene.entity.Component;
+import com.moka.scene.entity.ComponentAttribute;
+import com.moka.time.StopWatch;
+
+/**
+ * Shows the render statistics of the last frame (see {@link RenderStats}) in the title of the
+ * window, next to the original title, and optionally warns when a draw call budget is exceeded.
+ * If the entity also has a {@link Text}, the statistics are drawn with it too.
+ *
+ * @author Shelo
+ */
+public class RenderStatsOverlay extends Component
+{
+    private StopWatch stopWatch;
+    private String originalTitle;
+    private double frequency = 0.5;
+    private int drawCallBudget;
+    private boolean gpuTiming;
+    private boolean log;
+
+    @Override
+    public void onCreate()
+    {
+        stopWatch = Moka.getTime().newStopWatch();
+        originalTitle = Moka.getDisplay().getTitle();
+
+        if (gpuTiming) {
+            Moka.getRenderer().setGpuTiming(true);
+        }
+    }
+
+    @Override
+    public void onUpdate()
+    {
+        if (!stopWatch.isGreaterThan(frequency)) {
+            return;
+        }
+
+        stopWatch.restart();
+
+        RenderStats stats = Moka.getRenderer().getStats();
+        String text = stats.toString();
+
+        if (drawCallBudget > 0 && stats.getDrawCalls() > drawCallBudget) {
+            text = "OVER BUDGET (" + stats.getDrawCalls() + "/" + drawCallBudget + ") " + text;
+        }
+
+        Moka.getDisplay().setTitle(originalTitle + " | " + text);
+
+        Text label = getComponent(Text.class);
+        if (label != null) {
+            label.setText(text.replace(". ", ".\n"));
+        }
+
+        if (log) {
+            log(text);
+        }
+    }
+
+    @Override
+    public void onDestroy()
+    {
+        if (originalTitle != null) {
+            Moka.getDisplay().setTitle(originalTitle);
+            originalTitle = null;
+        }
+    }
+
+    /**
+     * @param frequency seconds between updates of the overlay.
+     */
+    @ComponentAttribute("Frequency")
+    public void setFrequency(double frequency)
+    {
+        this.frequency = frequency;
+    }
+
+    /**
+     * @param drawCallBudget maximum draw calls per frame expected, 0 for no budget.
+     */
+    @ComponentAttribute("Budget")
+    public void setDrawCallBudget(int drawCallBudget)
+    {
+        this.drawCallBudget = drawCallBudget;
+    }
+
+    /**
+     * @param gpuTiming also measure the GPU time of every layer.
+     */
+    @ComponentAttribute("GpuTiming")
+    public void setGpuTiming(boolean gpuTiming)
+    {
+        this.gpuTiming = gpuTiming;
+    }
+
+    /**
+     * @param log also write the statistics to the log.
+     */
+    @ComponentAttribute("Log")
+    public void setLog(boolean log)
+    {
+        this.log = log;
+    }
+}
@@ -17,11 +17,15 @@ public class Sprite extends DrawableComponent
 {
     private Rectangle clipRect;
     private Texture texture;
+    private Texture acquired;
     private Vector2 size;
     private Color tint;
     private Quad quad;
     private BLEND blend = BLEND.NORMAL;
     private boolean batch = false;
+    private boolean isStatic = false;
+    private boolean clipRectChanged;
+    private boolean ownsQuad;
 
     public enum BLEND
     {
@@ -70,7 +74,24 @@ public class Sprite extends DrawableComponent
             clipRect = new Rectangle(0, 0, 1, 1);
         }
 
-        quad = new Quad(clipRect);
+        quad = Quad.obtain(clipRect);
+        acquireTexture();
+    }
+
+    /**
+     * Keeps the texture from being evicted while the sprite is alive.
+     */
+    private void acquireTexture()
+    {
+        if (acquired != null) {
+            acquired.release();
+        }
+
+        acquired = texture;
+
+        if (acquired != null) {
+            acquired.acquire();
+        }
     }
 
     @Override
@@ -86,15 +107,30 @@ public class Sprite extends DrawableComponent
             return;
         }
 
+        // quads are shared by clipping rectangle. A sprite whose region changes (e.g. animated)
+        // gets a quad of its own the first time, and from then on only its texture coordinates
+        // are uploaded again.
+        if (clipRectChanged) {
+            if (ownsQuad) {
+                quad.setRegion(clipRect);
+            } else {
+                quad.release();
+                quad = Quad.createDynamic(clipRect);
+                ownsQuad = true;
+            }
+
+            clipRectChanged = false;
+        }
+
         texture.bind();
         renderer.getShader().update(getTransform(), this);
 
         switch (blend) {
             case NORMAL:
-                glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+                renderer.getState().blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
                 break;
             case ADDITIVE:
-                glBlendFunc(GL_SRC_ALPHA, GL_ONE);
+                renderer.getState().blendFunc(GL_SRC_ALPHA, GL_ONE);
                 break;
         }
 
@@ -107,13 +143,43 @@ public class Sprite extends DrawableComponent
         return batch;
     }
 
+    @Override
+    public boolean isRecordable()
+    {
+        return batch;
+    }
+
+    /**
+     * Only sprites with normal blending can be static, the static geometry is drawn with it.
+     */
+    @Override
+    public boolean isStatic()
+    {
+        return isStatic && blend == BLEND.NORMAL;
+    }
+
+    @Override
+    public void buildStatic(StaticBatch batch)
+    {
+        if (texture == null) {
+            raiseError("there's no texture to draw.");
+        }
+
+        Vector2 position = getTransform().getPosition();
+        Vector2 size = getTransform().getSize();
+
+        batch.add(texture, position.x, position.y, size.x, size.y, tint, getTransform().getRotation(),
+                clipRect);
+    }
+
     public void renderBatch(Renderer renderer)
     {
         Vector2 position = getTransform().getPosition();
         Vector2 size = getTransform().getSize();
 
+        renderer.setBatchBlend(GL_SRC_ALPHA, blend == BLEND.ADDITIVE ? GL_ONE : GL_ONE_MINUS_SRC_ALPHA);
         renderer.batch(texture, position.x, position.y, (int) size.x, (int) size.y, tint,
-                getTransform().getRotation());
+                getTransform().getRotation(), clipRect);
     }
 
     public Texture getTexture()
@@ -126,6 +192,36 @@ public class Sprite extends DrawableComponent
         return quad;
     }
 
+    /**
+     * @return the region of the texture drawn, in texture coordinates as left, top, width, height.
+     */
+    public Rectangle getClipRect()
+    {
+        return clipRect;
+    }
+
+    /**
+     * Changes the region of the texture to draw, in texture coordinates. Unlike the ClipRect
+     * attribute, this can be called every frame (e.g. by {@link SpriteAnimation}) without creating
+     * new objects.
+     */
+    public void setRegion(float left, float top, float width, float height)
+    {
+        if (clipRect == null) {
+            clipRect = new Rectangle(left, top, width, height);
+            return;
+        }
+
+        if (clipRect.left == left && clipRect.top == top && clipRect.width == width
+                && clipRect.height == height) {
+            return;
+        }
+
+        clipRect.set(left, top, width, height);
+        clipRectChanged = quad != null;
+        markChanged();
+    }
+
     public float getWidth()
     {
         return size == null ? texture.getWidth() : size.x;
@@ -144,7 +240,27 @@ public class Sprite extends DrawableComponent
     @Override
     public void onDestroy()
     {
-        quad.dispose();
+        if (quad != null) {
+            if (ownsQuad) {
+                quad.dispose();
+            } else {
+                quad.release();
+            }
+
+            quad = null;
+            ownsQuad = false;
+        }
+
+        if (acquired != null) {
+            acquired.release();
+            acquired = null;
+        }
+    }
+
+    @Override
+    public void onDispose()
+    {
+        onDestroy();
     }
 
     @ComponentAttribute(value = "Texture", required = true)
@@ -154,6 +270,11 @@ public class Sprite extends DrawableComponent
             throw new JMokaException("Texture cannot be null. [" + getEntity().getName() + "]");
 
         this.texture = texture;
+        markChanged();
+
+        if (quad != null) {
+            acquireTexture();
+        }
     }
 
     @ComponentAttribute("ClipRectPixels")
@@ -173,12 +294,14 @@ public class Sprite extends DrawableComponent
     public void setTint(float r, float g, float b, float a)
     {
         tint.set(r, g, b, a);
+        markChanged();
     }
 
     @ComponentAttribute("Blend")
     public void setBlend(BLEND blend)
     {
         this.blend = blend;
+        markChanged();
     }
 
     @ComponentAttribute("Batch")
@@ -187,6 +310,18 @@ public class Sprite extends DrawableComponent
         this.batch = batch;
     }
 
+    /**
+     * Marks the sprite as one that rarely changes or moves. Its vertices are then kept on the GPU
+     * with the other static sprites of the layer and only built again when one of them changes,
+     * instead of every frame. Static sprites are drawn before the rest of their layer.
+     */
+    @ComponentAttribute("Static")
+    public void setStatic(boolean isStatic)
+    {
+        this.isStatic = isStatic;
+        markChanged();
+    }
+
     public Vector2 getSize()
     {
         if (size == null)
@@ -0,0 +1,142 @@
+package com.moka.components;
+
+import com.moka.core.Moka;
+import com.moka.scene.entity.Component;
+import com.moka.scene.entity.ComponentAttribute;
+import com.moka.triggers.Trigger;
+
+/**
+ * Animates the entity's {@link Sprite} using its texture as a sprite sheet of equally sized
+ * frames, read from left to right and top to bottom.
+ * <p>
+ * The current frame is calculated from the engine's elapsed time instead of being accumulated,
+ * so every animation started at the same moment shows the same frame. Only the sprite's region
+ * changes, so batched sprites keep batching while animated.
+ *
+ * @author Shelo
+ */
+public class SpriteAnimation extends Component
+{
+    private Trigger<Object> onFinishTrigger;
+    private Sprite sprite;
+
+    private int columns = 1;
+    private int rows = 1;
+    private int frameCount;
+    private float frameRate = 12;
+    private boolean loop = true;
+    private boolean finished;
+    private double startTime;
+
+    @Override
+    public void onCreate()
+    {
+        if (!(getEntity().getDrawable() instanceof Sprite)) {
+            raiseError("SpriteAnimation needs a Sprite.");
+        }
+
+        sprite = (Sprite) getEntity().getDrawable();
+
+        if (frameCount <= 0 || frameCount > columns * rows) {
+            frameCount = columns * rows;
+        }
+
+        restart();
+    }
+
+    @Override
+    public void onUpdate()
+    {
+        if (finished) {
+            return;
+        }
+
+        int frame = (int) ((Moka.getTime().getElapsed() - startTime) * frameRate);
+
+        if (frame >= frameCount) {
+            if (loop) {
+                frame %= frameCount;
+            } else {
+                frame = frameCount - 1;
+                finished = true;
+            }
+        }
+
+        showFrame(frame);
+
+        if (finished) {
+            callTrigger(onFinishTrigger);
+        }
+    }
+
+    private void showFrame(int frame)
+    {
+        float width = 1.0f / columns;
+        float height = 1.0f / rows;
+
+        sprite.setRegion((frame % columns) * width, (frame / columns) * height, width, height);
+    }
+
+    /**
+     * Starts the animation again from the first frame.
+     */
+    public void restart()
+    {
+        startTime = Moka.getTime().getElapsed();
+        finished = false;
+        showFrame(0);
+    }
+
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * @param columns   number of frames per row of the sheet.
+     * @param rows      number of rows of the sheet.
+     */
+    @ComponentAttribute(value = "Frames", required = true)
+    public void setFrames(int columns, int rows)
+    {
+        if (columns <= 0 || rows <= 0) {
+            raiseError("The sheet needs at least one column and one row.");
+        }
+
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * @param frameCount number of frames used, for sheets where the last row is not full.
+     */
+    @ComponentAttribute("FrameCount")
+    public void setFrameCount(int frameCount)
+    {
+        this.frameCount = frameCount;
+    }
+
+    /**
+     * @param frameRate frames per second.
+     */
+    @ComponentAttribute("FrameRate")
+    public void setFrameRate(float frameRate)
+    {
+        this.frameRate = frameRate;
+    }
+
+    @ComponentAttribute("Loop")
+    public void setLoop(boolean loop)
+    {
+        this.loop = loop;
+    }
+
+    /**
+     * @param trigger called once when a non looping animation shows its last frame.
+     */
+    @ComponentAttribute("OnFinish")
+    public void setOnFinish(Trigger<Object> trigger)
+    {
+        this.onFinishTrigger = trigger;
+    }
+}
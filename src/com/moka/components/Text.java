@@ -0,0 +1,265 @@
+package com.moka.components;
+
+import com.moka.graphics.BitmapFont;
+import com.moka.graphics.Color;
+import com.moka.graphics.DrawableComponent;
+import com.moka.graphics.Renderer;
+import com.moka.math.Matrix3;
+import com.moka.math.Vector2;
+import com.moka.scene.entity.ComponentAttribute;
+
+import static org.lwjgl.opengl.GL11.GL_ONE_MINUS_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_SRC_ALPHA;
+
+/**
+ * Draws a text with a {@link BitmapFont}. Every glyph is a batched sprite, so a whole HUD using
+ * one font page costs a single draw call.
+ * <p>
+ * The position of every glyph is calculated only when the text, the font, the scale or the
+ * alignment change, drawing only adds the position of the entity. The entity is at the top of
+ * the first line, horizontally at its left, center or right depending on the alignment. Lines
+ * are separated with '\n'.
+ *
+ * @author Shelo
+ */
+public class Text extends DrawableComponent
+{
+    public enum ALIGN
+    {
+        LEFT,
+        CENTER,
+        RIGHT,
+    }
+
+    private BitmapFont font;
+    private String text = "";
+    private Color tint = new Color(1, 1, 1, 1);
+    private float scale = 1;
+    private ALIGN align = ALIGN.LEFT;
+
+    // glyph runs laid out for the current text, relative to the entity.
+    private BitmapFont.Glyph[] glyphs = new BitmapFont.Glyph[16];
+    private float[] offsetsX = new float[16];
+    private float[] offsetsY = new float[16];
+    private int glyphCount;
+    private boolean layoutChanged = true;
+
+    @Override
+    public void render(Renderer renderer)
+    {
+        if (font == null) {
+            raiseError("there's no font to draw.");
+        }
+
+        if (layoutChanged) {
+            layout();
+        }
+
+        Vector2 position = getTransform().getPosition();
+        Matrix3 rotation = getTransform().getRotation();
+        float r00 = rotation.get(0, 0);
+        float r01 = rotation.get(0, 1);
+        float r10 = rotation.get(1, 0);
+        float r11 = rotation.get(1, 1);
+
+        // the previous batched drawable may have left another blending.
+        renderer.setBatchBlend(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        for (int i = 0; i < glyphCount; i++) {
+            BitmapFont.Glyph glyph = glyphs[i];
+            float x = offsetsX[i];
+            float y = offsetsY[i];
+
+            renderer.batch(font.getPage(glyph.page), x * r00 + y * r01 + position.x,
+                    x * r10 + y * r11 + position.y, (int) (glyph.width * scale),
+                    (int) (glyph.height * scale), tint, rotation, glyph.region);
+        }
+    }
+
+    /**
+     * Places every glyph, storing the center of each one relative to the entity.
+     */
+    private void layout()
+    {
+        layoutChanged = false;
+        glyphCount = 0;
+
+        if (font == null) {
+            return;
+        }
+
+        ensureCapacity(text.length());
+
+        int lineStart = 0;
+        float lineTop = 0;
+
+        while (lineStart <= text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+
+            if (lineEnd == -1) {
+                lineEnd = text.length();
+            }
+
+            layoutLine(lineStart, lineEnd, lineTop);
+
+            lineStart = lineEnd + 1;
+            lineTop -= font.getLineHeight() * scale;
+        }
+    }
+
+    private void layoutLine(int start, int end, float lineTop)
+    {
+        float penX = 0;
+
+        if (align != ALIGN.LEFT) {
+            float width = font.getWidth(text.subSequence(start, end)) * scale;
+            penX = align == ALIGN.CENTER ? -width / 2 : -width;
+        }
+
+        int previous = -1;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            BitmapFont.Glyph glyph = font.getGlyph(c);
+
+            if (glyph == null) {
+                continue;
+            }
+
+            if (previous != -1) {
+                penX += font.getKerning(previous, c) * scale;
+            }
+
+            // empty glyphs (e.g. spaces) only move the pen.
+            if (glyph.width > 0 && glyph.height > 0) {
+                glyphs[glyphCount] = glyph;
+                offsetsX[glyphCount] = penX + (glyph.xOffset + glyph.width / 2f) * scale;
+                offsetsY[glyphCount] = lineTop - (glyph.yOffset + glyph.height / 2f) * scale;
+                glyphCount++;
+            }
+
+            penX += glyph.xAdvance * scale;
+            previous = c;
+        }
+    }
+
+    private void ensureCapacity(int required)
+    {
+        if (required <= glyphs.length) {
+            return;
+        }
+
+        int newLength = Math.max(required, glyphs.length * 2);
+        glyphs = new BitmapFont.Glyph[newLength];
+        offsetsX = new float[newLength];
+        offsetsY = new float[newLength];
+    }
+
+    @Override
+    public boolean shouldBatch()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isRecordable()
+    {
+        return true;
+    }
+
+    /**
+     * @return the glyphs drawn, spaces and unknown characters are not counted.
+     */
+    public int getGlyphCount()
+    {
+        if (layoutChanged) {
+            layout();
+        }
+
+        return glyphCount;
+    }
+
+    /**
+     * @return the horizontal center of the given glyph relative to the entity, before rotating.
+     */
+    public float getGlyphX(int glyph)
+    {
+        if (layoutChanged) {
+            layout();
+        }
+
+        return offsetsX[glyph];
+    }
+
+    /**
+     * @return the vertical center of the given glyph relative to the entity, before rotating.
+     */
+    public float getGlyphY(int glyph)
+    {
+        if (layoutChanged) {
+            layout();
+        }
+
+        return offsetsY[glyph];
+    }
+
+    public String getText()
+    {
+        return text;
+    }
+
+    public BitmapFont getFont()
+    {
+        return font;
+    }
+
+    @ComponentAttribute(value = "Font", required = true)
+    public void setFont(BitmapFont font)
+    {
+        this.font = font;
+        layoutChanged = true;
+        markChanged();
+    }
+
+    /**
+     * Changes the text, the glyphs are only laid out again if it's different.
+     */
+    @ComponentAttribute("Text")
+    public void setText(String text)
+    {
+        if (text == null) {
+            text = "";
+        }
+
+        if (text.equals(this.text)) {
+            return;
+        }
+
+        this.text = text;
+        layoutChanged = true;
+        markChanged();
+    }
+
+    @ComponentAttribute("Tint")
+    public void setTint(float r, float g, float b, float a)
+    {
+        tint.set(r, g, b, a);
+        markChanged();
+    }
+
+    @ComponentAttribute("Scale")
+    public void setScale(float scale)
+    {
+        this.scale = scale;
+        layoutChanged = true;
+        markChanged();
+    }
+
+    @ComponentAttribute("Align")
+    public void setAlign(ALIGN align)
+    {
+        this.align = align;
+        layoutChanged = true;
+        markChanged();
+    }
+}
@@ -2,16 +2,41 @@ package com.moka.components;
 
 import com.moka.graphics.DrawableComponent;
 import com.moka.graphics.Renderer;
+import com.moka.graphics.StaticBatch;
+import com.moka.math.Rectangle;
+import com.moka.math.Vector2;
 import com.moka.resources.utils.EntityBuffer;
 import com.moka.scene.entity.ComponentAttribute;
 import com.moka.scene.entity.Entity;
+import com.moka.scene.entity.Transform;
 
+/**
+ * Grid of tiles, where every tile is a reference to one of the given tile entities. The tiles
+ * are split in square chunks, each chunk keeps its geometry on the GPU (see {@link StaticBatch})
+ * and is only rebuilt when one of its tiles changes, and only chunks seen by the camera are drawn.
+ * Tiles drawn by something else than a sprite can't be kept on the GPU, and are drawn one by one.
+ */
 public class TileMap extends DrawableComponent
 {
+    public static final int DEFAULT_CHUNK_SIZE = 32;
+
     private EntityBuffer entities;
 
     private byte[] tiles;
 
+    // tiles whose sprites are kept in the chunks.
+    private boolean[] batchedTiles;
+    private boolean hasUnbatchedTiles;
+
+    private StaticBatch[] chunks;
+    private boolean[] dirtyChunks;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int chunksX;
+    private int chunksY;
+
+    private Rectangle view = new Rectangle();
+    private Vector2 builtOffset = new Vector2();
+
     private boolean updateProcess = false;
 
     private int cellHeight;
@@ -29,11 +54,24 @@ public class TileMap extends DrawableComponent
             tiles[i] = -1;
         }
 
-        for (Entity entity : entities) {
+        chunksX = (width + chunkSize - 1) / chunkSize;
+        chunksY = (height + chunkSize - 1) / chunkSize;
+        chunks = new StaticBatch[chunksX * chunksY];
+        dirtyChunks = new boolean[chunksX * chunksY];
+
+        batchedTiles = new boolean[entities.size()];
+
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
             entity.getTransform().setSize(cellWidth, cellHeight);
             entity.create();
-            Sprite sprite = (Sprite) entity.getDrawable();
-            sprite.setBatch(true);
+
+            if (entity.getDrawable() instanceof Sprite) {
+                ((Sprite) entity.getDrawable()).setBatch(true);
+                batchedTiles[i] = true;
+            } else if (entity.hasDrawable()) {
+                hasUnbatchedTiles = true;
+            }
         }
     }
 
@@ -44,32 +82,148 @@ public class TileMap extends DrawableComponent
             return;
         }
 
-        for (Entity entity : entities) {
+        boolean changed = false;
+
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
             entity.update();
+            changed |= batchedTiles[i] && entity.getTransform().hasChanged();
+        }
+
+        // tiles are shared by many cells, so any change has to be seen everywhere.
+        if (changed) {
+            invalidate();
         }
     }
 
     @Override
     public void render(Renderer renderer)
     {
-        float offsetX = getTransform().getPosition().x;
-        float offsetY = getTransform().getPosition().y;
+        Vector2 offset = getTransform().getPosition();
 
-        for (int i = 0; i < tiles.length; i++) {
-            if (tiles[i] != -1) {
-                int x = i % width;
-                int y = i / width;
+        // moving the whole map moves every vertex.
+        if (!offset.equals(builtOffset)) {
+            builtOffset.set(offset);
+            invalidate();
+        }
+
+        renderer.getCurrentCamera().getWorldBounds(view);
+
+        // tiles are centered on their cells, and may be rotated, so look one cell further.
+        float chunkWidth = chunkSize * cellWidth;
+        float chunkHeight = chunkSize * cellHeight;
+
+        int minX = (int) Math.floor((view.left - offset.x - cellWidth) / chunkWidth);
+        int minY = (int) Math.floor((view.top - offset.y - cellHeight) / chunkHeight);
+        int maxX = (int) Math.floor((view.left + view.width - offset.x + cellWidth) / chunkWidth);
+        int maxY = (int) Math.floor((view.top + view.height - offset.y + cellHeight) / chunkHeight);
+
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, 0);
+        maxX = Math.min(maxX, chunksX - 1);
+        maxY = Math.min(maxY, chunksY - 1);
 
-                Entity entity = entities.get(tiles[i]);
+        for (int cy = minY; cy <= maxY; cy++) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                int chunk = cx + cy * chunksX;
+
+                if (chunks[chunk] == null || dirtyChunks[chunk]) {
+                    buildChunk(cx, cy);
+                }
+
+                renderer.drawStatic(chunks[chunk]);
+
+                if (hasUnbatchedTiles) {
+                    drawUnbatched(renderer, cx, cy);
+                }
+            }
+        }
+    }
+
+    private void drawUnbatched(Renderer renderer, int cx, int cy)
+    {
+        int endX = Math.min(width, (cx + 1) * chunkSize);
+        int endY = Math.min(height, (cy + 1) * chunkSize);
+
+        for (int y = cy * chunkSize; y < endY; y++) {
+            for (int x = cx * chunkSize; x < endX; x++) {
+                byte tile = tiles[x + y * width];
+
+                if (tile == -1 || batchedTiles[tile]) {
+                    continue;
+                }
+
+                Entity entity = entities.get(tile);
                 if (entity.hasDrawable() && entity.getDrawable().isEnabled()) {
-                    entity.getTransform().setPosition(x * cellWidth + offsetX,
-                            y * cellHeight + offsetY);
+                    entity.getTransform().setPosition(x * cellWidth + builtOffset.x,
+                            y * cellHeight + builtOffset.y);
                     entity.getDrawable().render(renderer);
                 }
             }
         }
     }
 
+    private void buildChunk(int cx, int cy)
+    {
+        int chunk = cx + cy * chunksX;
+
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new StaticBatch();
+        }
+
+        StaticBatch batch = chunks[chunk];
+        batch.begin();
+
+        int endX = Math.min(width, (cx + 1) * chunkSize);
+        int endY = Math.min(height, (cy + 1) * chunkSize);
+
+        for (int y = cy * chunkSize; y < endY; y++) {
+            for (int x = cx * chunkSize; x < endX; x++) {
+                byte tile = tiles[x + y * width];
+
+                if (tile == -1 || !batchedTiles[tile]) {
+                    continue;
+                }
+
+                Entity entity = entities.get(tile);
+                if (entity.getDrawable().isEnabled()) {
+                    Sprite sprite = (Sprite) entity.getDrawable();
+                    Transform transform = entity.getTransform();
+                    Vector2 size = transform.getSize();
+
+                    batch.add(sprite.getTexture(), x * cellWidth + builtOffset.x,
+                            y * cellHeight + builtOffset.y, size.x, size.y, sprite.getTint(),
+                            transform.getRotation(), sprite.getClipRect());
+                }
+            }
+        }
+
+        batch.end();
+        dirtyChunks[chunk] = false;
+    }
+
+    /**
+     * Marks every chunk to be rebuilt the next time it is drawn. Use this after changing a tile
+     * entity in a way that the map can't notice (e.g. its tint).
+     */
+    public void invalidate()
+    {
+        for (int i = 0; i < dirtyChunks.length; i++) {
+            dirtyChunks[i] = true;
+        }
+    }
+
+    @Override
+    public void onDestroy()
+    {
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] != null) {
+                chunks[i].dispose();
+                chunks[i] = null;
+            }
+        }
+    }
+
     @Override
     public boolean shouldBatch()
     {
@@ -88,10 +242,11 @@ public class TileMap extends DrawableComponent
     public void setTile(int x, int y, byte tile)
     {
         if (tile >= entities.size() || tile < 0) {
-            raiseError("No such tile: " + 0);
+            raiseError("No such tile: " + tile);
         }
 
         tiles[x + y * width] = tile;
+        dirtyChunks[x / chunkSize + (y / chunkSize) * chunksX] = true;
     }
 
     /**
@@ -116,6 +271,23 @@ public class TileMap extends DrawableComponent
         this.height = height;
     }
 
+    /**
+     * @param chunkSize number of cells per side of every chunk, it can't change once created.
+     */
+    @ComponentAttribute("ChunkSize")
+    public void setChunkSize(int chunkSize)
+    {
+        if (chunkSize <= 0) {
+            raiseError("The chunk size has to be positive.");
+        }
+
+        if (chunks != null) {
+            raiseError("The chunk size can't change once the map is created.");
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
     /**
      * @param entities entities from which the tiles will be taken.
      */
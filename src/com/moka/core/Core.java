@@ -20,11 +20,6 @@ public final class Core extends SubEngine
      */
     public Core()
     {
-        if (glfwInit() == 0)
-            throw new JMokaException("Error initializing GLFW.");
-        else
-            log("GLFW initialized.");
-
         runtime = Runtime.getRuntime();
     }
 
@@ -127,7 +122,12 @@ public final class Core extends SubEngine
             {
                 float usedMemory = ((runtime.totalMemory() - runtime.freeMemory()) / (1024.0f * 1024.0f));
                 log(renderFrames + " fps, " + updateFrames + " ups. Used Memory: " + usedMemory + "MB. Entities: "
-                        + getContext().getEntitiesCount());
+                        + getContext().getEntitiesCount() + ". State changes: "
+                        + getRenderer().getState().getIssuedChanges() + " sent, "
+                        + getRenderer().getState().getSkippedChanges() + " skipped. Textures: "
+                        + getRenderer().getTextureManager() + "."
+                        + (getDisplay().getFrameHandoff() == null ? ""
+                        : " Frames: " + getDisplay().getFrameHandoff() + "."));
                 accSeconds = renderFrames = updateFrames = 0;
             }
         }
@@ -145,6 +145,10 @@ public final class Core extends SubEngine
 
         getResources().dispose();
 
+        getRenderer().getTextureStreamer().dispose();
+
+        getDisplay().destroy();
+
         glfwTerminate();
 
         log("JMoka Engine stopped. Have a good day.");
@@ -0,0 +1,249 @@
+package com.moka.graphics;
+
+import com.moka.math.Rectangle;
+import com.moka.utils.CoreUtil;
+import com.moka.utils.JMokaException;
+
+import java.util.HashMap;
+
+/**
+ * A bitmap font in the text format of AngelCode's BMFont: a descriptor with the position of
+ * every glyph inside one or more texture pages.
+ * <p>
+ * Only the lines needed to draw are read: {@code common} (line height, base and page size),
+ * {@code page}, {@code char} and {@code kerning}. Pages are loaded from the directory of the
+ * descriptor.
+ *
+ * @author Shelo
+ */
+public class BitmapFont
+{
+    public static class Glyph
+    {
+        /**
+         * Size in pixels.
+         */
+        public int width;
+        public int height;
+
+        /**
+         * Offset from the pen position to the top left corner of the glyph, y going down.
+         */
+        public int xOffset;
+        public int yOffset;
+
+        /**
+         * How much the pen moves after drawing the glyph.
+         */
+        public int xAdvance;
+
+        public int page;
+
+        /**
+         * Region of the page in texture coordinates.
+         */
+        public final Rectangle region = new Rectangle();
+    }
+
+    private final HashMap<Integer, Glyph> glyphs = new HashMap<>();
+    private final HashMap<Integer, Integer> kernings = new HashMap<>();
+    private Texture[] pages;
+    private String[] pageFiles;
+    private int lineHeight;
+    private int base;
+    private int pageWidth;
+    private int pageHeight;
+
+    /**
+     * Loads a font descriptor and its pages.
+     *
+     * @param filePath path to the .fnt file.
+     */
+    public BitmapFont(String filePath)
+    {
+        parse(CoreUtil.readFile(filePath));
+
+        int slash = filePath.lastIndexOf('/');
+        String directory = slash < 0 ? "" : filePath.substring(0, slash + 1);
+
+        pages = new Texture[pageFiles.length];
+        for (int i = 0; i < pages.length; i++) {
+            if (pageFiles[i] == null) {
+                throw new JMokaException("Font " + filePath + " has no page " + i + ".");
+            }
+
+            pages[i] = new Texture(directory + pageFiles[i], Texture.Filter.LINEAR);
+        }
+    }
+
+    /**
+     * Creates a font from a descriptor whose pages are already loaded.
+     *
+     * @param descriptor the content of a .fnt file.
+     * @param pages      the textures of the pages, in order.
+     */
+    public BitmapFont(String descriptor, Texture... pages)
+    {
+        parse(descriptor);
+
+        if (pages.length < pageFiles.length) {
+            throw new JMokaException("The font needs " + pageFiles.length + " pages.");
+        }
+
+        this.pages = pages;
+    }
+
+    private void parse(String descriptor)
+    {
+        pageFiles = new String[0];
+
+        for (String line : descriptor.split("\r?\n")) {
+            String[] tokens = line.trim().split("\\s+");
+
+            switch (tokens[0]) {
+                case "common":
+                    lineHeight = getInt(tokens, "lineHeight");
+                    base = getInt(tokens, "base");
+                    pageWidth = getInt(tokens, "scaleW");
+                    pageHeight = getInt(tokens, "scaleH");
+                    pageFiles = new String[getInt(tokens, "pages")];
+                    break;
+                case "page":
+                    int id = getInt(tokens, "id");
+
+                    if (id >= pageFiles.length) {
+                        throw new JMokaException("Font page " + id + " out of range.");
+                    }
+
+                    // the file name can contain spaces, it's read from the whole line.
+                    int start = line.indexOf("file=\"") + 6;
+                    pageFiles[id] = line.substring(start, line.indexOf('"', start));
+                    break;
+                case "char":
+                    addGlyph(tokens);
+                    break;
+                case "kerning":
+                    kernings.put(getInt(tokens, "first") << 16 | getInt(tokens, "second"),
+                            getInt(tokens, "amount"));
+                    break;
+            }
+        }
+
+        if (lineHeight == 0) {
+            throw new JMokaException("The font descriptor has no common line.");
+        }
+    }
+
+    private void addGlyph(String[] tokens)
+    {
+        Glyph glyph = new Glyph();
+        int x = getInt(tokens, "x");
+        int y = getInt(tokens, "y");
+
+        glyph.width = getInt(tokens, "width");
+        glyph.height = getInt(tokens, "height");
+        glyph.xOffset = getInt(tokens, "xoffset");
+        glyph.yOffset = getInt(tokens, "yoffset");
+        glyph.xAdvance = getInt(tokens, "xadvance");
+        glyph.page = getInt(tokens, "page");
+        glyph.region.set((float) x / pageWidth, (float) y / pageHeight,
+                (float) glyph.width / pageWidth, (float) glyph.height / pageHeight);
+
+        glyphs.put(getInt(tokens, "id"), glyph);
+    }
+
+    private static int getInt(String[] tokens, String key)
+    {
+        String prefix = key + "=";
+
+        for (String token : tokens) {
+            if (token.startsWith(prefix)) {
+                return Integer.parseInt(token.substring(prefix.length()));
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the glyph of the character, or null if the font doesn't have it.
+     */
+    public Glyph getGlyph(int character)
+    {
+        return glyphs.get(character);
+    }
+
+    /**
+     * @return the extra advance between two characters, usually negative.
+     */
+    public int getKerning(int first, int second)
+    {
+        Integer amount = kernings.get(first << 16 | second);
+        return amount == null ? 0 : amount;
+    }
+
+    /**
+     * Measures the widest line of a text.
+     *
+     * @return the width in pixels, without scaling.
+     */
+    public int getWidth(CharSequence text)
+    {
+        int width = 0;
+        int lineWidth = 0;
+        int previous = -1;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c == '\n') {
+                width = Math.max(width, lineWidth);
+                lineWidth = 0;
+                previous = -1;
+                continue;
+            }
+
+            Glyph glyph = glyphs.get((int) c);
+
+            if (glyph != null) {
+                lineWidth += glyph.xAdvance + (previous == -1 ? 0 : getKerning(previous, c));
+                previous = c;
+            }
+        }
+
+        return Math.max(width, lineWidth);
+    }
+
+    public Texture getPage(int page)
+    {
+        return pages[page];
+    }
+
+    public int getPageCount()
+    {
+        return pages.length;
+    }
+
+    public int getLineHeight()
+    {
+        return lineHeight;
+    }
+
+    /**
+     * @return distance from the top of a line to the baseline.
+     */
+    public int getBase()
+    {
+        return base;
+    }
+
+    /**
+     * Frees the pages.
+     */
+    public void dispose()
+    {
+        for (Texture page : pages) {
+            page.dispose();
+        }
+    }
+}
@@ -34,5 +34,21 @@ public class Color
         return (int) (r * 255) << 24 | (int) (g * 255) << 16 | (int) (b * 255) << 8 | (int) (a * 255);
     }
 
+    /**
+     * Packs the color as four unsigned bytes in ABGR order, which is the order OpenGL reads
+     * them as RGBA from a little endian buffer.
+     *
+     * @return the packed color.
+     */
+    public int toABGR()
+    {
+        return toByte(a) << 24 | toByte(b) << 16 | toByte(g) << 8 | toByte(r);
+    }
+
+    private static int toByte(float value)
+    {
+        return (int) (Math.max(0, Math.min(1, value)) * 255) & 0xFF;
+    }
+
     // TODO: expand this a little more.
 }
@@ -0,0 +1,95 @@
+package com.moka.graphics;
+
+import com.moka.core.Moka;
+import org.lwjgl.BufferUtils;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Issues the draw commands of a {@link DrawCommandBuffer} on the OpenGL thread: the vertices are
+ * uploaded at once and every command is a draw call over a part of them. Sprites are always
+ * quads, so the indices never change and are only uploaded when more sprites are needed.
+ *
+ * @author Shelo
+ */
+class CommandSubmitter
+{
+    private final RenderBackend backend;
+    private final RenderState state;
+    private final int vao;
+    private final int vbo;
+    private final int ibo;
+    private int capacity;
+
+    CommandSubmitter()
+    {
+        backend = Moka.getRenderer().getBackend();
+        state = Moka.getRenderer().getState();
+
+        vao = backend.genVertexArray();
+        vbo = backend.genBuffer();
+        ibo = backend.genBuffer();
+
+        state.bindVertexArray(vao);
+        state.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        SpriteBatch.describeLayout(backend, state);
+        state.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+    }
+
+    void submit(DrawCommandBuffer buffer, RenderStats stats)
+    {
+        int sprites = buffer.getSpriteCount();
+
+        if (sprites == 0) {
+            return;
+        }
+
+        state.bindVertexArray(vao);
+
+        if (sprites > capacity) {
+            createIndices(Math.max(sprites, capacity * 2));
+        }
+
+        state.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        backend.bufferData(GL_ARRAY_BUFFER, buffer.getVertexBuffer(), GL_STREAM_DRAW);
+
+        for (int i = 0; i < buffer.getCommandCount(); i++) {
+            int count = buffer.getCount(i);
+
+            state.blendFunc(buffer.getSource(i), buffer.getDestination(i));
+            buffer.getTexture(i).bind();
+
+            // 6 indices per sprite, 4 bytes each.
+            backend.drawElements(count * 6, buffer.getFirst(i) * 24L);
+
+            stats.countFlush(buffer.getReason(i), count);
+            stats.countDraw(count * 4);
+        }
+    }
+
+    private void createIndices(int sprites)
+    {
+        IntBuffer indices = BufferUtils.createIntBuffer(sprites * 6);
+
+        for (int i = 0; i < sprites; i++) {
+            int vi = i * 4;
+            indices.put(vi).put(vi + 1).put(vi + 2);
+            indices.put(vi).put(vi + 2).put(vi + 3);
+        }
+
+        indices.flip();
+
+        // the element buffer is already bound to the vertex array.
+        backend.bufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        capacity = sprites;
+    }
+
+    void dispose()
+    {
+        state.deleteVertexArray(vao);
+        state.deleteBuffer(vbo);
+        state.deleteBuffer(ibo);
+    }
+}
@@ -12,6 +12,7 @@ import org.lwjgl.system.MemoryUtil;
 import java.nio.ByteBuffer;
 
 import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.GL_FALSE;
 import static org.lwjgl.opengl.GL11.GL_TRUE;
 
 public final class Display extends SubEngine
@@ -19,10 +20,13 @@ public final class Display extends SubEngine
     private static final String TAG = "DISPLAY";
 
     private WindowFocusCallback windowFocusCallback;
+    private RenderThread renderThread;
+    private boolean renderThreadEnabled;
 
     private boolean focus;
     private String title;
     private long window;
+    private long sharedWindow;
     private int height;
     private int width;
 
@@ -39,9 +43,15 @@ public final class Display extends SubEngine
         this.width = width;
         this.title = title;
 
+        // GLFW is started here, so the rest of the engine can be created without a window.
+        if (glfwInit() == 0)
+            throw new JMokaException("Error initializing GLFW.");
+        else
+            JMokaLog.o(TAG, "GLFW initialized.");
+
         glfwWindowHint(GLFW_SAMPLES, 0);
         glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 2);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
 
@@ -57,16 +67,73 @@ public final class Display extends SubEngine
         glfwSetWindowPos(window, (GLFWvidmode.width(vidMode) - width) / 2,
                 (GLFWvidmode.height(vidMode) - height) / 2);
 
-        glfwMakeContextCurrent(window);
+        if (renderThreadEnabled) {
+            // the game thread draws with a hidden context sharing the textures of the window.
+            glfwWindowHint(GLFW_VISIBLE, GL_FALSE);
+            sharedWindow = glfwCreateWindow(1, 1, title, MemoryUtil.NULL, window);
+            glfwWindowHint(GLFW_VISIBLE, GL_TRUE);
+
+            if (sharedWindow == 0)
+                throw new JMokaException("Shared context could not be created.");
+
+            glfwMakeContextCurrent(sharedWindow);
+        } else {
+            glfwMakeContextCurrent(window);
+        }
 
         // this is a critical line!!
         GLContext.createFromCurrent();
 
+        if (renderThreadEnabled) {
+            renderThread = new RenderThread(window, width, height);
+            renderThread.start();
+            JMokaLog.o(TAG, "Render thread started.");
+        }
+
         // set the focus gain or lose callback.
         windowFocusCallback = new WindowFocusCallback();
         glfwSetWindowFocusCallback(window, windowFocusCallback);
     }
 
+    /**
+     * Makes the context of the window live on a thread of its own, which presents the frames
+     * and waits for the vertical sync while the game thread keeps simulating. The game thread
+     * draws into off-screen frame buffers, frames not presented in time are dropped (see
+     * {@link #getFrameHandoff()}). Has to be called before creating the display.
+     *
+     * @param renderThreadEnabled true to present frames on a render thread.
+     */
+    public void setRenderThread(boolean renderThreadEnabled)
+    {
+        if (window != 0)
+            throw new JMokaException("The render thread has to be set before creating the display.");
+
+        this.renderThreadEnabled = renderThreadEnabled;
+    }
+
+    public boolean isRenderThread()
+    {
+        return renderThreadEnabled;
+    }
+
+    /**
+     * @return the frames published and presented by the render thread, or null if there's none.
+     */
+    public FrameHandoff getFrameHandoff()
+    {
+        return renderThread == null ? null : renderThread.getHandoff();
+    }
+
+    /**
+     * Called by the renderer before drawing a frame.
+     *
+     * @return the frame buffer object where the frame has to be drawn, 0 is the window.
+     */
+    public int beginFrame()
+    {
+        return renderThread == null ? 0 : renderThread.beginFrame();
+    }
+
     public void start()
     {
         glfwShowWindow(window);
@@ -80,10 +147,31 @@ public final class Display extends SubEngine
 
     public void onUpdate()
     {
-        glfwSwapBuffers(window);
+        if (renderThread != null)
+            renderThread.publish();
+        else
+            glfwSwapBuffers(window);
+
+        // events are always polled on the thread that created the window.
         glfwPollEvents();
     }
 
+    /**
+     * Stops the render thread, if any. Called when the engine stops, before terminating GLFW.
+     */
+    public void destroy()
+    {
+        if (renderThread != null) {
+            renderThread.stop();
+            renderThread = null;
+        }
+
+        if (sharedWindow != 0) {
+            glfwDestroyWindow(sharedWindow);
+            sharedWindow = 0;
+        }
+    }
+
     public boolean isCloseRequested()
     {
         return glfwWindowShouldClose(window) != 0;
@@ -127,6 +215,19 @@ public final class Display extends SubEngine
         return title;
     }
 
+    /**
+     * Changes the title of the window.
+     *
+     * @param title the new title.
+     */
+    public void setTitle(String title)
+    {
+        this.title = title;
+
+        if (window != 0)
+            glfwSetWindowTitle(window, title);
+    }
+
     /**
      * Callback for windows focus.
      */
@@ -0,0 +1,231 @@
+package com.moka.graphics;
+
+import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
+import org.lwjgl.BufferUtils;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.GL_ONE_MINUS_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_SRC_ALPHA;
+
+/**
+ * Batched sprites recorded without touching the GPU, so it can be filled by any thread. The
+ * vertices are built in the same layout used by {@link SpriteBatch}, and every run of sprites
+ * sharing a texture and a blending function becomes a draw command. The buffer grows as needed,
+ * it never has to be drawn in the middle of the recording.
+ * <p>
+ * Used by the renderer to record layers in parallel (see {@link Renderer#setParallelRecording}),
+ * the commands are then issued on the OpenGL thread.
+ *
+ * @author Shelo
+ */
+public class DrawCommandBuffer
+{
+    private static final int INITIAL_SPRITES = 256;
+    private static final int INITIAL_COMMANDS = 16;
+    private static final int SPRITE_COMPONENTS = 4 * SpriteBatch.COMPONENTS_PER_VERTEX;
+
+    private int[] vertices = new int[INITIAL_SPRITES * SPRITE_COMPONENTS];
+    private IntBuffer vertexBuffer;
+    private int vc;
+    private int sprites;
+
+    private Texture[] textures = new Texture[INITIAL_COMMANDS];
+    private int[] sources = new int[INITIAL_COMMANDS];
+    private int[] destinations = new int[INITIAL_COMMANDS];
+    private int[] firsts = new int[INITIAL_COMMANDS];
+    private int[] counts = new int[INITIAL_COMMANDS];
+    private RenderStats.FlushReason[] reasons = new RenderStats.FlushReason[INITIAL_COMMANDS];
+    private int commands;
+
+    // state of the command being recorded.
+    private Texture texture;
+    private int source = GL_SRC_ALPHA;
+    private int destination = GL_ONE_MINUS_SRC_ALPHA;
+    private int first;
+
+    /**
+     * Discards everything recorded, the blending goes back to normal alpha blending.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < commands; i++) {
+            textures[i] = null;
+        }
+
+        vc = sprites = commands = first = 0;
+        texture = null;
+        source = GL_SRC_ALPHA;
+        destination = GL_ONE_MINUS_SRC_ALPHA;
+    }
+
+    /**
+     * Changes the blending function of the sprites recorded after this.
+     */
+    public void setBlend(int source, int destination)
+    {
+        if (this.source == source && this.destination == destination) {
+            return;
+        }
+
+        close(RenderStats.FlushReason.BLEND_CHANGE);
+
+        this.source = source;
+        this.destination = destination;
+    }
+
+    /**
+     * Records a sprite, see {@link SpriteBatch#draw(Texture, float, float, int, int, Color, Matrix3, Rectangle)}.
+     *
+     * @param rotation the rotation, or null if not rotated.
+     */
+    public void draw(Texture texture, float x, float y, int width, int height, Color color,
+                     Matrix3 rotation, Rectangle region)
+    {
+        if (this.texture != null && texture != this.texture) {
+            close(RenderStats.FlushReason.TEXTURE_CHANGE);
+        }
+
+        this.texture = texture;
+
+        if (vc + SPRITE_COMPONENTS > vertices.length) {
+            int[] newVertices = new int[vertices.length * 2];
+            System.arraycopy(vertices, 0, newVertices, 0, vc);
+            vertices = newVertices;
+        }
+
+        vc = SpriteBatch.putSprite(vertices, vc, x, y, width, height, color, rotation, region);
+        sprites++;
+    }
+
+    /**
+     * Records every sprite of another buffer, already ended, keeping their textures and blending.
+     * The blending of the sprites recorded after this is not changed.
+     */
+    public void append(DrawCommandBuffer other)
+    {
+        int previousSource = source;
+        int previousDestination = destination;
+
+        for (int i = 0; i < other.commands; i++) {
+            setBlend(other.sources[i], other.destinations[i]);
+
+            if (texture != null && other.textures[i] != texture) {
+                close(RenderStats.FlushReason.TEXTURE_CHANGE);
+            }
+
+            texture = other.textures[i];
+
+            int length = other.counts[i] * SPRITE_COMPONENTS;
+
+            if (vc + length > vertices.length) {
+                vertices = Arrays.copyOf(vertices, Math.max(vc + length, vertices.length * 2));
+            }
+
+            System.arraycopy(other.vertices, other.firsts[i] * SPRITE_COMPONENTS, vertices, vc, length);
+            vc += length;
+            sprites += other.counts[i];
+        }
+
+        setBlend(previousSource, previousDestination);
+    }
+
+    /**
+     * Ends the recording, closing the last command and preparing the vertices to be uploaded.
+     */
+    public void end()
+    {
+        close(RenderStats.FlushReason.LAYER_END);
+
+        if (vertexBuffer == null || vertexBuffer.capacity() < vc) {
+            vertexBuffer = BufferUtils.createIntBuffer(vertices.length);
+        }
+
+        vertexBuffer.clear();
+        vertexBuffer.put(vertices, 0, vc);
+        vertexBuffer.flip();
+    }
+
+    private void close(RenderStats.FlushReason reason)
+    {
+        if (sprites == first) {
+            return;
+        }
+
+        if (commands == counts.length) {
+            int newLength = commands * 2;
+            textures = Arrays.copyOf(textures, newLength);
+            sources = Arrays.copyOf(sources, newLength);
+            destinations = Arrays.copyOf(destinations, newLength);
+            firsts = Arrays.copyOf(firsts, newLength);
+            counts = Arrays.copyOf(counts, newLength);
+            reasons = Arrays.copyOf(reasons, newLength);
+        }
+
+        textures[commands] = texture;
+        sources[commands] = source;
+        destinations[commands] = destination;
+        firsts[commands] = first;
+        counts[commands] = sprites - first;
+        reasons[commands] = reason;
+        commands++;
+
+        first = sprites;
+    }
+
+    /**
+     * @return draw commands recorded, only complete after {@link #end()}.
+     */
+    public int getCommandCount()
+    {
+        return commands;
+    }
+
+    public int getSpriteCount()
+    {
+        return sprites;
+    }
+
+    public Texture getTexture(int command)
+    {
+        return textures[command];
+    }
+
+    int getSource(int command)
+    {
+        return sources[command];
+    }
+
+    int getDestination(int command)
+    {
+        return destinations[command];
+    }
+
+    /**
+     * @return the first sprite drawn by the command.
+     */
+    int getFirst(int command)
+    {
+        return firsts[command];
+    }
+
+    /**
+     * @return the sprites drawn by the command.
+     */
+    public int getCount(int command)
+    {
+        return counts[command];
+    }
+
+    RenderStats.FlushReason getReason(int command)
+    {
+        return reasons[command];
+    }
+
+    IntBuffer getVertexBuffer()
+    {
+        return vertexBuffer;
+    }
+}
@@ -4,7 +4,65 @@ import com.moka.scene.entity.Component;
 
 public abstract class DrawableComponent extends Component
 {
+    private boolean changed = true;
+
     public abstract void render(Renderer renderer);
 
+    /**
+     * Tells the renderer that this drawable will look different, cached drawings that contain it
+     * (see {@link LayerCache}) have to be made again. Changes of the transform are noticed
+     * without this.
+     */
+    public void markChanged()
+    {
+        changed = true;
+    }
+
+    public boolean hasChanged()
+    {
+        return changed;
+    }
+
+    public void clearChanged()
+    {
+        changed = false;
+    }
+
     public abstract boolean shouldBatch();
+
+    /**
+     * Tells if the drawable can be recorded by another thread (see
+     * {@link Renderer#setParallelRecording}), which means that its render method only uses
+     * {@link Renderer#batch} and {@link Renderer#setBatchBlend} and changes nothing shared with
+     * other entities.
+     *
+     * @return true if the drawable can be recorded in parallel, false by default.
+     */
+    public boolean isRecordable()
+    {
+        return false;
+    }
+
+    /**
+     * Tells if the drawable is kept by the renderer in the retained geometry of its layer (see
+     * {@link StaticLayer}) instead of being drawn every frame. Static drawables are drawn before
+     * the rest of their layer, grouped by texture.
+     *
+     * @return true if the drawable is static, false by default.
+     */
+    public boolean isStatic()
+    {
+        return false;
+    }
+
+    /**
+     * Adds the drawable to the retained geometry of its layer, only called when
+     * {@link #isStatic()} is true.
+     *
+     * @param batch the static batch being built.
+     */
+    public void buildStatic(StaticBatch batch)
+    {
+
+    }
 }
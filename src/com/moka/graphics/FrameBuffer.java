@@ -0,0 +1,91 @@
+package com.moka.graphics;
+
+import com.moka.core.Moka;
+import com.moka.utils.JMokaException;
+
+import static org.lwjgl.opengl.GL11.GL_COLOR_BUFFER_BIT;
+
+/**
+ * Off-screen drawing target. While bound, everything drawn goes to its texture instead of the
+ * screen, the texture can then be drawn like any other.
+ *
+ * @author Shelo
+ */
+public class FrameBuffer
+{
+    private int fbo;
+    private Texture texture;
+    private RenderState state;
+
+    public FrameBuffer(int width, int height)
+    {
+        texture = new Texture(width, height, Texture.Filter.NEAREST);
+        state = Moka.getRenderer().getState();
+
+        fbo = Moka.getRenderer().getBackend().genFrameBuffer();
+        state.bindFrameBuffer(fbo);
+        boolean complete = Moka.getRenderer().getBackend().frameBufferTexture(texture.getId());
+        state.bindFrameBuffer(0);
+
+        if (!complete) {
+            dispose();
+            throw new JMokaException("Frame buffer incomplete.");
+        }
+    }
+
+    /**
+     * Starts drawing into this frame buffer, cleared to transparent.
+     */
+    public void begin()
+    {
+        RenderBackend backend = Moka.getRenderer().getBackend();
+
+        state.bindFrameBuffer(fbo);
+        backend.viewport(0, 0, texture.getWidth(), texture.getHeight());
+
+        backend.clearColor(0, 0, 0, 0);
+        backend.clear(GL_COLOR_BUFFER_BIT);
+    }
+
+    /**
+     * Goes back to drawing on the screen.
+     */
+    public void end()
+    {
+        Renderer renderer = Moka.getRenderer();
+
+        state.bindFrameBuffer(renderer.getScreenFrameBuffer());
+        renderer.getBackend().viewport(0, 0, renderer.getTargetWidth(), renderer.getTargetHeight());
+
+        Moka.getRenderer().updateClearColor();
+    }
+
+    public void dispose()
+    {
+        state.deleteFrameBuffer(fbo);
+        texture.dispose();
+    }
+
+    /**
+     * @return the OpenGL frame buffer object.
+     */
+    public int getId()
+    {
+        return fbo;
+    }
+
+    public Texture getTexture()
+    {
+        return texture;
+    }
+
+    public int getWidth()
+    {
+        return texture.getWidth();
+    }
+
+    public int getHeight()
+    {
+        return texture.getHeight();
+    }
+}
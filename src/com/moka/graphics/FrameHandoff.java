@@ -0,0 +1,108 @@
+package com.moka.graphics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffering between a thread producing frames and one presenting them, without locks.
+ * There are three slots: the producer always has one to draw into (the back slot), the consumer
+ * has the one being presented (the front slot), and the third is the last frame published.
+ * <p>
+ * Publishing never waits, the published frame replaces the previous one if it wasn't presented
+ * yet, which is counted as a dropped frame. The consumer always takes the newest frame, so a
+ * frame is never presented more than one frame late.
+ *
+ * @author Shelo
+ */
+public class FrameHandoff
+{
+    public static final int SLOTS = 3;
+
+    // the ready slot is packed with a flag telling if it has not been presented yet.
+    private static final int SLOT_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final AtomicInteger ready = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    private volatile long published;
+    private volatile long presented;
+    private volatile long dropped;
+
+    /**
+     * @return the slot the producer draws into, it only changes when publishing.
+     */
+    public int getBack()
+    {
+        return back;
+    }
+
+    /**
+     * Publishes the back slot as the newest frame, and takes a new back slot. Only called by the
+     * producer.
+     *
+     * @return true if the previous frame published was never presented.
+     */
+    public boolean publish()
+    {
+        int previous = ready.getAndSet(back | FRESH);
+        back = previous & SLOT_MASK;
+        published++;
+
+        if ((previous & FRESH) != 0) {
+            dropped++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Takes the newest frame as the front slot, if there's one that wasn't presented. Only called
+     * by the consumer.
+     *
+     * @return false if there's no new frame, the front slot does not change then.
+     */
+    public boolean acquire()
+    {
+        if ((ready.get() & FRESH) == 0) {
+            return false;
+        }
+
+        front = ready.getAndSet(front) & SLOT_MASK;
+        presented++;
+        return true;
+    }
+
+    /**
+     * @return the slot presented by the consumer.
+     */
+    public int getFront()
+    {
+        return front;
+    }
+
+    public long getPublished()
+    {
+        return published;
+    }
+
+    public long getPresented()
+    {
+        return presented;
+    }
+
+    /**
+     * @return frames replaced by a newer one before being presented.
+     */
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    @Override
+    public String toString()
+    {
+        return presented + "/" + published + " presented, " + dropped + " dropped";
+    }
+}
@@ -0,0 +1,106 @@
+package com.moka.graphics;
+
+import com.moka.scene.Scene;
+
+/**
+ * Measures the GPU time of every layer with time queries, without making the CPU wait for the
+ * GPU. Every frame uses one of three sets of queries in turn, and a frame's times are published
+ * once all of its queries are done, which is usually two frames later. Layers not timed in that
+ * frame get no time. If the GPU falls further behind, the oldest results are dropped.
+ *
+ * @author Shelo
+ */
+public class GpuTimer
+{
+    private static final int SETS = 3;
+
+    private final RenderBackend backend;
+    private final int[][] queries = new int[SETS][Scene.LAYERS];
+    private final boolean[][] issued = new boolean[SETS][Scene.LAYERS];
+    private final boolean[] pending = new boolean[SETS];
+    private int current = SETS - 1;
+
+    public GpuTimer(RenderBackend backend)
+    {
+        this.backend = backend;
+
+        for (int set = 0; set < SETS; set++) {
+            for (int layer = 0; layer < Scene.LAYERS; layer++) {
+                queries[set][layer] = backend.genQuery();
+            }
+        }
+    }
+
+    /**
+     * Publishes the times of the frames whose queries are done, oldest first, and starts a new
+     * frame with the oldest set of queries.
+     *
+     * @return true if new times were published.
+     */
+    public boolean newFrame(RenderStats stats)
+    {
+        boolean published = false;
+
+        for (int age = SETS - 1; age >= 0; age--) {
+            int set = (current - age + SETS) % SETS;
+
+            if (!pending[set]) {
+                continue;
+            }
+
+            // the GPU finishes frames in order, the newer ones can't be done either.
+            if (!isDone(set)) {
+                break;
+            }
+
+            for (int layer = 0; layer < Scene.LAYERS; layer++) {
+                double time = issued[set][layer] ? backend.getQueryResult(queries[set][layer]) / 1e6 : 0;
+                stats.setLayerGpuTime(layer, time);
+            }
+
+            pending[set] = false;
+            published = true;
+        }
+
+        // results still pending in the oldest set are lost, the GPU is too far behind.
+        current = (current + 1) % SETS;
+        pending[current] = true;
+
+        for (int layer = 0; layer < Scene.LAYERS; layer++) {
+            issued[current][layer] = false;
+        }
+
+        return published;
+    }
+
+    private boolean isDone(int set)
+    {
+        for (int layer = 0; layer < Scene.LAYERS; layer++) {
+            if (issued[set][layer] && !backend.isQueryResultAvailable(queries[set][layer])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void begin(int layer)
+    {
+        backend.beginTimeQuery(queries[current][layer]);
+    }
+
+    public void end(int layer)
+    {
+        backend.endTimeQuery();
+        issued[current][layer] = true;
+    }
+
+    public void dispose()
+    {
+        for (int set = 0; set < SETS; set++) {
+            for (int layer = 0; layer < Scene.LAYERS; layer++) {
+                backend.deleteQuery(queries[set][layer]);
+            }
+        }
+    }
+}
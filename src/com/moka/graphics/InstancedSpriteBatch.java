@@ -0,0 +1,235 @@
+package com.moka.graphics;
+
+import com.moka.core.Moka;
+import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Sprite batch that uses hardware instancing (OpenGL 3.3). A single static unit quad is kept on
+ * the GPU and every sprite only uploads its per instance attributes: position, size, rotation,
+ * texture rectangle and a packed color. Compared to {@link SpriteBatch} this moves the corner
+ * generation to the vertex shader, so the CPU writes 11 values per sprite instead of 32.
+ *
+ * @author Shelo
+ */
+public class InstancedSpriteBatch
+{
+    /**
+     * x, y, width, height, cos, sin, u, v, uWidth, vHeight, color.
+     */
+    private static final int COMPONENTS_PER_INSTANCE = 11;
+    private static final int INSTANCE_STRIDE = COMPONENTS_PER_INSTANCE * 4;
+    private static final int MAX_INSTANCES = 1000;
+    private static final int INSTANCE_BUFFER_SIZE = COMPONENTS_PER_INSTANCE * MAX_INSTANCES;
+
+    private int[] instances;
+    private IntBuffer instanceBuffer;
+
+    private RenderBackend backend;
+    private RenderStats stats;
+    private int vao;
+    private int quadVbo;
+    private int ibo;
+    private int instanceVbo;
+
+    private Texture texture;
+
+    // current instance buffer counter.
+    private int ic;
+
+    // current instance count.
+    private int count;
+
+    public InstancedSpriteBatch()
+    {
+        backend = Moka.getRenderer().getBackend();
+        stats = Moka.getRenderer().getStats();
+        instances = new int[INSTANCE_BUFFER_SIZE];
+        instanceBuffer = BufferUtils.createIntBuffer(INSTANCE_BUFFER_SIZE);
+
+        RenderState state = Moka.getRenderer().getState();
+
+        vao = backend.genVertexArray();
+        state.bindVertexArray(vao);
+
+        // static unit quad: corner position followed by its position inside the texture region,
+        // which is measured from the top of the texture.
+        quadVbo = backend.genBuffer();
+        state.bindBuffer(GL_ARRAY_BUFFER, quadVbo);
+        backend.bufferData(GL_ARRAY_BUFFER, (FloatBuffer) BufferUtils.createFloatBuffer(16).put(new float[]{
+                -0.5f, -0.5f, 0, 1,
+                -0.5f, 0.5f, 0, 0,
+                0.5f, 0.5f, 1, 0,
+                0.5f, -0.5f, 1, 1
+        }).flip(), GL_STATIC_DRAW);
+
+        state.enableVertexAttribArray(0);
+        backend.vertexAttribPointer(0, 4, GL_FLOAT, false, 4 * 4, 0);
+
+        ibo = backend.genBuffer();
+        state.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+        backend.bufferData(GL_ELEMENT_ARRAY_BUFFER, (IntBuffer) BufferUtils.createIntBuffer(6).put(new int[]{
+                0, 1, 2, 0, 2, 3
+        }).flip(), GL_STATIC_DRAW);
+
+        // streaming instance buffer, one entry per sprite.
+        instanceVbo = backend.genBuffer();
+        state.bindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        backend.bufferData(GL_ARRAY_BUFFER, INSTANCE_BUFFER_SIZE * 4, GL_STREAM_DRAW);
+
+        state.enableVertexAttribArray(1);
+        state.enableVertexAttribArray(2);
+        state.enableVertexAttribArray(3);
+        state.enableVertexAttribArray(4);
+        backend.vertexAttribPointer(1, 4, GL_FLOAT, false, INSTANCE_STRIDE, 0);
+        backend.vertexAttribPointer(2, 2, GL_FLOAT, false, INSTANCE_STRIDE, 4 * 4);
+        backend.vertexAttribPointer(3, 4, GL_FLOAT, false, INSTANCE_STRIDE, 6 * 4);
+        backend.vertexAttribPointer(4, 4, GL_UNSIGNED_BYTE, true, INSTANCE_STRIDE, 10 * 4);
+        backend.vertexAttribDivisor(1, 1);
+        backend.vertexAttribDivisor(2, 1);
+        backend.vertexAttribDivisor(3, 1);
+        backend.vertexAttribDivisor(4, 1);
+    }
+
+    public void draw(Texture texture, float x, float y, int width, int height, Color color)
+    {
+        draw(texture, x, y, width, height, color, 1, 0, 0, 0, 1, 1);
+    }
+
+    public void draw(Texture texture, float x, float y, int width, int height, Color color,
+                     Matrix3 rotation)
+    {
+        draw(texture, x, y, width, height, color, rotation.get(0, 0), rotation.get(1, 0),
+                0, 0, 1, 1);
+    }
+
+    public void draw(Texture texture, float x, float y, int width, int height, Color color,
+                     Matrix3 rotation, Rectangle region)
+    {
+        draw(texture, x, y, width, height, color, rotation.get(0, 0), rotation.get(1, 0),
+                region.left, region.top, region.width, region.height);
+    }
+
+    public void draw(Texture texture, float x, float y, int width, int height, Color color,
+                     Rectangle region)
+    {
+        draw(texture, x, y, width, height, color, 1, 0,
+                region.left, region.top, region.width, region.height);
+    }
+
+    /**
+     * Adds one sprite instance to the batch.
+     *
+     * @param cos       cosine of the rotation angle.
+     * @param sin       sine of the rotation angle.
+     * @param u         left texture coordinate.
+     * @param v         top texture coordinate.
+     * @param uWidth    width of the region in texture coordinates.
+     * @param vHeight   height of the region in texture coordinates.
+     */
+    public void draw(Texture texture, float x, float y, int width, int height, Color color,
+                     float cos, float sin, float u, float v, float uWidth, float vHeight)
+    {
+        // batch overflow, render all.
+        if (ic >= INSTANCE_BUFFER_SIZE) {
+            render(RenderStats.FlushReason.OVERFLOW);
+        }
+
+        // set the texture.
+        setTexture(texture);
+
+        instances[ic++] = Float.floatToRawIntBits(x);
+        instances[ic++] = Float.floatToRawIntBits(y);
+        instances[ic++] = Float.floatToRawIntBits(width);
+        instances[ic++] = Float.floatToRawIntBits(height);
+        instances[ic++] = Float.floatToRawIntBits(cos);
+        instances[ic++] = Float.floatToRawIntBits(sin);
+        instances[ic++] = Float.floatToRawIntBits(u);
+        instances[ic++] = Float.floatToRawIntBits(v);
+        instances[ic++] = Float.floatToRawIntBits(uWidth);
+        instances[ic++] = Float.floatToRawIntBits(vHeight);
+        instances[ic++] = color.toABGR();
+
+        count++;
+    }
+
+    private void setTexture(Texture texture)
+    {
+        if (this.texture != null && texture != this.texture) {
+            render(RenderStats.FlushReason.TEXTURE_CHANGE);
+        }
+
+        this.texture = texture;
+    }
+
+    private void clean()
+    {
+        texture = null;
+        ic = count = 0;
+    }
+
+    public void render()
+    {
+        render(RenderStats.FlushReason.FRAME_END);
+    }
+
+    /**
+     * Draws every sprite in the batch.
+     *
+     * @param reason why the batch is drawn now, for the statistics.
+     */
+    public void render(RenderStats.FlushReason reason)
+    {
+        // check if there's something to draw.
+        if (count == 0) {
+            return;
+        }
+
+        stats.countFlush(reason, count);
+
+        instanceBuffer.clear();
+        instanceBuffer.put(instances, 0, ic);
+        instanceBuffer.flip();
+
+        texture.bind();
+
+        RenderState state = Moka.getRenderer().getState();
+        state.bindVertexArray(vao);
+
+        // orphan the previous storage so the driver doesn't have to wait for the last draw.
+        state.bindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        backend.bufferData(GL_ARRAY_BUFFER, INSTANCE_BUFFER_SIZE * 4, GL_STREAM_DRAW);
+        backend.bufferSubData(GL_ARRAY_BUFFER, 0, instanceBuffer);
+
+        backend.drawElementsInstanced(6, 0, count);
+        stats.countDraw(count * 4);
+
+        clean();
+    }
+
+    public void dispose()
+    {
+        RenderState state = Moka.getRenderer().getState();
+        state.deleteBuffer(quadVbo);
+        state.deleteBuffer(ibo);
+        state.deleteBuffer(instanceVbo);
+        state.deleteVertexArray(vao);
+    }
+
+    public int getSpritesInBatch()
+    {
+        return count;
+    }
+
+    public Texture getCurrentTexture()
+    {
+        return texture;
+    }
+}
@@ -0,0 +1,133 @@
+package com.moka.graphics;
+
+import com.moka.components.Camera;
+import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
+import com.moka.scene.entity.Entity;
+
+import java.util.List;
+
+/**
+ * Keeps a layer of the scene already drawn in a {@link FrameBuffer} of the size of the screen, so
+ * the layer can be drawn as a single quad while nothing in it changes.
+ * <p>
+ * The picture is taken from the camera's point of view, so moving the camera makes the renderer
+ * draw the layer again. Layers that scroll with the camera should not be cached.
+ * <p>
+ * The colors in the cache are already multiplied by their alpha, so it must be drawn with
+ * {@code GL_ONE, GL_ONE_MINUS_SRC_ALPHA}.
+ *
+ * @author Shelo
+ */
+public class LayerCache
+{
+    private FrameBuffer frameBuffer;
+    private final Matrix3 view = new Matrix3();
+    private final Rectangle bounds = new Rectangle();
+    private boolean valid;
+    private final TransformVersions drawn = new TransformVersions();
+
+    /**
+     * Forces the layer to be drawn again on the next frame.
+     */
+    public void invalidate()
+    {
+        valid = false;
+    }
+
+    /**
+     * @return true if the cached picture can be used with the given camera on a screen of the
+     * given size.
+     */
+    public boolean isValid(Camera camera, int width, int height)
+    {
+        return valid && frameBuffer != null && frameBuffer.getWidth() == width
+                && frameBuffer.getHeight() == height && view.equals(camera.getProjectedView());
+    }
+
+    /**
+     * @return true if a drawable of the layer changed, or was moved, rotated or resized, since the
+     * layer was drawn into the cache, or the drawables are not the same ones.
+     */
+    public boolean hasChanged(List<Entity> entities)
+    {
+        int count = 0;
+
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+
+            if (entity.hasDrawable()) {
+                if (entity.getDrawable().hasChanged() || drawn.hasChanged(count, entity)) {
+                    return true;
+                }
+
+                count++;
+            }
+        }
+
+        return count != drawn.getCount();
+    }
+
+    /**
+     * Starts drawing the layer into the cache.
+     */
+    public void begin(Camera camera, int width, int height)
+    {
+        if (frameBuffer == null || frameBuffer.getWidth() != width || frameBuffer.getHeight() != height) {
+            dispose();
+            frameBuffer = new FrameBuffer(width, height);
+        }
+
+        view.set(camera.getProjectedView());
+        camera.getWorldBounds(bounds);
+
+        frameBuffer.begin();
+    }
+
+    /**
+     * Finishes drawing the layer, the cache is valid after this.
+     *
+     * @param entities the entities of the layer, remembered as they are now.
+     */
+    public void end(List<Entity> entities)
+    {
+        frameBuffer.end();
+        valid = true;
+
+        int count = 0;
+
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+
+            if (entity.hasDrawable()) {
+                entity.getDrawable().clearChanged();
+                drawn.set(count++, entity);
+            }
+        }
+
+        drawn.setCount(count);
+    }
+
+    /**
+     * @return the area of the world that the cached picture shows.
+     */
+    public Rectangle getBounds()
+    {
+        return bounds;
+    }
+
+    public Texture getTexture()
+    {
+        return frameBuffer.getTexture();
+    }
+
+    public void dispose()
+    {
+        if (frameBuffer != null) {
+            frameBuffer.dispose();
+            frameBuffer = null;
+        }
+
+        valid = false;
+    }
+}
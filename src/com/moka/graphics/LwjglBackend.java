@@ -0,0 +1,476 @@
+package com.moka.graphics;
+
+import com.moka.utils.JMokaException;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.ARBGetProgramBinary;
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.stb.STBImage;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL14.glBlendFuncSeparate;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjectui64;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+/**
+ * The OpenGL backend, it forwards every call to LWJGL.
+ *
+ * @author Shelo
+ */
+public class LwjglBackend implements RenderBackend
+{
+    // 0 while unknown, it can only be asked with a context.
+    private int programBinary;
+
+    @Override
+    public int genBuffer()
+    {
+        return glGenBuffers();
+    }
+
+    @Override
+    public int genVertexArray()
+    {
+        return glGenVertexArrays();
+    }
+
+    @Override
+    public int genTexture()
+    {
+        return glGenTextures();
+    }
+
+    @Override
+    public int genFrameBuffer()
+    {
+        return glGenFramebuffers();
+    }
+
+    @Override
+    public void deleteBuffer(int buffer)
+    {
+        glDeleteBuffers(buffer);
+    }
+
+    @Override
+    public void deleteVertexArray(int vertexArray)
+    {
+        glDeleteVertexArrays(vertexArray);
+    }
+
+    @Override
+    public void deleteTexture(int texture)
+    {
+        glDeleteTextures(texture);
+    }
+
+    @Override
+    public void deleteFrameBuffer(int frameBuffer)
+    {
+        glDeleteFramebuffers(frameBuffer);
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer)
+    {
+        glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void bindVertexArray(int vertexArray)
+    {
+        glBindVertexArray(vertexArray);
+    }
+
+    @Override
+    public void activeTexture(int unit)
+    {
+        glActiveTexture(GL_TEXTURE0 + unit);
+    }
+
+    @Override
+    public void bindTexture(int texture)
+    {
+        glBindTexture(GL_TEXTURE_2D, texture);
+    }
+
+    @Override
+    public void bindFrameBuffer(int frameBuffer)
+    {
+        glBindFramebuffer(GL_FRAMEBUFFER, frameBuffer);
+    }
+
+    @Override
+    public void useProgram(int program)
+    {
+        glUseProgram(program);
+    }
+
+    @Override
+    public void blendFunc(int source, int destination)
+    {
+        glBlendFunc(source, destination);
+    }
+
+    @Override
+    public void blendFuncSeparate(int source, int destination, int alphaSource, int alphaDestination)
+    {
+        glBlendFuncSeparate(source, destination, alphaSource, alphaDestination);
+    }
+
+    @Override
+    public void enable(int capability)
+    {
+        glEnable(capability);
+    }
+
+    @Override
+    public void disable(int capability)
+    {
+        glDisable(capability);
+    }
+
+    @Override
+    public void cullFace(int mode)
+    {
+        glCullFace(mode);
+    }
+
+    @Override
+    public void frontFace(int mode)
+    {
+        glFrontFace(mode);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height)
+    {
+        glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a)
+    {
+        glClearColor(r, g, b, a);
+    }
+
+    @Override
+    public void clear(int mask)
+    {
+        glClear(mask);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index)
+    {
+        glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset)
+    {
+        glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor)
+    {
+        glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void bufferData(int target, FloatBuffer data, int usage)
+    {
+        glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, IntBuffer data, int usage)
+    {
+        glBufferData(target, data, usage);
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage)
+    {
+        glBufferData(target, size, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, IntBuffer data)
+    {
+        glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void texParameter(int name, int value)
+    {
+        glTexParameteri(GL_TEXTURE_2D, name, value);
+    }
+
+    @Override
+    public void texImage(int width, int height, ByteBuffer pixels)
+    {
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+    }
+
+    @Override
+    public ByteBuffer loadImage(String filePath, IntBuffer width, IntBuffer height)
+    {
+        IntBuffer components = BufferUtils.createIntBuffer(1);
+        return STBImage.stbi_load(filePath, width, height, components, 4);
+    }
+
+    @Override
+    public void freeImage(ByteBuffer pixels)
+    {
+        STBImage.stbi_image_free(pixels);
+    }
+
+    @Override
+    public void texSubImage(int y, int width, int height, long offset)
+    {
+        glTexSubImage2D(GL_TEXTURE_2D, 0, 0, y, width, height, GL_RGBA, GL_UNSIGNED_BYTE, offset);
+    }
+
+    @Override
+    public ByteBuffer mapBuffer(int target, long size)
+    {
+        return glMapBufferRange(target, 0, size, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT);
+    }
+
+    @Override
+    public void unmapBuffer(int target)
+    {
+        glUnmapBuffer(target);
+    }
+
+    @Override
+    public boolean frameBufferTexture(int texture)
+    {
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, texture, 0);
+        return glCheckFramebufferStatus(GL_FRAMEBUFFER) == GL_FRAMEBUFFER_COMPLETE;
+    }
+
+    @Override
+    public void blitFrameBuffer(int source, int sourceWidth, int sourceHeight, int destination, int width,
+                                int height)
+    {
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, source);
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, destination);
+        glBlitFramebuffer(0, 0, sourceWidth, sourceHeight, 0, 0, width, height, GL_COLOR_BUFFER_BIT, GL_LINEAR);
+        glBindFramebuffer(GL_FRAMEBUFFER, destination);
+    }
+
+    @Override
+    public void drawElements(int count, long offset)
+    {
+        glDrawElements(GL_TRIANGLES, count, GL_UNSIGNED_INT, offset);
+    }
+
+    @Override
+    public void drawElementsInstanced(int count, long offset, int instances)
+    {
+        glDrawElementsInstanced(GL_TRIANGLES, count, GL_UNSIGNED_INT, offset, instances);
+    }
+
+    @Override
+    public int createProgram(String vertexCode, String fragmentCode)
+    {
+        int program = glCreateProgram();
+        attachShader(program, vertexCode, GL_VERTEX_SHADER);
+        attachShader(program, fragmentCode, GL_FRAGMENT_SHADER);
+
+        // some drivers only keep the binary if asked before linking.
+        if (supportsProgramBinary() && GL.getCapabilities().OpenGL41) {
+            GL41.glProgramParameteri(program, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        } else if (supportsProgramBinary()) {
+            ARBGetProgramBinary.glProgramParameteri(program, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
+
+        // link and check errors.
+        glLinkProgram(program);
+
+        if (glGetProgrami(program, GL_LINK_STATUS) == 0) {
+            throw new JMokaException(glGetProgramInfoLog(program, 1024));
+        }
+
+        return program;
+    }
+
+    @Override
+    public int createProgram(int format, ByteBuffer binary)
+    {
+        int program = glCreateProgram();
+
+        if (GL.getCapabilities().OpenGL41) {
+            GL41.glProgramBinary(program, format, binary);
+        } else {
+            ARBGetProgramBinary.glProgramBinary(program, format, binary);
+        }
+
+        // binaries of another driver version are rejected as a failed link.
+        if (glGetProgrami(program, GL_LINK_STATUS) == 0) {
+            glDeleteProgram(program);
+            return 0;
+        }
+
+        return program;
+    }
+
+    @Override
+    public boolean supportsProgramBinary()
+    {
+        if (programBinary == 0) {
+            ContextCapabilities capabilities = GL.getCapabilities();
+            boolean supported = (capabilities.OpenGL41 || capabilities.GL_ARB_get_program_binary)
+                    && glGetInteger(GL41.GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+
+            programBinary = supported ? 1 : -1;
+        }
+
+        return programBinary == 1;
+    }
+
+    @Override
+    public ByteBuffer getProgramBinary(int program, IntBuffer format)
+    {
+        int length = glGetProgrami(program, GL41.GL_PROGRAM_BINARY_LENGTH);
+
+        if (length == 0) {
+            return null;
+        }
+
+        if (GL.getCapabilities().OpenGL41) {
+            return GL41.glGetProgramBinary(program, length, format);
+        }
+
+        return ARBGetProgramBinary.glGetProgramBinary(program, length, format);
+    }
+
+    @Override
+    public String getDriverInfo()
+    {
+        return glGetString(GL_VENDOR) + " " + glGetString(GL_RENDERER) + " " + glGetString(GL_VERSION);
+    }
+
+    @Override
+    public int genQuery()
+    {
+        return glGenQueries();
+    }
+
+    @Override
+    public void deleteQuery(int query)
+    {
+        glDeleteQueries(query);
+    }
+
+    @Override
+    public void beginTimeQuery(int query)
+    {
+        glBeginQuery(GL_TIME_ELAPSED, query);
+    }
+
+    @Override
+    public void endTimeQuery()
+    {
+        glEndQuery(GL_TIME_ELAPSED);
+    }
+
+    @Override
+    public boolean isQueryResultAvailable(int query)
+    {
+        return glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) != 0;
+    }
+
+    @Override
+    public long getQueryResult(int query)
+    {
+        return glGetQueryObjectui64(query, GL_QUERY_RESULT);
+    }
+
+    private void attachShader(int program, String code, int type)
+    {
+        int shader = glCreateShader(type);
+
+        if (shader == 0) {
+            throw new JMokaException("Shader creation failed.");
+        }
+
+        glShaderSource(shader, code);
+        glCompileShader(shader);
+
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == 0) {
+            throw new JMokaException("Shader compile error: " + glGetShaderInfoLog(shader, 1024));
+        }
+
+        glAttachShader(program, shader);
+    }
+
+    @Override
+    public String validateProgram(int program)
+    {
+        glValidateProgram(program);
+
+        if (glGetProgrami(program, GL_VALIDATE_STATUS) == 0) {
+            return glGetProgramInfoLog(program, 1024);
+        }
+
+        return null;
+    }
+
+    @Override
+    public int getUniformLocation(int program, String name)
+    {
+        return glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public void uniform(int location, float x)
+    {
+        glUniform1f(location, x);
+    }
+
+    @Override
+    public void uniform(int location, float x, float y)
+    {
+        glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z)
+    {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z, float w)
+    {
+        glUniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix3(int location, FloatBuffer matrix)
+    {
+        glUniformMatrix3fv(location, false, matrix);
+    }
+
+    @Override
+    public void uniformMatrix4(int location, FloatBuffer matrix)
+    {
+        glUniformMatrix4fv(location, false, matrix);
+    }
+}
@@ -0,0 +1,155 @@
+package com.moka.graphics;
+
+import java.util.stream.IntStream;
+
+/**
+ * Fixed capacity storage for particles. Every property lives in its own primitive array (a
+ * structure of arrays), so updating all the particles is a tight loop over contiguous memory and
+ * no object is created per particle.
+ * <p>
+ * Alive particles are always packed at the start of the arrays, a dead particle is replaced by the
+ * last one, so the order of the particles is not kept.
+ *
+ * @author Shelo
+ */
+public class ParticlePool
+{
+    /**
+     * Below this amount of particles the update is never split between threads.
+     */
+    public static final int PARALLEL_THRESHOLD = 8192;
+    private static final int PARALLEL_SLICE = 4096;
+
+    public final float[] x;
+    public final float[] y;
+    public final float[] vx;
+    public final float[] vy;
+    public final float[] age;
+    public final float[] life;
+    public final float[] size;
+
+    private final int capacity;
+    private int count;
+
+    public ParticlePool(int capacity)
+    {
+        this.capacity = capacity;
+
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        age = new float[capacity];
+        life = new float[capacity];
+        size = new float[capacity];
+    }
+
+    /**
+     * Adds a particle.
+     *
+     * @param life  seconds that the particle will live.
+     * @return false if the pool is full and the particle was discarded.
+     */
+    public boolean spawn(float x, float y, float vx, float vy, float life, float size)
+    {
+        if (count == capacity) {
+            return false;
+        }
+
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.age[i] = 0;
+        this.life[i] = life;
+        this.size[i] = size;
+        return true;
+    }
+
+    /**
+     * Moves and ages every particle, then removes the ones that died.
+     *
+     * @param delta     seconds since the last update.
+     * @param gravityX  horizontal acceleration applied to every particle.
+     * @param gravityY  vertical acceleration applied to every particle.
+     * @param parallel  split the integration between threads when there are many particles.
+     */
+    public void update(final float delta, final float gravityX, final float gravityY, boolean parallel)
+    {
+        if (parallel && count >= PARALLEL_THRESHOLD) {
+            final int slices = (count + PARALLEL_SLICE - 1) / PARALLEL_SLICE;
+            final int end = count;
+
+            IntStream.range(0, slices).parallel().forEach(slice -> integrate(slice * PARALLEL_SLICE,
+                    Math.min(end, (slice + 1) * PARALLEL_SLICE), delta, gravityX, gravityY));
+        } else {
+            integrate(0, count, delta, gravityX, gravityY);
+        }
+
+        removeDead();
+    }
+
+    private void integrate(int from, int to, float delta, float gravityX, float gravityY)
+    {
+        for (int i = from; i < to; i++) {
+            vx[i] += gravityX * delta;
+            vy[i] += gravityY * delta;
+            x[i] += vx[i] * delta;
+            y[i] += vy[i] * delta;
+            age[i] += delta;
+        }
+    }
+
+    private void removeDead()
+    {
+        int i = 0;
+
+        while (i < count) {
+            if (age[i] >= life[i]) {
+                int last = --count;
+
+                x[i] = x[last];
+                y[i] = y[last];
+                vx[i] = vx[last];
+                vy[i] = vy[last];
+                age[i] = age[last];
+                life[i] = life[last];
+                size[i] = size[last];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Kills every particle.
+     */
+    public void clear()
+    {
+        count = 0;
+    }
+
+    /**
+     * @return how far in its life the particle is, from 0 when spawned to 1 when it dies.
+     */
+    public float getProgress(int index)
+    {
+        return age[index] / life[index];
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public boolean isFull()
+    {
+        return count == capacity;
+    }
+}
@@ -1,25 +1,77 @@
 package com.moka.graphics;
 
+import com.moka.core.Moka;
 import com.moka.math.Rectangle;
 import com.moka.math.Vector2;
 import com.moka.utils.CoreUtil;
+import com.moka.utils.JMokaException;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.HashMap;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
-import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
-import static org.lwjgl.opengl.GL30.*;
 
 public class Quad
 {
     private static final int VERTICES_COUNT = 4;
     private static final int INDICES_COUNT = 6;
 
+    /**
+     * Quads shared between sprites, one per distinct clipping rectangle.
+     */
+    private static final HashMap<Rectangle, Quad> SHARED = new HashMap<>();
+
+    private final Rectangle clipRect;
+    private final boolean dynamic;
     private Vertex[] vertices;
+    private FloatBuffer vertexBuffer;
+    private int references;
+    private RenderBackend backend;
     private int vao;
+    private int vbo;
+    private int ibo;
+
+    /**
+     * Returns the shared quad for the given clipping rectangle, creating it if no one is using it.
+     * Every call has to be matched with a call to {@link #release()}.
+     *
+     * @param clipRect  the clipping rectangle.
+     * @return the shared quad.
+     */
+    public static Quad obtain(Rectangle clipRect)
+    {
+        Quad quad = SHARED.get(clipRect);
+
+        if (quad == null) {
+            quad = new Quad(clipRect);
+            SHARED.put(quad.clipRect, quad);
+        }
+
+        quad.references++;
+        return quad;
+    }
+
+    /**
+     * Creates a quad owned by a single user whose region can change, see
+     * {@link #setRegion(Rectangle)}. It's never shared and has to be disposed by its owner.
+     *
+     * @param clipRect  the initial clipping rectangle.
+     * @return the new quad.
+     */
+    public static Quad createDynamic(Rectangle clipRect)
+    {
+        return new Quad(clipRect, true);
+    }
+
+    /**
+     * @return how many shared quads are alive, each one owns three OpenGL objects.
+     */
+    public static int getSharedCount()
+    {
+        return SHARED.size();
+    }
 
     /**
      * Creates a new Quad with a clipping rectangle in the form of left, top, width, height.
@@ -28,13 +80,23 @@ public class Quad
      */
     public Quad(Rectangle clipRect)
     {
+        this(clipRect, false);
+    }
+
+    private Quad(Rectangle clipRect, boolean dynamic)
+    {
+        this.clipRect = clipRect.cpy();
+        this.dynamic = dynamic;
+        backend = Moka.getRenderer().getBackend();
+        RenderState state = Moka.getRenderer().getState();
+
         // create and bind the buffer.
-        vao = glGenVertexArrays();
-        glBindVertexArray(vao);
+        vao = backend.genVertexArray();
+        state.bindVertexArray(vao);
 
         // create sub buffers.
-        int vbo = glGenBuffers();
-        int ibo = glGenBuffers();
+        vbo = backend.genBuffer();
+        ibo = backend.genBuffer();
 
         // generate vertices.
         // texture is drawn flipped on porpoise.
@@ -46,7 +108,7 @@ public class Quad
         };
 
         // populate vertexBuffer.
-        FloatBuffer vertexBuffer = CoreUtil.genBuffer(vertices);
+        vertexBuffer = CoreUtil.genBuffer(vertices);
 
         // populate indexBuffer.
         IntBuffer indexBuffer = CoreUtil.genBuffer(new int[]{
@@ -55,34 +117,99 @@ public class Quad
 
         // Vertex Buffer Object.
         // positions and texCoords buffer.
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
+        state.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        backend.bufferData(GL_ARRAY_BUFFER, vertexBuffer, dynamic ? GL_DYNAMIC_DRAW : GL_STATIC_DRAW);
+
+        // only dynamic quads upload their vertices again.
+        if (!dynamic) {
+            vertexBuffer = null;
+        }
 
         // populate VertexAttribArrays 0 (position) and 1 (texCoords).
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(0, 2, GL_FLOAT, false, Vertex.SIZE * 4, 0);
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, Vertex.SIZE * 4, 2 * 4);
+        state.enableVertexAttribArray(0);
+        state.enableVertexAttribArray(1);
+        backend.vertexAttribPointer(0, 2, GL_FLOAT, false, Vertex.SIZE * 4, 0);
+        backend.vertexAttribPointer(1, 2, GL_FLOAT, false, Vertex.SIZE * 4, 2 * 4);
 
         // Vertex Index Buffer.
         // indices buffer.
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+        state.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+        backend.bufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+    }
+
+    /**
+     * Changes the region of the texture drawn by a dynamic quad, only its texture coordinates are
+     * uploaded again, no OpenGL object is created.
+     *
+     * @param region the new clipping rectangle.
+     */
+    public void setRegion(Rectangle region)
+    {
+        if (!dynamic) {
+            throw new JMokaException("Only dynamic quads can change their region, shared ones are used by other sprites.");
+        }
+
+        clipRect.set(region);
+
+        vertices[0].setTexCoords(region.left, region.top + region.height);
+        vertices[1].setTexCoords(region.left, region.top);
+        vertices[2].setTexCoords(region.left + region.width, region.top);
+        vertices[3].setTexCoords(region.left + region.width, region.top + region.height);
+
+        vertexBuffer.clear();
+        for (Vertex vertex : vertices) {
+            vertexBuffer.put(vertex.getX()).put(vertex.getY()).put(vertex.getS()).put(vertex.getT());
+        }
+        vertexBuffer.flip();
 
-        // unbind Vertex Array.
-        glBindVertexArray(0);
+        Moka.getRenderer().getState().bindBuffer(GL_ARRAY_BUFFER, vbo);
+        backend.bufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_DYNAMIC_DRAW);
+    }
+
+    public boolean isDynamic()
+    {
+        return dynamic;
     }
 
     public void draw()
     {
-        glBindVertexArray(vao);
-        glDrawElements(GL_TRIANGLES, INDICES_COUNT, GL_UNSIGNED_INT, 0);
-        glBindVertexArray(0);
+        // the vertex array is left bound, consecutive draws of the same quad don't rebind it.
+        Moka.getRenderer().getState().bindVertexArray(vao);
+        backend.drawElements(INDICES_COUNT, 0);
+        Moka.getRenderer().getStats().countDraw(VERTICES_COUNT);
+    }
+
+    /**
+     * Stops using a quad given by {@link #obtain(Rectangle)}, the last user disposes it.
+     */
+    public void release()
+    {
+        if (references <= 0) {
+            return;
+        }
+
+        references--;
+
+        if (references == 0) {
+            SHARED.remove(clipRect);
+            dispose();
+        }
     }
 
+    /**
+     * Deletes a quad that is not shared, like the ones from {@link #createDynamic(Rectangle)}.
+     * Shared quads are deleted by their last {@link #release()}.
+     */
     public void dispose()
     {
-        glDeleteVertexArrays(vao);
+        if (references > 0) {
+            throw new JMokaException("Quad.dispose: the quad is shared, release it instead.");
+        }
+
+        RenderState state = Moka.getRenderer().getState();
+        state.deleteBuffer(vbo);
+        state.deleteBuffer(ibo);
+        state.deleteVertexArray(vao);
     }
 
     public Vertex[] getVertices()
@@ -0,0 +1,561 @@
+package com.moka.graphics;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Backend that draws nothing and only counts what it is asked to do: draw calls, bytes uploaded
+ * and state changes. It doesn't need a GPU nor a window, so the cost of a scene can be measured
+ * in tests, for example to check that a change to the batching doesn't add draw calls.
+ * <p>
+ * Every object created gets a different name, starting at 1, as OpenGL does. Images are not
+ * read: every file loads as a blank image of {@link #IMAGE_SIZE} pixels per side. Time queries
+ * measure the time given with {@link #setQueryTime}, and are done at once unless they are
+ * delayed (see {@link #setQueriesDelayed}).
+ *
+ * @author Shelo
+ */
+public class RecordingBackend implements RenderBackend
+{
+    public static final int IMAGE_SIZE = 16;
+
+    private int nextName = 1;
+
+    private int drawCalls;
+    private long indicesDrawn;
+    private long instancesDrawn;
+    private long bytesUploaded;
+    private int stateChanges;
+    private int uniformUploads;
+    private int blits;
+    private ByteBuffer mapped;
+    private int programBinariesLoaded;
+    private int imagesLoaded;
+    private int alphaBlendSource = -1;
+    private int alphaBlendDestination = -1;
+
+    private final HashMap<Integer, Long> queryResults = new HashMap<>();
+    private final HashSet<Integer> unfinishedQueries = new HashSet<>();
+    private int activeQuery;
+    private long queryTime;
+    private boolean queriesDelayed;
+
+    /**
+     * Sets every counter back to zero.
+     */
+    public void reset()
+    {
+        drawCalls = 0;
+        indicesDrawn = instancesDrawn = bytesUploaded = 0;
+        stateChanges = uniformUploads = blits = imagesLoaded = 0;
+    }
+
+    @Override
+    public int genBuffer()
+    {
+        return nextName++;
+    }
+
+    @Override
+    public int genVertexArray()
+    {
+        return nextName++;
+    }
+
+    @Override
+    public int genTexture()
+    {
+        return nextName++;
+    }
+
+    @Override
+    public int genFrameBuffer()
+    {
+        return nextName++;
+    }
+
+    @Override
+    public void deleteBuffer(int buffer)
+    {
+    }
+
+    @Override
+    public void deleteVertexArray(int vertexArray)
+    {
+    }
+
+    @Override
+    public void deleteTexture(int texture)
+    {
+    }
+
+    @Override
+    public void deleteFrameBuffer(int frameBuffer)
+    {
+    }
+
+    @Override
+    public void bindBuffer(int target, int buffer)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void bindVertexArray(int vertexArray)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void activeTexture(int unit)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void bindTexture(int texture)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void bindFrameBuffer(int frameBuffer)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void useProgram(int program)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void blendFunc(int source, int destination)
+    {
+        stateChanges++;
+        alphaBlendSource = source;
+        alphaBlendDestination = destination;
+    }
+
+    @Override
+    public void blendFuncSeparate(int source, int destination, int alphaSource, int alphaDestination)
+    {
+        stateChanges++;
+        alphaBlendSource = alphaSource;
+        alphaBlendDestination = alphaDestination;
+    }
+
+    @Override
+    public void enable(int capability)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void disable(int capability)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void cullFace(int mode)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void frontFace(int mode)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void clearColor(float r, float g, float b, float a)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void clear(int mask)
+    {
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void bufferData(int target, FloatBuffer data, int usage)
+    {
+        bytesUploaded += data.remaining() * 4L;
+    }
+
+    @Override
+    public void bufferData(int target, IntBuffer data, int usage)
+    {
+        bytesUploaded += data.remaining() * 4L;
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage)
+    {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, IntBuffer data)
+    {
+        bytesUploaded += data.remaining() * 4L;
+    }
+
+    @Override
+    public void texParameter(int name, int value)
+    {
+        stateChanges++;
+    }
+
+    @Override
+    public void texImage(int width, int height, ByteBuffer pixels)
+    {
+        if (pixels != null) {
+            bytesUploaded += pixels.remaining();
+        }
+    }
+
+    @Override
+    public ByteBuffer loadImage(String filePath, IntBuffer width, IntBuffer height)
+    {
+        imagesLoaded++;
+        width.put(0, IMAGE_SIZE);
+        height.put(0, IMAGE_SIZE);
+        return BufferUtils.createByteBuffer(IMAGE_SIZE * IMAGE_SIZE * 4);
+    }
+
+    @Override
+    public void freeImage(ByteBuffer pixels)
+    {
+    }
+
+    @Override
+    public void texSubImage(int y, int width, int height, long offset)
+    {
+        bytesUploaded += (long) width * height * 4;
+    }
+
+    @Override
+    public ByteBuffer mapBuffer(int target, long size)
+    {
+        if (mapped == null || mapped.capacity() < size) {
+            mapped = BufferUtils.createByteBuffer((int) size);
+        }
+
+        mapped.clear();
+        mapped.limit((int) size);
+        return mapped;
+    }
+
+    @Override
+    public void unmapBuffer(int target)
+    {
+    }
+
+    @Override
+    public boolean frameBufferTexture(int texture)
+    {
+        return true;
+    }
+
+    @Override
+    public void blitFrameBuffer(int source, int sourceWidth, int sourceHeight, int destination, int width,
+                                int height)
+    {
+        blits++;
+    }
+
+    @Override
+    public void drawElements(int count, long offset)
+    {
+        drawCalls++;
+        indicesDrawn += count;
+    }
+
+    @Override
+    public void drawElementsInstanced(int count, long offset, int instances)
+    {
+        drawCalls++;
+        indicesDrawn += (long) count * instances;
+        instancesDrawn += instances;
+    }
+
+    @Override
+    public int createProgram(String vertexCode, String fragmentCode)
+    {
+        return nextName++;
+    }
+
+    /**
+     * Binaries are made of the name of the program, with format 1.
+     */
+    @Override
+    public int createProgram(int format, ByteBuffer binary)
+    {
+        if (format != 1 || binary.remaining() != 4) {
+            return 0;
+        }
+
+        programBinariesLoaded++;
+        return nextName++;
+    }
+
+    @Override
+    public boolean supportsProgramBinary()
+    {
+        return true;
+    }
+
+    @Override
+    public ByteBuffer getProgramBinary(int program, IntBuffer format)
+    {
+        format.put(0, 1);
+
+        ByteBuffer binary = BufferUtils.createByteBuffer(4);
+        binary.putInt(0, program);
+        return binary;
+    }
+
+    @Override
+    public String getDriverInfo()
+    {
+        return "Recording";
+    }
+
+    @Override
+    public int genQuery()
+    {
+        return nextName++;
+    }
+
+    @Override
+    public void deleteQuery(int query)
+    {
+    }
+
+    @Override
+    public void beginTimeQuery(int query)
+    {
+        activeQuery = query;
+    }
+
+    @Override
+    public void endTimeQuery()
+    {
+        queryResults.put(activeQuery, queryTime);
+
+        if (queriesDelayed) {
+            unfinishedQueries.add(activeQuery);
+        } else {
+            unfinishedQueries.remove(activeQuery);
+        }
+    }
+
+    @Override
+    public boolean isQueryResultAvailable(int query)
+    {
+        return !unfinishedQueries.contains(query);
+    }
+
+    @Override
+    public long getQueryResult(int query)
+    {
+        Long result = queryResults.get(query);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * @param nanoseconds time measured by the time queries ended after this.
+     */
+    public void setQueryTime(long nanoseconds)
+    {
+        queryTime = nanoseconds;
+    }
+
+    /**
+     * @param queriesDelayed true to keep the time queries unfinished until {@link #finishQueries()},
+     *                       as a GPU running behind the CPU does.
+     */
+    public void setQueriesDelayed(boolean queriesDelayed)
+    {
+        this.queriesDelayed = queriesDelayed;
+    }
+
+    /**
+     * Finishes every time query ended so far.
+     */
+    public void finishQueries()
+    {
+        unfinishedQueries.clear();
+    }
+
+    @Override
+    public String validateProgram(int program)
+    {
+        return null;
+    }
+
+    @Override
+    public int getUniformLocation(int program, String name)
+    {
+        return nextName++;
+    }
+
+    @Override
+    public void uniform(int location, float x)
+    {
+        uniformUploads++;
+    }
+
+    @Override
+    public void uniform(int location, float x, float y)
+    {
+        uniformUploads++;
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z)
+    {
+        uniformUploads++;
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z, float w)
+    {
+        uniformUploads++;
+    }
+
+    @Override
+    public void uniformMatrix3(int location, FloatBuffer matrix)
+    {
+        uniformUploads++;
+        bytesUploaded += matrix.remaining() * 4L;
+    }
+
+    @Override
+    public void uniformMatrix4(int location, FloatBuffer matrix)
+    {
+        uniformUploads++;
+        bytesUploaded += matrix.remaining() * 4L;
+    }
+
+    public int getDrawCalls()
+    {
+        return drawCalls;
+    }
+
+    /**
+     * @return indices drawn, counting every instance of instanced draws.
+     */
+    public long getIndicesDrawn()
+    {
+        return indicesDrawn;
+    }
+
+    public long getInstancesDrawn()
+    {
+        return instancesDrawn;
+    }
+
+    /**
+     * @return bytes sent to buffers, textures and matrix uniforms.
+     */
+    public long getBytesUploaded()
+    {
+        return bytesUploaded;
+    }
+
+    /**
+     * @return state changes that reached the backend, redundant ones are filtered before.
+     */
+    public int getStateChanges()
+    {
+        return stateChanges;
+    }
+
+    /**
+     * @return programs created from binaries instead of being compiled.
+     */
+    public int getProgramBinariesLoaded()
+    {
+        return programBinariesLoaded;
+    }
+
+    /**
+     * @return frame buffers copied into other ones.
+     */
+    public int getBlits()
+    {
+        return blits;
+    }
+
+    public int getUniformUploads()
+    {
+        return uniformUploads;
+    }
+
+    /**
+     * @return source factor for the alpha of the last blend function set, -1 if none was.
+     */
+    public int getAlphaBlendSource()
+    {
+        return alphaBlendSource;
+    }
+
+    /**
+     * @return destination factor for the alpha of the last blend function set, -1 if none was.
+     */
+    public int getAlphaBlendDestination()
+    {
+        return alphaBlendDestination;
+    }
+
+    /**
+     * @return image files loaded, for textures being created or loaded again.
+     */
+    public int getImagesLoaded()
+    {
+        return imagesLoaded;
+    }
+
+    /**
+     * @return objects of any kind created since the backend was created, like buffers, vertex
+     * arrays or textures. Not affected by {@link #reset()}.
+     */
+    public int getObjectsCreated()
+    {
+        return nextName - 1;
+    }
+}
@@ -0,0 +1,218 @@
+package com.moka.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Every call that the engine makes to the graphics API. The renderer and the objects it draws only
+ * talk to the GPU through the backend of the renderer (see {@link Renderer#getBackend()}), so it
+ * can be replaced, for example by a {@link RecordingBackend} to measure the rendering without a
+ * GPU.
+ * <p>
+ * Constants (targets, capabilities, blend factors...) are the OpenGL ones. Redundant state
+ * changes are already filtered by {@link RenderState} before reaching the backend.
+ *
+ * @author Shelo
+ */
+public interface RenderBackend
+{
+    int genBuffer();
+
+    int genVertexArray();
+
+    int genTexture();
+
+    int genFrameBuffer();
+
+    void deleteBuffer(int buffer);
+
+    void deleteVertexArray(int vertexArray);
+
+    void deleteTexture(int texture);
+
+    void deleteFrameBuffer(int frameBuffer);
+
+    void bindBuffer(int target, int buffer);
+
+    void bindVertexArray(int vertexArray);
+
+    void activeTexture(int unit);
+
+    void bindTexture(int texture);
+
+    void bindFrameBuffer(int frameBuffer);
+
+    void useProgram(int program);
+
+    void blendFunc(int source, int destination);
+
+    void blendFuncSeparate(int source, int destination, int alphaSource, int alphaDestination);
+
+    void enable(int capability);
+
+    void disable(int capability);
+
+    void cullFace(int mode);
+
+    void frontFace(int mode);
+
+    void viewport(int x, int y, int width, int height);
+
+    void clearColor(float r, float g, float b, float a);
+
+    void clear(int mask);
+
+    void enableVertexAttribArray(int index);
+
+    void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long offset);
+
+    void vertexAttribDivisor(int index, int divisor);
+
+    void bufferData(int target, FloatBuffer data, int usage);
+
+    void bufferData(int target, IntBuffer data, int usage);
+
+    /**
+     * Allocates storage for the bound buffer without filling it.
+     */
+    void bufferData(int target, long size, int usage);
+
+    void bufferSubData(int target, long offset, IntBuffer data);
+
+    /**
+     * Sets a parameter of the texture bound to the active unit.
+     */
+    void texParameter(int name, int value);
+
+    /**
+     * Sets the size and content of the texture bound to the active unit.
+     *
+     * @param pixels RGBA pixels, one byte per component, or null to leave it undefined.
+     */
+    void texImage(int width, int height, ByteBuffer pixels);
+
+    /**
+     * Decodes an image file into RGBA pixels, one byte per component, row by row.
+     *
+     * @return the pixels, or null if the image can't be read. Free them with {@link #freeImage}.
+     */
+    ByteBuffer loadImage(String filePath, IntBuffer width, IntBuffer height);
+
+    void freeImage(ByteBuffer pixels);
+
+    /**
+     * Replaces rows of the bound texture with RGBA bytes read from the bound pixel unpack buffer.
+     *
+     * @param y      first row replaced.
+     * @param offset offset in bytes inside the pixel unpack buffer.
+     */
+    void texSubImage(int y, int width, int height, long offset);
+
+    /**
+     * Maps the bound buffer for writing, discarding its previous content.
+     *
+     * @param size bytes to map from the start of the buffer.
+     * @return the memory of the buffer, only valid until it's unmapped.
+     */
+    ByteBuffer mapBuffer(int target, long size);
+
+    void unmapBuffer(int target);
+
+    /**
+     * Attaches a texture as the color target of the bound frame buffer.
+     *
+     * @return true if the frame buffer can be drawn into.
+     */
+    boolean frameBufferTexture(int texture);
+
+    /**
+     * Copies the color of a frame buffer into another one, scaling it with linear filtering.
+     * The destination is left bound for both reading and drawing.
+     */
+    void blitFrameBuffer(int source, int sourceWidth, int sourceHeight, int destination, int width, int height);
+
+    /**
+     * Draws indexed triangles, the indices being unsigned ints.
+     *
+     * @param offset offset in bytes inside the element buffer.
+     */
+    void drawElements(int count, long offset);
+
+    void drawElementsInstanced(int count, long offset, int instances);
+
+    /**
+     * Compiles and links a shader program.
+     *
+     * @throws com.moka.utils.JMokaException if the program cannot be compiled or linked.
+     */
+    int createProgram(String vertexCode, String fragmentCode);
+
+    /**
+     * Creates a program from a binary given before by {@link #getProgramBinary}.
+     *
+     * @return the program, or 0 if the driver doesn't accept the binary.
+     */
+    int createProgram(int format, ByteBuffer binary);
+
+    /**
+     * @return true if linked programs can be read and created back as binaries.
+     */
+    boolean supportsProgramBinary();
+
+    /**
+     * Reads a linked program as a binary, only valid with the same driver.
+     *
+     * @param format receives the format of the binary.
+     * @return the binary, or null if the driver doesn't give one.
+     */
+    ByteBuffer getProgramBinary(int program, IntBuffer format);
+
+    /**
+     * @return vendor, renderer and version of the driver.
+     */
+    String getDriverInfo();
+
+    int genQuery();
+
+    void deleteQuery(int query);
+
+    /**
+     * Starts measuring the GPU time of the commands that follow, until {@link #endTimeQuery()}.
+     * Only one time query can be active at a time.
+     */
+    void beginTimeQuery(int query);
+
+    void endTimeQuery();
+
+    /**
+     * @return true if the result of the query can be read without waiting for the GPU.
+     */
+    boolean isQueryResultAvailable(int query);
+
+    /**
+     * @return the time measured by the query in nanoseconds.
+     */
+    long getQueryResult(int query);
+
+    /**
+     * Validates a program against the current state, a vertex array has to be bound.
+     *
+     * @return null if the program is valid, otherwise the reason.
+     */
+    String validateProgram(int program);
+
+    int getUniformLocation(int program, String name);
+
+    void uniform(int location, float x);
+
+    void uniform(int location, float x, float y);
+
+    void uniform(int location, float x, float y, float z);
+
+    void uniform(int location, float x, float y, float z, float w);
+
+    void uniformMatrix3(int location, FloatBuffer matrix);
+
+    void uniformMatrix4(int location, FloatBuffer matrix);
+}
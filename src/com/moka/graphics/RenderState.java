@@ -0,0 +1,383 @@
+package com.moka.graphics;
+
+import static org.lwjgl.opengl.GL11.GL_BLEND;
+import static org.lwjgl.opengl.GL11.GL_CULL_FACE;
+import static org.lwjgl.opengl.GL11.GL_ONE;
+import static org.lwjgl.opengl.GL11.GL_ZERO;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
+
+/**
+ * Keeps a copy of the OpenGL state that the engine changes, so changes to the value that is
+ * already set never reach the driver. Every bind, blend or capability change made by the engine
+ * should go through here, otherwise the copy becomes stale. Changes that pass the filter are sent
+ * to the {@link RenderBackend}.
+ * <p>
+ * Enabled vertex attributes and the element array buffer belong to the vertex array object, so
+ * they are remembered for each one of them.
+ *
+ * @author Shelo
+ */
+public final class RenderState
+{
+    private static final int UNKNOWN = -1;
+    private static final int TEXTURE_UNITS = 16;
+
+    private int blendSource = UNKNOWN;
+    private int blendDestination = UNKNOWN;
+    private int blendAlphaSource = UNKNOWN;
+    private int blendAlphaDestination = UNKNOWN;
+    private boolean premultipliedAlpha;
+    private int program = UNKNOWN;
+    private int vertexArray = UNKNOWN;
+    private int arrayBuffer = UNKNOWN;
+    private int activeUnit = UNKNOWN;
+    private int cullFaceMode = UNKNOWN;
+    private int cullFace = UNKNOWN;
+    private int blend = UNKNOWN;
+    private int frameBuffer = UNKNOWN;
+
+    private final RenderBackend backend;
+
+    private int[] textures = new int[TEXTURE_UNITS];
+
+    // indexed by vertex array object name.
+    private int[] elementBuffers = new int[64];
+    private int[] attributeMasks = new int[64];
+
+    // statistics of the current frame.
+    private int issued;
+    private int skipped;
+
+    // statistics of the last completed frame.
+    private int lastIssued;
+    private int lastSkipped;
+
+    public RenderState(RenderBackend backend)
+    {
+        this.backend = backend;
+        invalidate();
+    }
+
+    /**
+     * Forgets everything, the next change of every state will be sent. Use it after something
+     * outside the engine touched the OpenGL state.
+     */
+    public void invalidate()
+    {
+        blendSource = blendDestination = blendAlphaSource = blendAlphaDestination = UNKNOWN;
+        program = vertexArray = arrayBuffer = UNKNOWN;
+        activeUnit = cullFaceMode = cullFace = blend = frameBuffer = UNKNOWN;
+
+        for (int i = 0; i < textures.length; i++) {
+            textures[i] = UNKNOWN;
+        }
+
+        for (int i = 0; i < elementBuffers.length; i++) {
+            elementBuffers[i] = UNKNOWN;
+            attributeMasks[i] = 0;
+        }
+    }
+
+    /**
+     * Closes the statistics of the frame that just ended and starts counting again.
+     */
+    public void newFrame()
+    {
+        lastIssued = issued;
+        lastSkipped = skipped;
+        issued = skipped = 0;
+    }
+
+    private boolean changed(boolean changed)
+    {
+        if (changed) {
+            issued++;
+        } else {
+            skipped++;
+        }
+
+        return changed;
+    }
+
+    public void blendFunc(int source, int destination)
+    {
+        if (premultipliedAlpha) {
+            // additive sprites light up what's behind them without covering it.
+            blendFuncSeparate(source, destination, destination == GL_ONE ? GL_ZERO : GL_ONE, destination);
+            return;
+        }
+
+        if (changed(blendSource != source || blendDestination != destination
+                || blendAlphaSource != source || blendAlphaDestination != destination)) {
+            backend.blendFunc(source, destination);
+            blendSource = blendAlphaSource = source;
+            blendDestination = blendAlphaDestination = destination;
+        }
+    }
+
+    public void blendFuncSeparate(int source, int destination, int alphaSource, int alphaDestination)
+    {
+        if (changed(blendSource != source || blendDestination != destination
+                || blendAlphaSource != alphaSource || blendAlphaDestination != alphaDestination)) {
+            backend.blendFuncSeparate(source, destination, alphaSource, alphaDestination);
+            blendSource = source;
+            blendDestination = destination;
+            blendAlphaSource = alphaSource;
+            blendAlphaDestination = alphaDestination;
+        }
+    }
+
+    /**
+     * While enabled, the alpha written by {@link #blendFunc} is the coverage of the target, and
+     * the colors end up multiplied by it. Used when drawing into a texture that is drawn later
+     * with premultiplied alpha blending, see {@link LayerCache}.
+     */
+    public void setPremultipliedAlpha(boolean premultipliedAlpha)
+    {
+        this.premultipliedAlpha = premultipliedAlpha;
+
+        // the function set now has to follow the new mode.
+        if (blendSource != UNKNOWN) {
+            blendFunc(blendSource, blendDestination);
+        }
+    }
+
+    public void setBlend(boolean enabled)
+    {
+        int value = enabled ? 1 : 0;
+
+        if (changed(blend != value)) {
+            if (enabled) {
+                backend.enable(GL_BLEND);
+            } else {
+                backend.disable(GL_BLEND);
+            }
+
+            blend = value;
+        }
+    }
+
+    public void setCulling(boolean enabled)
+    {
+        int value = enabled ? 1 : 0;
+
+        if (changed(cullFace != value)) {
+            if (enabled) {
+                backend.enable(GL_CULL_FACE);
+            } else {
+                backend.disable(GL_CULL_FACE);
+            }
+
+            cullFace = value;
+        }
+    }
+
+    public void cullFace(int mode)
+    {
+        if (changed(cullFaceMode != mode)) {
+            backend.cullFace(mode);
+            cullFaceMode = mode;
+        }
+    }
+
+    public void useProgram(int program)
+    {
+        if (changed(this.program != program)) {
+            backend.useProgram(program);
+            this.program = program;
+        }
+    }
+
+    public void activeTexture(int unit)
+    {
+        if (changed(activeUnit != unit)) {
+            backend.activeTexture(unit);
+            activeUnit = unit;
+        }
+    }
+
+    /**
+     * Binds the texture to the unit 0.
+     */
+    public void bindTexture(int texture)
+    {
+        bindTexture(0, texture);
+    }
+
+    public void bindTexture(int unit, int texture)
+    {
+        if (changed(textures[unit] != texture)) {
+            activeTexture(unit);
+            backend.bindTexture(texture);
+            textures[unit] = texture;
+        }
+    }
+
+    public void bindVertexArray(int vertexArray)
+    {
+        if (changed(this.vertexArray != vertexArray)) {
+            backend.bindVertexArray(vertexArray);
+            this.vertexArray = vertexArray;
+        }
+    }
+
+    /**
+     * Binds a buffer. The element array buffer is stored in the bound vertex array object, so
+     * bind the vertex array first.
+     */
+    public void bindBuffer(int target, int buffer)
+    {
+        if (target == GL_ELEMENT_ARRAY_BUFFER && vertexArray != UNKNOWN) {
+            ensureVertexArrayCapacity(vertexArray);
+
+            if (changed(elementBuffers[vertexArray] != buffer)) {
+                backend.bindBuffer(target, buffer);
+                elementBuffers[vertexArray] = buffer;
+            }
+        } else if (target == GL_ARRAY_BUFFER) {
+            if (changed(arrayBuffer != buffer)) {
+                backend.bindBuffer(target, buffer);
+                arrayBuffer = buffer;
+            }
+        } else {
+            issued++;
+            backend.bindBuffer(target, buffer);
+        }
+    }
+
+    /**
+     * Enables a vertex attribute of the bound vertex array object.
+     */
+    public void enableVertexAttribArray(int index)
+    {
+        if (vertexArray == UNKNOWN) {
+            issued++;
+            backend.enableVertexAttribArray(index);
+            return;
+        }
+
+        ensureVertexArrayCapacity(vertexArray);
+
+        if (changed((attributeMasks[vertexArray] & (1 << index)) == 0)) {
+            backend.enableVertexAttribArray(index);
+            attributeMasks[vertexArray] |= 1 << index;
+        }
+    }
+
+    public void bindFrameBuffer(int frameBuffer)
+    {
+        if (changed(this.frameBuffer != frameBuffer)) {
+            backend.bindFrameBuffer(frameBuffer);
+            this.frameBuffer = frameBuffer;
+        }
+    }
+
+    /**
+     * Copies a frame buffer into another one, scaling it, see {@link RenderBackend#blitFrameBuffer}.
+     * The destination is bound after this.
+     */
+    public void blitFrameBuffer(int source, int sourceWidth, int sourceHeight, int destination, int width,
+                                int height)
+    {
+        backend.blitFrameBuffer(source, sourceWidth, sourceHeight, destination, width, height);
+        frameBuffer = destination;
+    }
+
+    public void deleteVertexArray(int vertexArray)
+    {
+        backend.deleteVertexArray(vertexArray);
+
+        if (this.vertexArray == vertexArray) {
+            this.vertexArray = 0;
+        }
+
+        // names are reused by OpenGL, the next one has a clean state.
+        if (vertexArray < elementBuffers.length) {
+            elementBuffers[vertexArray] = 0;
+            attributeMasks[vertexArray] = 0;
+        }
+    }
+
+    public void deleteBuffer(int buffer)
+    {
+        backend.deleteBuffer(buffer);
+
+        if (arrayBuffer == buffer) {
+            arrayBuffer = 0;
+        }
+
+        for (int i = 0; i < elementBuffers.length; i++) {
+            if (elementBuffers[i] == buffer) {
+                elementBuffers[i] = 0;
+            }
+        }
+    }
+
+    public void deleteTexture(int texture)
+    {
+        backend.deleteTexture(texture);
+
+        for (int i = 0; i < textures.length; i++) {
+            if (textures[i] == texture) {
+                textures[i] = 0;
+            }
+        }
+    }
+
+    public void deleteFrameBuffer(int frameBuffer)
+    {
+        backend.deleteFrameBuffer(frameBuffer);
+
+        if (this.frameBuffer == frameBuffer) {
+            this.frameBuffer = 0;
+        }
+    }
+
+    private void ensureVertexArrayCapacity(int vertexArray)
+    {
+        if (vertexArray < elementBuffers.length) {
+            return;
+        }
+
+        int length = Math.max(vertexArray + 1, elementBuffers.length * 2);
+
+        int[] newElementBuffers = new int[length];
+        int[] newAttributeMasks = new int[length];
+        System.arraycopy(elementBuffers, 0, newElementBuffers, 0, elementBuffers.length);
+        System.arraycopy(attributeMasks, 0, newAttributeMasks, 0, attributeMasks.length);
+
+        for (int i = elementBuffers.length; i < length; i++) {
+            newElementBuffers[i] = UNKNOWN;
+        }
+
+        elementBuffers = newElementBuffers;
+        attributeMasks = newAttributeMasks;
+    }
+
+    public int getBoundTexture()
+    {
+        return textures[0];
+    }
+
+    public int getBoundProgram()
+    {
+        return program;
+    }
+
+    /**
+     * @return state changes sent to OpenGL during the last frame.
+     */
+    public int getIssuedChanges()
+    {
+        return lastIssued;
+    }
+
+    /**
+     * @return redundant state changes dropped during the last frame.
+     */
+    public int getSkippedChanges()
+    {
+        return lastSkipped;
+    }
+}
@@ -0,0 +1,193 @@
+package com.moka.graphics;
+
+import com.moka.scene.Scene;
+
+/**
+ * Statistics of the rendering, counted during a frame and published when the next one starts, so
+ * the getters always describe the last complete frame.
+ * <p>
+ * Besides draw calls, every time a sprite batch is drawn the reason is recorded, that tells why
+ * sprites ended up in different draw calls: too many textures, too many sprites, or other kind of
+ * drawables breaking the batch.
+ *
+ * @author Shelo
+ */
+public class RenderStats
+{
+    public enum FlushReason
+    {
+        /**
+         * A sprite used another texture.
+         */
+        TEXTURE_CHANGE,
+
+        /**
+         * The batch was full.
+         */
+        OVERFLOW,
+
+        /**
+         * Something that is not batched had to be drawn in between.
+         */
+        INTERLEAVE,
+
+        /**
+         * A sprite used another blending function.
+         */
+        BLEND_CHANGE,
+
+        /**
+         * The layer ended and it is being measured on its own (see {@link Renderer#setGpuTiming}).
+         */
+        LAYER_END,
+
+        /**
+         * Everything was drawn.
+         */
+        FRAME_END,
+    }
+
+    private static final FlushReason[] REASONS = FlushReason.values();
+
+    private int drawCalls;
+    private long vertices;
+    private int batchedSprites;
+    private int[] flushes = new int[REASONS.length];
+
+    private int lastDrawCalls;
+    private long lastVertices;
+    private int lastBatchedSprites;
+    private int[] lastFlushes = new int[REASONS.length];
+
+    private double[] layerGpuTime = new double[Scene.LAYERS];
+    private float resolutionScale = 1;
+
+    /**
+     * Publishes the counters of the frame that ended and starts counting again.
+     */
+    public void newFrame()
+    {
+        lastDrawCalls = drawCalls;
+        lastVertices = vertices;
+        lastBatchedSprites = batchedSprites;
+
+        int[] swap = lastFlushes;
+        lastFlushes = flushes;
+        flushes = swap;
+
+        drawCalls = batchedSprites = 0;
+        vertices = 0;
+
+        for (int i = 0; i < flushes.length; i++) {
+            flushes[i] = 0;
+        }
+    }
+
+    /**
+     * Counts a draw call.
+     *
+     * @param vertices vertices drawn by the call.
+     */
+    public void countDraw(int vertices)
+    {
+        drawCalls++;
+        this.vertices += vertices;
+    }
+
+    /**
+     * Counts a sprite batch being drawn.
+     *
+     * @param reason  why the batch was drawn.
+     * @param sprites sprites in the batch.
+     */
+    public void countFlush(FlushReason reason, int sprites)
+    {
+        flushes[reason.ordinal()]++;
+        batchedSprites += sprites;
+    }
+
+    void setLayerGpuTime(int layer, double milliseconds)
+    {
+        layerGpuTime[layer] = milliseconds;
+    }
+
+    void setResolutionScale(float resolutionScale)
+    {
+        this.resolutionScale = resolutionScale;
+    }
+
+    public int getDrawCalls()
+    {
+        return lastDrawCalls;
+    }
+
+    public long getVertices()
+    {
+        return lastVertices;
+    }
+
+    public int getBatchedSprites()
+    {
+        return lastBatchedSprites;
+    }
+
+    public int getFlushes(FlushReason reason)
+    {
+        return lastFlushes[reason.ordinal()];
+    }
+
+    /**
+     * @return the GPU time spent drawing the layer in milliseconds, in the last frame measured, 0
+     * if the layer was not drawn in that frame. Only measured while GPU timing is enabled.
+     */
+    public double getLayerGpuTime(int layer)
+    {
+        return layerGpuTime[layer];
+    }
+
+    /**
+     * @return the GPU time spent drawing every layer in milliseconds, only the layers of the first
+     * camera are measured.
+     */
+    public double getGpuTime()
+    {
+        double total = 0;
+
+        for (double time : layerGpuTime) {
+            total += time;
+        }
+
+        return total;
+    }
+
+    /**
+     * @return the scale of the resolution the scene was drawn at, 1 unless the renderer uses
+     * dynamic resolution.
+     */
+    public float getResolutionScale()
+    {
+        return resolutionScale;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(lastDrawCalls).append(" draws, ");
+        builder.append(lastVertices).append(" vertices, ");
+        builder.append(lastBatchedSprites).append(" batched. Flushes:");
+
+        for (FlushReason reason : REASONS) {
+            builder.append(' ').append(reason.name().toLowerCase()).append(' ')
+                    .append(lastFlushes[reason.ordinal()]);
+        }
+
+        builder.append(String.format(". GPU: %.2fms", getGpuTime()));
+
+        if (resolutionScale != 1) {
+            builder.append(String.format(". Resolution: %.0f%%", resolutionScale * 100));
+        }
+
+        return builder.toString();
+    }
+}
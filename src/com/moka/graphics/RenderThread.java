@@ -0,0 +1,213 @@
+package com.moka.graphics;
+
+import com.moka.utils.JMokaException;
+import org.lwjgl.opengl.GLContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Owns the OpenGL context of the window on its own thread, presenting the frames drawn by the
+ * game thread and waiting for the vertical sync there, so swapping buffers never stalls the
+ * simulation (see {@link Display#setRenderThread}).
+ * <p>
+ * The game thread draws with a second context sharing the textures of the window. Every frame is
+ * drawn into one of three {@link FrameBuffer}s, handed off through a {@link FrameHandoff}, and
+ * copied to the window here. Fences make each side wait on the GPU, never on the CPU, for the
+ * other side to finish with a frame. The context of the window has no {@link RenderState}, the
+ * few calls made here go straight to OpenGL.
+ *
+ * @author Shelo
+ */
+final class RenderThread implements Runnable
+{
+    // how long to wait for a new frame before checking again, in nanoseconds.
+    private static final long IDLE_WAIT = 500_000;
+
+    private final FrameHandoff handoff = new FrameHandoff();
+    private final FrameBuffer[] targets = new FrameBuffer[FrameHandoff.SLOTS];
+    private final long[] drawnFences = new long[FrameHandoff.SLOTS];
+    private final long[] presentedFences = new long[FrameHandoff.SLOTS];
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final long window;
+    private final int width;
+    private final int height;
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile Throwable failure;
+
+    /**
+     * Creates the frame buffers with the context current on the calling thread, which has to
+     * share its textures with the one of the window.
+     */
+    RenderThread(long window, int width, int height)
+    {
+        this.window = window;
+        this.width = width;
+        this.height = height;
+
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new FrameBuffer(width, height);
+        }
+    }
+
+    /**
+     * Starts the thread and makes the context of the window current on it.
+     */
+    void start()
+    {
+        running = true;
+        thread = new Thread(this, "jmoka-render");
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure != null) {
+            throw new JMokaException("The render thread could not start: " + failure.getMessage());
+        }
+    }
+
+    /**
+     * Waits until the back frame buffer is no longer being presented and returns it. Called by the
+     * game thread before drawing a frame.
+     *
+     * @return the frame buffer object to draw the frame into.
+     */
+    int beginFrame()
+    {
+        int slot = handoff.getBack();
+
+        if (presentedFences[slot] != 0) {
+            glWaitSync(presentedFences[slot], 0, GL_TIMEOUT_IGNORED);
+            glDeleteSync(presentedFences[slot]);
+            presentedFences[slot] = 0;
+        }
+
+        return targets[slot].getId();
+    }
+
+    /**
+     * Hands the frame drawn to the render thread. Called by the game thread after drawing.
+     */
+    void publish()
+    {
+        int slot = handoff.getBack();
+        drawnFences[slot] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+
+        // the fence has to reach the GPU before the other context waits on it.
+        glFlush();
+
+        if (handoff.publish()) {
+            // the frame replaced was never presented, so nobody will wait on its fence.
+            int dropped = handoff.getBack();
+            glDeleteSync(drawnFences[dropped]);
+            drawnFences[dropped] = 0;
+        }
+
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run()
+    {
+        int[] readBuffers = new int[targets.length];
+
+        try {
+            glfwMakeContextCurrent(window);
+            GLContext.createFromCurrent();
+
+            // frame buffer objects are not shared between contexts, their textures are.
+            for (int i = 0; i < targets.length; i++) {
+                readBuffers[i] = glGenFramebuffers();
+                glBindFramebuffer(GL_READ_FRAMEBUFFER, readBuffers[i]);
+                glFramebufferTexture2D(GL_READ_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D,
+                        targets[i].getTexture().getId(), 0);
+            }
+        } catch (Throwable e) {
+            failure = e;
+            running = false;
+        }
+
+        started.countDown();
+
+        while (running) {
+            if (!handoff.acquire()) {
+                LockSupport.parkNanos(this, IDLE_WAIT);
+                continue;
+            }
+
+            present(handoff.getFront(), readBuffers);
+        }
+
+        for (int readBuffer : readBuffers) {
+            if (readBuffer != 0) {
+                glDeleteFramebuffers(readBuffer);
+            }
+        }
+
+        glfwMakeContextCurrent(0);
+    }
+
+    private void present(int slot, int[] readBuffers)
+    {
+        if (drawnFences[slot] != 0) {
+            glWaitSync(drawnFences[slot], 0, GL_TIMEOUT_IGNORED);
+            glDeleteSync(drawnFences[slot]);
+            drawnFences[slot] = 0;
+        }
+
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, readBuffers[slot]);
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, 0);
+        glBlitFramebuffer(0, 0, width, height, 0, 0, width, height, GL_COLOR_BUFFER_BIT, GL_NEAREST);
+
+        // the game thread draws into this slot again only after the copy is done.
+        presentedFences[slot] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        glFlush();
+
+        glfwSwapBuffers(window);
+    }
+
+    /**
+     * Stops the thread, waiting for it to release the context of the window, and frees the frame
+     * buffers. Called by the game thread.
+     */
+    void stop()
+    {
+        running = false;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            if (drawnFences[i] != 0) {
+                glDeleteSync(drawnFences[i]);
+            }
+
+            if (presentedFences[i] != 0) {
+                glDeleteSync(presentedFences[i]);
+            }
+
+            targets[i].dispose();
+        }
+    }
+
+    public FrameHandoff getHandoff()
+    {
+        return handoff;
+    }
+}
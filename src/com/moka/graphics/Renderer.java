@@ -3,15 +3,31 @@ package com.moka.graphics;
 import com.moka.components.Camera;
 import com.moka.core.SubEngine;
 import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
+import com.moka.scene.Scene;
 import com.moka.scene.entity.Entity;
 import com.moka.utils.CoreUtil;
 import com.moka.utils.JMokaException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL20.glUseProgram;
 
 public final class Renderer extends SubEngine
 {
+    /**
+     * Frame buffer textures start at the bottom, so they are drawn upside down.
+     */
+    private static final Rectangle FLIPPED_REGION = new Rectangle(0, 1, 1, -1);
+
+    /**
+     * Maximum entities recorded by one thread when recording in parallel.
+     */
+    private static final int RECORDING_CHUNK = 1024;
+
     public static final String VERTEX_CODE =
             "#version 330 core\n" +
                     "\n" +
@@ -45,19 +61,90 @@ public final class Renderer extends SubEngine
                     "\tfragColor = baseColor * u_color;\n" +
                     "}\n";
 
+    public static final String INSTANCED_VERTEX_CODE =
+            "#version 330 core\n" +
+                    "\n" +
+                    "layout (location = 0) in vec4 a_quad;\n" +
+                    "layout (location = 1) in vec4 a_bounds;\n" +
+                    "layout (location = 2) in vec2 a_rotation;\n" +
+                    "layout (location = 3) in vec4 a_region;\n" +
+                    "layout (location = 4) in vec4 a_color;\n" +
+                    "\n" +
+                    "uniform mat3 u_projectedView;\n" +
+                    "\n" +
+                    "out vec2 texCoord;\n" +
+                    "out vec4 color;\n" +
+                    "\n" +
+                    "void main() {\n" +
+                    "\tvec2 corner = a_quad.xy * a_bounds.zw;\n" +
+                    "\tvec2 world = vec2(corner.x * a_rotation.x - corner.y * a_rotation.y,\n" +
+                    "\t\t\tcorner.x * a_rotation.y + corner.y * a_rotation.x) + a_bounds.xy;\n" +
+                    "\tvec3 position = u_projectedView * vec3(world, 1.0);\n" +
+                    "\tgl_Position = vec4(position.xy, 0, position.z);\n" +
+                    "\ttexCoord = a_region.xy + a_quad.zw * a_region.zw;\n" +
+                    "\tcolor = a_color;\n" +
+                    "}";
+
+    public static final String INSTANCED_FRAGMENT_CODE =
+            "#version 330 core\n" +
+                    "\n" +
+                    "uniform sampler2D u_texture;\n" +
+                    "\n" +
+                    "in vec2 texCoord;\n" +
+                    "in vec4 color;\n" +
+                    "\n" +
+                    "out vec4 fragColor;\n" +
+                    "\n" +
+                    "void main() {\n" +
+                    "\tfragColor = texture(u_texture, texCoord) * color;\n" +
+                    "}\n";
+
     private Shader defaultShader;
     private Shader shader;
     private Camera camera;
-    private int currentShaderProgram = -1;
-    private int currentTextureId = -1;
+    private Camera currentCamera;
+    private final ArrayList<Camera> cameras = new ArrayList<>();
+    private final ArrayList<Camera> passCameras = new ArrayList<>();
+    private RenderBackend backend = new LwjglBackend();
+    private RenderState state = new RenderState(backend);
+    private int batchBlendSource = GL_SRC_ALPHA;
+    private int batchBlendDestination = GL_ONE_MINUS_SRC_ALPHA;
+
+    private final RenderStats stats = new RenderStats();
+    private final TextureManager textureManager = new TextureManager();
+    private final TextureStreamer textureStreamer = new TextureStreamer();
+    private ShaderCache shaderCache;
+    private GpuTimer gpuTimer;
+    private boolean gpuTiming;
 
     private Color clearColor = new Color(0, 0, 0, 1);
+    private int screenFrameBuffer;
+    private int targetWidth;
+    private int targetHeight;
+
+    private ResolutionScaler resolutionScaler;
+    private FrameBuffer resolutionTarget;
 
     private Shader batchShader;
     private SpriteBatch batch;
 
     private Shader usingShader;
 
+    private Shader instancedShader;
+    private InstancedSpriteBatch instancedBatch;
+    private boolean instancing;
+
+    private CommandSubmitter submitter;
+    private boolean parallelRecording;
+    private boolean recording;
+    private final ThreadLocal<DrawCommandBuffer> recordingBuffer = new ThreadLocal<>();
+    private final ArrayList<DrawCommandBuffer> commandBuffers = new ArrayList<>();
+    private final int[] layerFirstChunk = new int[Scene.LAYERS];
+    private final int[] layerChunks = new int[Scene.LAYERS];
+    private int[] chunkLayer = new int[Scene.LAYERS];
+    private int[] chunkStart = new int[Scene.LAYERS];
+    private int chunks;
+
     /**
      * Creates the Renderer. This will initialize some OpenGL constants and create the shader.
      */
@@ -70,17 +157,15 @@ public final class Renderer extends SubEngine
         // initialize OpenGL stuff.
         updateClearColor();
 
-        glFrontFace(GL_CW);
+        backend.frontFace(GL_CW);
 
         // enable culling for better performance.
-        glEnable(GL_CULL_FACE);
-        glCullFace(GL_BACK);
+        state.setCulling(true);
+        state.cullFace(GL_BACK);
 
         // enable blending.
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-
-        glEnable(GL_TEXTURE_2D);
+        state.setBlend(true);
+        state.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
         log("Created correctly");
 
@@ -89,35 +174,220 @@ public final class Renderer extends SubEngine
         batchShader = new Shader(
                 CoreUtil.readFile("jmoka-example/assets/shaders/test_vertex_batch.glsl"),
                 CoreUtil.readFile("jmoka-example/assets/shaders/test_fragment_batch.glsl"));
+
+        if (instancing) {
+            createInstancedBatch();
+        }
+
+        if (gpuTiming) {
+            gpuTimer = new GpuTimer(backend);
+        }
+
+        if (parallelRecording) {
+            submitter = new CommandSubmitter();
+        }
+    }
+
+    private void createInstancedBatch()
+    {
+        instancedBatch = new InstancedSpriteBatch();
+        instancedShader = new Shader(INSTANCED_VERTEX_CODE, INSTANCED_FRAGMENT_CODE);
+
+        log("Instanced sprite batch created");
     }
 
     /**
-     * Render this frame. At this point the camera cannot be null.
+     * Render this frame, once for every camera of the current scene. At this point there has to
+     * be a camera.
      */
     public void render()
     {
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        state.newFrame();
+        stats.newFrame();
+        textureManager.newFrame();
+        textureStreamer.update();
+
+        boolean gpuTimed = gpuTiming && gpuTimer.newFrame(stats);
+
+        batchBlendSource = GL_SRC_ALPHA;
+        batchBlendDestination = GL_ONE_MINUS_SRC_ALPHA;
+
+        // with a render thread the frame is drawn off-screen and presented there.
+        int presentFrameBuffer = getDisplay().beginFrame();
+        int width = getDisplay().getWidth();
+        int height = getDisplay().getHeight();
+
+        if (resolutionScaler != null) {
+            // the same times are kept until new ones arrive, they are not new samples.
+            float scale = resolutionScaler.update(gpuTimed ? stats.getGpuTime() : 0);
+            stats.setResolutionScale(scale);
+
+            // the scene is drawn into a corner of the target, which fits the greatest scale.
+            targetWidth = Math.max(1, Math.round(width * scale));
+            targetHeight = Math.max(1, Math.round(height * scale));
+            screenFrameBuffer = getResolutionTarget(width, height).getId();
+        } else {
+            targetWidth = width;
+            targetHeight = height;
+            screenFrameBuffer = presentFrameBuffer;
+        }
 
-        if (camera == null) {
+        state.bindFrameBuffer(screenFrameBuffer);
+
+        backend.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+        Scene scene = getContext().getCurrentScene();
+        scene.sortLayers();
+        findCameras(scene);
+
+        if (passCameras.isEmpty()) {
             throw new JMokaException("There's no camera attached to the renderer.");
         }
 
+        for (int i = 0; i < passCameras.size(); i++) {
+            // layers are timed only once, with the first camera.
+            drawCamera(passCameras.get(i), scene, gpuTiming && i == 0);
+        }
+
+        passCameras.clear();
+        currentCamera = null;
+
+        if (resolutionScaler != null) {
+            state.blitFrameBuffer(screenFrameBuffer, targetWidth, targetHeight, presentFrameBuffer, width, height);
+        }
+
+        backend.viewport(0, 0, width, height);
+    }
+
+    private FrameBuffer getResolutionTarget(int width, int height)
+    {
+        int maxWidth = Math.max(1, Math.round(width * resolutionScaler.getMaxScale()));
+        int maxHeight = Math.max(1, Math.round(height * resolutionScaler.getMaxScale()));
+
+        if (resolutionTarget == null || resolutionTarget.getWidth() != maxWidth
+                || resolutionTarget.getHeight() != maxHeight) {
+            if (resolutionTarget != null) {
+                resolutionTarget.dispose();
+            }
+
+            resolutionTarget = new FrameBuffer(maxWidth, maxHeight);
+        }
+
+        return resolutionTarget;
+    }
+
+    /**
+     * Finds the enabled cameras of the scene sorted by their order. The main camera is used if
+     * the scene has none.
+     */
+    private void findCameras(Scene scene)
+    {
+        passCameras.clear();
+
+        for (int i = 0; i < cameras.size(); i++) {
+            Camera candidate = cameras.get(i);
+
+            if (!candidate.isEnabled() || candidate.getEntity().getScene() != scene) {
+                continue;
+            }
+
+            // insertion keeping the order of cameras with the same order.
+            int index = passCameras.size();
+            while (index > 0 && passCameras.get(index - 1).getOrder() > candidate.getOrder()) {
+                index--;
+            }
+
+            passCameras.add(index, candidate);
+        }
+
+        if (passCameras.isEmpty() && camera != null) {
+            passCameras.add(camera);
+        }
+    }
+
+    private void drawCamera(Camera camera, Scene scene, boolean timed)
+    {
+        currentCamera = camera;
+        applyViewport(camera);
+
+        // the view is the same for the whole pass, so every shader receives it once.
+        Matrix3 projectedView = camera.getProjectedView();
+
         batchShader.bind();
-        batchShader.setUniform("u_projectedView", camera.getProjectedView());
+        batchShader.setUniform("u_projectedView", projectedView);
+
+        if (instancing) {
+            instancedShader.bind();
+            instancedShader.setUniform("u_projectedView", projectedView);
+        }
 
         shader.bind();
-        shader.setUniform("u_projectedView", camera.getProjectedView());
+        shader.setUniform("u_projectedView", projectedView);
+
+        Shader spriteBatchShader = instancing ? instancedShader : batchShader;
+
+        if (parallelRecording && !instancing) {
+            recordLayers(scene, camera);
+        }
+
+        for (int layer = 0; layer < scene.getLayerCount(); layer++) {
+            List<Entity> entities = scene.getLayer(layer);
+
+            if (entities.isEmpty() || !camera.drawsLayer(layer)) {
+                continue;
+            }
+
+            LayerCache cache = scene.getLayerCache(layer);
+
+            if (timed) {
+                gpuTimer.begin(layer);
+            }
+
+            StaticLayer staticLayer = scene.getStaticLayer(layer);
+
+            if (layerChunks[layer] > 0) {
+                submitLayer(layer, entities, staticLayer);
+            } else if (cache == null) {
+                drawEntities(entities, staticLayer, spriteBatchShader);
+            } else {
+                drawCached(cache, entities, staticLayer, spriteBatchShader);
+            }
+
+            // the layer is measured alone, so its sprites cannot be batched with the next layer.
+            if (timed) {
+                flushBatch(RenderStats.FlushReason.LAYER_END);
+                gpuTimer.end(layer);
+            }
+        }
+
+        flushBatch(RenderStats.FlushReason.FRAME_END);
+    }
+
+    private void applyViewport(Camera camera)
+    {
+        Rectangle viewport = camera.getViewport();
+        int width = targetWidth;
+        int height = targetHeight;
+
+        backend.viewport(Math.round(viewport.left * width), Math.round(viewport.top * height),
+                Math.round(viewport.width * width), Math.round(viewport.height * height));
+    }
+
+    private void drawEntities(List<Entity> entities, StaticLayer staticLayer, Shader spriteBatchShader)
+    {
+        drawStaticLayer(entities, staticLayer);
+
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
 
-        for (Entity entity : getContext().getCurrentScene()) {
             if (entity.hasDrawable()) {
                 DrawableComponent drawable = entity.getDrawable();
 
-                if (drawable.isEnabled()) {
+                if (drawable.isEnabled() && !drawable.isStatic()) {
                     if (drawable.shouldBatch()) {
-                        batchShader.bind();
+                        spriteBatchShader.bind();
                     } else {
-                        batchShader.bind();
-                        batch.render();
+                        flushBatch(RenderStats.FlushReason.INTERLEAVE);
 
                         shader.bind();
                     }
@@ -126,9 +396,178 @@ public final class Renderer extends SubEngine
                 }
             }
         }
+    }
+
+    /**
+     * Draws a cached layer as a single quad, drawing the layer into its cache first if something
+     * changed since the last time.
+     */
+    private void drawCached(LayerCache cache, List<Entity> entities, StaticLayer staticLayer,
+                            Shader spriteBatchShader)
+    {
+        int width = targetWidth;
+        int height = targetHeight;
+
+        if (cache.hasChanged(entities) || !cache.isValid(currentCamera, width, height)) {
+            flushBatch(RenderStats.FlushReason.INTERLEAVE);
+
+            int placeholderBinds = textureStreamer.getPlaceholderBinds();
+
+            // the alpha in the cache must be the coverage, not the alpha multiplied by itself.
+            cache.begin(currentCamera, width, height);
+            state.setPremultipliedAlpha(true);
+            drawEntities(entities, staticLayer, spriteBatchShader);
+            flushBatch(RenderStats.FlushReason.INTERLEAVE);
+            state.setPremultipliedAlpha(false);
+            cache.end(entities);
+            applyViewport(currentCamera);
+
+            // textures still streaming were drawn transparent, draw it again until they are ready.
+            if (textureStreamer.getPlaceholderBinds() != placeholderBinds) {
+                cache.invalidate();
+            }
+        }
+
+        Rectangle bounds = cache.getBounds();
+
+        // the cache holds colors already multiplied by their alpha.
+        spriteBatchShader.bind();
+        setBatchBlend(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+        batch(cache.getTexture(), bounds.left + bounds.width / 2, bounds.top + bounds.height / 2,
+                (int) bounds.width, (int) bounds.height, Color.WHITE, Matrix3.ROTATION_IDENTITY,
+                FLIPPED_REGION);
+        setBatchBlend(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * Records in parallel every layer that only has recordable drawables and is not cached. Large
+     * layers are split in chunks, so they are recorded by many threads too. Nothing here talks to
+     * the GPU, the recorded commands are issued later by {@link #submitLayer} in the order
+     * of the layers.
+     */
+    private void recordLayers(Scene scene, Camera camera)
+    {
+        chunks = 0;
+
+        for (int layer = 0; layer < scene.getLayerCount(); layer++) {
+            List<Entity> entities = scene.getLayer(layer);
+            layerFirstChunk[layer] = chunks;
+            layerChunks[layer] = 0;
+
+            if (entities.isEmpty() || !camera.drawsLayer(layer) || scene.getLayerCache(layer) != null
+                    || !isRecordable(entities)) {
+                continue;
+            }
+
+            for (int start = 0; start < entities.size(); start += RECORDING_CHUNK) {
+                if (chunks == chunkLayer.length) {
+                    chunkLayer = Arrays.copyOf(chunkLayer, chunks * 2);
+                    chunkStart = Arrays.copyOf(chunkStart, chunks * 2);
+                }
+
+                chunkLayer[chunks] = layer;
+                chunkStart[chunks] = start;
+                chunks++;
+                layerChunks[layer]++;
+            }
+        }
+
+        while (commandBuffers.size() < chunks) {
+            commandBuffers.add(new DrawCommandBuffer());
+        }
+
+        recording = true;
+
+        try {
+            IntStream.range(0, chunks).parallel().forEach(chunk -> recordChunk(scene, chunk));
+        } finally {
+            recording = false;
+        }
+    }
+
+    private boolean isRecordable(List<Entity> entities)
+    {
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+
+            if (entity.hasDrawable() && !entity.getDrawable().isRecordable()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void recordChunk(Scene scene, int chunk)
+    {
+        List<Entity> entities = scene.getLayer(chunkLayer[chunk]);
+        int end = Math.min(entities.size(), chunkStart[chunk] + RECORDING_CHUNK);
+
+        DrawCommandBuffer buffer = commandBuffers.get(chunk);
+        buffer.clear();
+        recordingBuffer.set(buffer);
+
+        try {
+            for (int i = chunkStart[chunk]; i < end; i++) {
+                Entity entity = entities.get(i);
+
+                if (entity.hasDrawable() && entity.getDrawable().isEnabled()
+                        && !entity.getDrawable().isStatic()) {
+                    entity.getDrawable().render(this);
+                }
+            }
+        } finally {
+            recordingBuffer.remove();
+        }
+
+        buffer.end();
+    }
+
+    private void submitLayer(int layer, List<Entity> entities, StaticLayer staticLayer)
+    {
+        drawStaticLayer(entities, staticLayer);
+
+        // sprites pending from previous layers go first.
+        flushBatch(RenderStats.FlushReason.INTERLEAVE);
 
         batchShader.bind();
-        batch.render();
+
+        int first = layerFirstChunk[layer];
+
+        for (int chunk = first; chunk < first + layerChunks[layer]; chunk++) {
+            submitter.submit(commandBuffers.get(chunk), stats);
+        }
+
+        layerChunks[layer] = 0;
+    }
+
+    /**
+     * Draws the static drawables of the layer, building them again first if something changed.
+     */
+    private void drawStaticLayer(List<Entity> entities, StaticLayer staticLayer)
+    {
+        if (staticLayer.update(entities)) {
+            drawStatic(staticLayer.getBatch());
+        }
+    }
+
+    /**
+     * Draws everything that is pending on the active sprite batch.
+     *
+     * @param reason why the batch is drawn now, for the statistics.
+     */
+    private void flushBatch(RenderStats.FlushReason reason)
+    {
+        // a non batched sprite may have left another blending function.
+        state.blendFunc(batchBlendSource, batchBlendDestination);
+
+        if (instancing) {
+            instancedShader.bind();
+            instancedBatch.render(reason);
+        } else {
+            batchShader.bind();
+            batch.render(reason);
+        }
     }
 
     /**
@@ -155,11 +594,11 @@ public final class Renderer extends SubEngine
      */
     public void updateClearColor()
     {
-        glClearColor(clearColor.r, clearColor.g, clearColor.b, clearColor.a);
+        backend.clearColor(clearColor.r, clearColor.g, clearColor.b, clearColor.a);
     }
 
     /**
-     * Returns the camera used for the renderer at this instant.
+     * Returns the main camera, used to translate the cursor position into the world.
      *
      * @return the main camera.
      */
@@ -169,7 +608,7 @@ public final class Renderer extends SubEngine
     }
 
     /**
-     * Sets the main camera for the renderer to use.
+     * Sets the main camera. It is drawn even if the scene has no other cameras registered.
      *
      * @param camera the new main camera, null will crash the engine.
      */
@@ -181,6 +620,37 @@ public final class Renderer extends SubEngine
         this.camera = camera;
     }
 
+    /**
+     * Returns the camera being drawn right now, drawables that cull what is outside of the view
+     * should use this one instead of the main camera.
+     *
+     * @return the camera of the current pass, the main camera outside of the rendering.
+     */
+    public Camera getCurrentCamera()
+    {
+        return currentCamera == null ? camera : currentCamera;
+    }
+
+    /**
+     * Registers a camera to be drawn while its scene is the current one. Cameras register
+     * themselves when created.
+     */
+    public void addCamera(Camera camera)
+    {
+        if (!cameras.contains(camera)) {
+            cameras.add(camera);
+        }
+    }
+
+    public void removeCamera(Camera camera)
+    {
+        cameras.remove(camera);
+
+        if (this.camera == camera) {
+            this.camera = null;
+        }
+    }
+
     /**
      * Returns the current shader program.
      *
@@ -206,27 +676,344 @@ public final class Renderer extends SubEngine
 
     public void bindTexture(int textureId)
     {
-        if (currentTextureId != textureId) {
-            glBindTexture(GL_TEXTURE_2D, textureId);
-            currentTextureId = textureId;
-        }
+        state.bindTexture(textureId);
     }
 
     public void bindShader(int shaderProgram)
     {
-        if (shaderProgram != currentShaderProgram) {
-            glUseProgram(shaderProgram);
-            currentShaderProgram = shaderProgram;
+        state.useProgram(shaderProgram);
+    }
+
+    /**
+     * Returns the backend that receives every graphics call.
+     *
+     * @return the render backend.
+     */
+    public RenderBackend getBackend()
+    {
+        return backend;
+    }
+
+    /**
+     * Replaces the backend, e.g. by a {@link RecordingBackend} to measure the rendering without a
+     * GPU. Objects created with the previous backend cannot be used after this, so it has to be
+     * done before the application is created.
+     *
+     * @param backend the new backend.
+     */
+    public void setBackend(RenderBackend backend)
+    {
+        if (getApplication() != null && getApplication().isCreated())
+            throw new JMokaException("Renderer.setBackend: the application was already created.");
+
+        this.backend = backend;
+        this.state = new RenderState(backend);
+    }
+
+    /**
+     * Returns the statistics of the last frame: draw calls, why sprite batches were drawn and,
+     * if enabled, the GPU time of every layer.
+     *
+     * @return the render statistics.
+     */
+    public RenderStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Returns the texture manager, which keeps the video memory used by textures under a budget.
+     *
+     * @return the texture manager.
+     */
+    public TextureManager getTextureManager()
+    {
+        return textureManager;
+    }
+
+    /**
+     * Keeps the shader programs on disk as driver binaries, so the next launches load them
+     * instead of compiling them. Has to be set before creating the application for the shaders
+     * of the renderer to be cached too.
+     *
+     * @param directory where to keep the binaries, or null to always compile.
+     */
+    public void setShaderCache(String directory)
+    {
+        shaderCache = directory == null ? null : new ShaderCache(directory);
+    }
+
+    /**
+     * @return the shader cache, or null if shaders are always compiled.
+     */
+    public ShaderCache getShaderCache()
+    {
+        return shaderCache;
+    }
+
+    /**
+     * @return the streamer that uploads the textures loaded with {@link Texture#loadAsync}.
+     */
+    public TextureStreamer getTextureStreamer()
+    {
+        return textureStreamer;
+    }
+
+    /**
+     * Measures the GPU time spent on every layer (see {@link RenderStats#getLayerGpuTime}). Only
+     * the layers drawn by the first camera are measured. The results usually arrive two frames
+     * late to avoid waiting for the GPU. While enabled the sprite batch is drawn at the end of
+     * every layer, so there can be more draw calls.
+     *
+     * @param gpuTiming true to measure.
+     */
+    public void setGpuTiming(boolean gpuTiming)
+    {
+        if (gpuTiming && gpuTimer == null && getApplication().isCreated()) {
+            gpuTimer = new GpuTimer(backend);
         }
+
+        this.gpuTiming = gpuTiming;
+    }
+
+    public boolean isGpuTiming()
+    {
+        return gpuTiming;
+    }
+
+    /**
+     * @return the frame buffer object the scene is drawn into this frame, 0 (the window) unless
+     * the display uses a render thread (see {@link Display#setRenderThread}) or the resolution is
+     * dynamic (see {@link #setDynamicResolution}).
+     */
+    public int getScreenFrameBuffer()
+    {
+        return screenFrameBuffer;
+    }
+
+    /**
+     * @return width of the area the scene is drawn into this frame, the width of the display
+     * unless dynamic resolution is used.
+     */
+    public int getTargetWidth()
+    {
+        return targetWidth;
+    }
+
+    /**
+     * @return height of the area the scene is drawn into this frame.
+     */
+    public int getTargetHeight()
+    {
+        return targetHeight;
+    }
+
+    /**
+     * Draws the scene at a resolution that adapts to the GPU time of the frames, and scales it up
+     * to the size of the display. Useful when the GPU runs out of fill rate, for example with many
+     * overlapping additive sprites. Turns GPU timing on, which is what the time is measured with,
+     * so only the layers of the first camera count. Frames without new measurements don't change
+     * the scale.
+     *
+     * @param resolutionScaler the scales and the target time, or null to always draw at the size
+     *                         of the display.
+     */
+    public void setDynamicResolution(ResolutionScaler resolutionScaler)
+    {
+        this.resolutionScaler = resolutionScaler;
+
+        if (resolutionScaler != null) {
+            setGpuTiming(true);
+        } else {
+            stats.setResolutionScale(1);
+
+            if (resolutionTarget != null) {
+                resolutionTarget.dispose();
+                resolutionTarget = null;
+            }
+        }
+    }
+
+    public ResolutionScaler getDynamicResolution()
+    {
+        return resolutionScaler;
+    }
+
+    /**
+     * Returns the OpenGL state tracker, every state change should be done through it so redundant
+     * changes are skipped.
+     *
+     * @return the render state.
+     */
+    public RenderState getState()
+    {
+        return state;
+    }
+
+    /**
+     * Draws retained geometry. Everything pending on the sprite batch is drawn first, in order to
+     * respect the drawing order.
+     *
+     * @param staticBatch the static batch to draw.
+     */
+    public void drawStatic(StaticBatch staticBatch)
+    {
+        if (staticBatch.isEmpty()) {
+            return;
+        }
+
+        flushBatch(RenderStats.FlushReason.INTERLEAVE);
+
+        batchShader.bind();
+        staticBatch.render();
+    }
+
+    /**
+     * Draws a command buffer filled by the caller. Its vertices are uploaded at once and every
+     * command is a single draw call, whatever its size. Everything pending on the sprite batch is
+     * drawn first. While recording layers, the commands are added to the layer instead.
+     *
+     * @param buffer the buffer, already ended.
+     */
+    public void drawCommands(DrawCommandBuffer buffer)
+    {
+        if (recording) {
+            recordingBuffer.get().append(buffer);
+            return;
+        }
+
+        if (buffer.getSpriteCount() == 0) {
+            return;
+        }
+
+        flushBatch(RenderStats.FlushReason.INTERLEAVE);
+
+        if (submitter == null) {
+            submitter = new CommandSubmitter();
+        }
+
+        batchShader.bind();
+        submitter.submit(buffer, stats);
+    }
+
+    /**
+     * Records what the drawable batches into the buffer instead of drawing it, the same way layers
+     * are recorded in parallel. The drawable has to be recordable.
+     */
+    public void record(DrawableComponent drawable, DrawCommandBuffer buffer)
+    {
+        boolean wasRecording = recording;
+        recording = true;
+        recordingBuffer.set(buffer);
+
+        try {
+            drawable.render(this);
+        } finally {
+            recordingBuffer.remove();
+            recording = wasRecording;
+        }
+    }
+
+    /**
+     * Changes the blending function used by batched sprites. Sprites batched before the change are
+     * drawn first with the previous function, so alternating between functions breaks batches.
+     * The function goes back to normal alpha blending on every frame.
+     */
+    public void setBatchBlend(int source, int destination)
+    {
+        if (recording) {
+            recordingBuffer.get().setBlend(source, destination);
+            return;
+        }
+
+        if (batchBlendSource == source && batchBlendDestination == destination) {
+            return;
+        }
+
+        flushBatch(RenderStats.FlushReason.BLEND_CHANGE);
+
+        batchBlendSource = source;
+        batchBlendDestination = destination;
+    }
+
+    /**
+     * Enables or disables the instanced sprite path (see {@link InstancedSpriteBatch}). Batched
+     * sprites will then be expanded on the GPU instead of on the CPU. Requires OpenGL 3.3.
+     *
+     * @param instancing true to draw batched sprites using instancing.
+     */
+    public void setInstancing(boolean instancing)
+    {
+        if (instancing && instancedBatch == null && getApplication().isCreated()) {
+            createInstancedBatch();
+        }
+
+        this.instancing = instancing;
+    }
+
+    public boolean isInstancing()
+    {
+        return instancing;
+    }
+
+    /**
+     * Records the layers that only have recordable drawables (see
+     * {@link DrawableComponent#isRecordable()}) in parallel, one thread building the vertices of
+     * every chunk of the layer, instead of batching every sprite on the OpenGL thread. This only
+     * pays off with thousands of sprites. Not used while instancing.
+     *
+     * @param parallelRecording true to record batched layers in parallel.
+     */
+    public void setParallelRecording(boolean parallelRecording)
+    {
+        if (parallelRecording && submitter == null && getApplication().isCreated()) {
+            submitter = new CommandSubmitter();
+        }
+
+        this.parallelRecording = parallelRecording;
+    }
+
+    public boolean isParallelRecording()
+    {
+        return parallelRecording;
     }
 
     public void batch(Texture texture, float x, float y, int width, int height, Color color)
     {
-        batch.draw(texture, x, y, width, height, color);
+        if (recording) {
+            recordingBuffer.get().draw(texture, x, y, width, height, color, null, SpriteBatch.FULL_REGION);
+        } else if (instancing) {
+            instancedBatch.draw(texture, x, y, width, height, color);
+        } else {
+            batch.draw(texture, x, y, width, height, color);
+        }
     }
 
     public void batch(Texture texture, float x, float y, int width, int height, Color color, Matrix3 rotation)
     {
-        batch.draw(texture, x, y, width, height, color, rotation);
+        if (recording) {
+            recordingBuffer.get().draw(texture, x, y, width, height, color, rotation, SpriteBatch.FULL_REGION);
+        } else if (instancing) {
+            instancedBatch.draw(texture, x, y, width, height, color, rotation);
+        } else {
+            batch.draw(texture, x, y, width, height, color, rotation);
+        }
+    }
+
+    /**
+     * Batches a region of a texture (e.g. a frame of a sprite sheet).
+     *
+     * @param region the source rectangle in texture coordinates as left, top, width, height.
+     */
+    public void batch(Texture texture, float x, float y, int width, int height, Color color, Matrix3 rotation,
+                      Rectangle region)
+    {
+        if (recording) {
+            recordingBuffer.get().draw(texture, x, y, width, height, color, rotation, region);
+        } else if (instancing) {
+            instancedBatch.draw(texture, x, y, width, height, color, rotation, region);
+        } else {
+            batch.draw(texture, x, y, width, height, color, rotation, region);
+        }
     }
 }
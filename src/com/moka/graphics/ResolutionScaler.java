@@ -0,0 +1,124 @@
+package com.moka.graphics;
+
+import com.moka.utils.JMokaException;
+
+/**
+ * Chooses the resolution the scene is drawn at from the GPU time of the last frames, see
+ * {@link Renderer#setDynamicResolution}. The scale multiplies both sides of the screen.
+ * <p>
+ * The GPU time is the one of the layers drawn by the first camera, and only frames with new
+ * measurements are taken into account. It is smoothed, and the scale only changes after some
+ * measured frames since the last change.
+ * It goes down as soon as the frames are too slow, but it only goes up again when they are well
+ * below the target time, so it doesn't oscillate around the target. The scale moves in fixed
+ * steps, so the sizes used are a few.
+ *
+ * @author Shelo
+ */
+public class ResolutionScaler
+{
+    public static final float STEP = 0.05f;
+
+    // weight of the last frame in the smoothed time.
+    private static final double SMOOTHING = 0.1;
+
+    // the scale only goes up when the frames take less than this part of the target time.
+    private static final double RAISE_THRESHOLD = 0.75;
+
+    // frames to wait after a change, so the time measured belongs to the new scale.
+    private static final int COOLDOWN = 30;
+
+    private final float minScale;
+    private final float maxScale;
+    private final double targetTime;
+
+    private float scale;
+    private double averageTime;
+    private int framesSinceChange;
+
+    /**
+     * @param minScale   smallest scale allowed, greater than 0.
+     * @param maxScale   greatest scale allowed, usually 1.
+     * @param targetTime GPU time per frame to keep, in milliseconds.
+     */
+    public ResolutionScaler(float minScale, float maxScale, double targetTime)
+    {
+        if (minScale <= 0 || minScale > maxScale) {
+            throw new JMokaException("Invalid resolution scales: " + minScale + " to " + maxScale + ".");
+        }
+
+        if (targetTime <= 0) {
+            throw new JMokaException("The target GPU time has to be positive.");
+        }
+
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.targetTime = targetTime;
+
+        scale = maxScale;
+    }
+
+    /**
+     * Takes the GPU time of a frame into account.
+     *
+     * @param gpuTime the GPU time in milliseconds, 0 if it was not measured.
+     * @return the scale for the next frame.
+     */
+    public float update(double gpuTime)
+    {
+        if (gpuTime <= 0) {
+            return scale;
+        }
+
+        averageTime = averageTime == 0 ? gpuTime : averageTime + (gpuTime - averageTime) * SMOOTHING;
+
+        if (++framesSinceChange < COOLDOWN) {
+            return scale;
+        }
+
+        if (averageTime > targetTime && scale > minScale) {
+            // the cost of filling grows with the area, which is the square of the scale.
+            float wanted = scale * (float) Math.sqrt(targetTime / averageTime);
+            setScale(Math.min(quantize(wanted), scale - STEP));
+        } else if (averageTime < targetTime * RAISE_THRESHOLD && scale < maxScale) {
+            setScale(scale + STEP);
+        }
+
+        return scale;
+    }
+
+    private void setScale(float scale)
+    {
+        scale = Math.round(scale / STEP) * STEP;
+        this.scale = Math.max(minScale, Math.min(maxScale, scale));
+
+        // the times measured so far belong to the old scale.
+        averageTime = 0;
+        framesSinceChange = 0;
+    }
+
+    private static float quantize(float scale)
+    {
+        return (float) Math.floor(scale / STEP + 1e-4) * STEP;
+    }
+
+    public float getScale()
+    {
+        return scale;
+    }
+
+    public float getMinScale()
+    {
+        return minScale;
+    }
+
+    public float getMaxScale()
+    {
+        return maxScale;
+    }
+
+    public double getTargetTime()
+    {
+        return targetTime;
+    }
+}
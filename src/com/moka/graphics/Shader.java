@@ -12,56 +12,170 @@ import com.moka.utils.CoreUtil;
 import com.moka.utils.JMokaException;
 import com.moka.utils.JMokaLog;
 
+import org.lwjgl.BufferUtils;
+
 import java.nio.FloatBuffer;
 import java.util.HashMap;
 
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
-import static org.lwjgl.opengl.GL30.glGenVertexArrays;
-
 public class Shader
 {
     public static final String TAG = "Shader";
 
-    private HashMap<String, Integer> uniformLocations;
+    /**
+     * Handle to a uniform of this shader. The location is resolved only once and the last value
+     * sent is remembered, so setting the same value again doesn't reach OpenGL.
+     */
+    public static final class Uniform
+    {
+        private final String name;
+        private final int location;
+        private final float[] values = new float[16];
+        private boolean valid;
+
+        public Uniform(String name, int location)
+        {
+            this.name = name;
+            this.location = location;
+        }
+
+        /**
+         * Stores the given values, reporting if they differ from the last ones stored.
+         *
+         * @return true if the uniform should be uploaded.
+         */
+        public boolean cache(float x, float y, float z, float w)
+        {
+            if (valid && values[0] == x && values[1] == y && values[2] == z && values[3] == w) {
+                return false;
+            }
+
+            values[0] = x;
+            values[1] = y;
+            values[2] = z;
+            values[3] = w;
+            valid = true;
+
+            return true;
+        }
+
+        /**
+         * Stores the matrix in column major order, reporting if it differs from the last one.
+         *
+         * @return true if the uniform should be uploaded.
+         */
+        public boolean cache(Matrix3 matrix)
+        {
+            boolean changed = !valid;
+
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    float value = matrix.get(j, i);
+
+                    if (values[i * 3 + j] != value) {
+                        values[i * 3 + j] = value;
+                        changed = true;
+                    }
+                }
+            }
+
+            valid = true;
+            return changed;
+        }
+
+        /**
+         * Stores the matrix in column major order, reporting if it differs from the last one.
+         *
+         * @return true if the uniform should be uploaded.
+         */
+        public boolean cache(Matrix4 matrix)
+        {
+            boolean changed = !valid;
+
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 4; j++) {
+                    float value = matrix.get(j, i);
+
+                    if (values[i * 4 + j] != value) {
+                        values[i * 4 + j] = value;
+                        changed = true;
+                    }
+                }
+            }
+
+            valid = true;
+            return changed;
+        }
+
+        /**
+         * Forgets the last value, the next set will always be uploaded.
+         */
+        public void invalidate()
+        {
+            valid = false;
+        }
+
+        public int getLocation()
+        {
+            return location;
+        }
 
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    private HashMap<String, Uniform> uniforms;
+
+    private final FloatBuffer matrix3Buffer = BufferUtils.createFloatBuffer(3 * 3);
+    private final FloatBuffer matrix4Buffer = BufferUtils.createFloatBuffer(4 * 4);
+
+    private Uniform modelUniform;
+    private Uniform colorUniform;
+
+    private RenderBackend backend;
     private boolean bound;
     private int program;
 
     public Shader(String vertexCode, String fragmentCode)
     {
-        program = glCreateProgram();
-        createShader(vertexCode, GL_VERTEX_SHADER);
-        createShader(fragmentCode, GL_FRAGMENT_SHADER);
+        backend = Moka.getRenderer().getBackend();
 
-        // link and check errors.
-        glLinkProgram(program);
+        // compile and link, errors are thrown by the backend.
+        ShaderCache cache = Moka.getRenderer().getShaderCache();
+        program = cache == null ? backend.createProgram(vertexCode, fragmentCode)
+                : cache.createProgram(backend, vertexCode, fragmentCode);
 
-        if (glGetProgrami(program, GL_LINK_STATUS) == 0) {
-            throw new JMokaException(glGetShaderInfoLog(program, 1024));
-        }
-
-        int vao = glGenVertexArrays();
-        glBindVertexArray(vao);
+        // validation needs a vertex array bound, it is only used here.
+        RenderState state = Moka.getRenderer().getState();
+        int vao = backend.genVertexArray();
+        state.bindVertexArray(vao);
 
         // validate and check errors.
-        glValidateProgram(program);
+        String error = backend.validateProgram(program);
+
+        state.deleteVertexArray(vao);
 
-        if (glGetProgrami(program, GL_VALIDATE_STATUS) == 0) {
-            throw new JMokaException(glGetProgramInfoLog(program, 1024));
+        if (error != null) {
+            throw new JMokaException(error);
         }
 
-        uniformLocations = new HashMap<>();
+        uniforms = new HashMap<>();
 
         JMokaLog.o(TAG, "Shader correctly created.");
     }
 
     public void update(final Transform transform, final Sprite sprite)
     {
+        if (modelUniform == null) {
+            modelUniform = getUniform("u_model");
+            colorUniform = getUniform("u_color");
+        }
+
         Matrix3 model = CalcUtil.calcModelMatrix(transform);
 
-        setUniform("u_model", model);
-        setUniform("u_color", sprite.getTint());
+        setUniform(modelUniform, model);
+        setUniform(colorUniform, sprite.getTint());
     }
 
     public void bind()
@@ -69,72 +183,107 @@ public class Shader
         Moka.getRenderer().bindShader(program);
     }
 
-    private int createShader(String code, int type)
+    /**
+     * Returns the handle for a uniform, the location is asked to OpenGL only the first time.
+     * Store the handle in order to skip the name lookup when setting it very often.
+     *
+     * @param uniform the uniform name.
+     * @return the uniform handle.
+     */
+    public Uniform getUniform(String uniform)
     {
-        int shader = glCreateShader(type);
+        // if the uniform is known, return it.
+        Uniform handle = uniforms.get(uniform);
 
-        if (shader == 0) {
-            throw new JMokaException("Shader creation failed.");
+        if (handle != null) {
+            return handle;
         }
 
-        glShaderSource(shader, code);
-        glCompileShader(shader);
+        // if not, we ask openGL for the uniform location, store it and return it.
+        int location = backend.getUniformLocation(program, uniform);
 
-        if (glGetShaderi(shader, GL_COMPILE_STATUS) == 0) {
-            throw new JMokaException("Shader compile error: " + glGetShaderInfoLog(shader, 1024));
+        if (location == -1) {
+            throw new JMokaException("No uniform with name " + uniform);
         }
 
-        glAttachShader(program, shader);
+        handle = new Uniform(uniform, location);
+        uniforms.put(uniform, handle);
 
-        return shader;
+        JMokaLog.o(TAG, "New uniform: " + uniform + ", at location " + location);
+        return handle;
     }
 
     public int getUniformLocation(String uniform)
     {
-        // if location is contained, return it.
-        if (uniformLocations.containsKey(uniform)) {
-            return uniformLocations.get(uniform);
+        return getUniform(uniform).getLocation();
+    }
+
+    /* setUniform's */
+    public void setUniform(Uniform uniform, Matrix4 matrix)
+    {
+        if (uniform.cache(matrix)) {
+            backend.uniformMatrix4(uniform.getLocation(), CoreUtil.fillBuffer(matrix, matrix4Buffer));
         }
+    }
 
-        // if not, we ask openGL for the uniform location, store it and return it.
-        int location = glGetUniformLocation(program, uniform);
+    public void setUniform(Uniform uniform, Matrix3 matrix)
+    {
+        if (uniform.cache(matrix)) {
+            backend.uniformMatrix3(uniform.getLocation(), CoreUtil.fillBuffer(matrix, matrix3Buffer));
+        }
+    }
 
-        if (location == -1) {
-            throw new JMokaException("No uniform with name " + uniform);
-        } else {
-            uniformLocations.put(uniform, location);
+    public void setUniform(Uniform uniform, float x, float y, float z)
+    {
+        if (uniform.cache(x, y, z, 0)) {
+            backend.uniform(uniform.getLocation(), x, y, z);
         }
+    }
 
-        JMokaLog.o(TAG, "New uniform: " + uniform + ", at location " + location);
-        return location;
+    public void setUniform(Uniform uniform, float v)
+    {
+        if (uniform.cache(v, 0, 0, 0)) {
+            backend.uniform(uniform.getLocation(), v);
+        }
+    }
+
+    public void setUniform(Uniform uniform, float x, float y)
+    {
+        if (uniform.cache(x, y, 0, 0)) {
+            backend.uniform(uniform.getLocation(), x, y);
+        }
+    }
+
+    public void setUniform(Uniform uniform, Color color)
+    {
+        if (uniform.cache(color.r, color.g, color.b, color.a)) {
+            backend.uniform(uniform.getLocation(), color.r, color.g, color.b, color.a);
+        }
     }
 
-    /* setUniform's */
     public void setUniform(String uniform, Matrix4 matrix)
     {
-        FloatBuffer buffer = CoreUtil.genBuffer(matrix);
-        glUniformMatrix4fv(getUniformLocation(uniform), false, buffer);
+        setUniform(getUniform(uniform), matrix);
     }
 
     public void setUniform(String uniform, Matrix3 matrix)
     {
-        FloatBuffer buffer = CoreUtil.genBuffer(matrix);
-        glUniformMatrix3fv(getUniformLocation(uniform), false, buffer);
+        setUniform(getUniform(uniform), matrix);
     }
 
     public void setUniform(String uniform, float x, float y, float z)
     {
-        glUniform3f(getUniformLocation(uniform), x, y, z);
+        setUniform(getUniform(uniform), x, y, z);
     }
 
     public void setUniform(String uniform, float v)
     {
-        glUniform1f(getUniformLocation(uniform), v);
+        setUniform(getUniform(uniform), v);
     }
 
     public void setUniform(String uniform, float x, float y)
     {
-        glUniform2f(getUniformLocation(uniform), x, y);
+        setUniform(getUniform(uniform), x, y);
     }
 
     public void setUniform(String uniform, Vector3 v)
@@ -149,6 +298,6 @@ public class Shader
 
     private void setUniform(String uniform, Color color)
     {
-        glUniform4f(getUniformLocation(uniform), color.r, color.g, color.b, color.a);
+        setUniform(getUniform(uniform), color);
     }
 }
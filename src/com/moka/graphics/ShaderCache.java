@@ -0,0 +1,162 @@
+package com.moka.graphics;
+
+import com.moka.utils.JMokaLog;
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps linked shader programs on disk as driver binaries, so later launches skip compiling
+ * them (see {@link Renderer#setShaderCache}). Each program is a file named after a hash of its
+ * sources and of the driver, so editing a shader or updating the driver just misses the cache.
+ * <p>
+ * A file holds the binary format followed by the binary. Files the driver rejects are deleted
+ * and the program is compiled again, so the cache can never stop a shader from working.
+ *
+ * @author Shelo
+ */
+public class ShaderCache
+{
+    private static final String TAG = "ShaderCache";
+
+    private final Path directory;
+    private int hits;
+    private int misses;
+
+    /**
+     * @param directory where the binaries are kept, created when needed.
+     */
+    public ShaderCache(String directory)
+    {
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Creates a program from its binary if it's in the cache, compiling it and storing its binary
+     * otherwise.
+     *
+     * @throws com.moka.utils.JMokaException if the program has to be compiled and it fails.
+     */
+    public int createProgram(RenderBackend backend, String vertexCode, String fragmentCode)
+    {
+        if (!backend.supportsProgramBinary()) {
+            return backend.createProgram(vertexCode, fragmentCode);
+        }
+
+        Path file = directory.resolve(key(backend.getDriverInfo(), vertexCode, fragmentCode) + ".bin");
+        int program = load(backend, file);
+
+        if (program != 0) {
+            hits++;
+            return program;
+        }
+
+        misses++;
+        program = backend.createProgram(vertexCode, fragmentCode);
+        store(backend, program, file);
+        return program;
+    }
+
+    private int load(RenderBackend backend, Path file)
+    {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+
+            if (bytes.length > 4) {
+                // the format is written big endian, as ByteBuffer.wrap does.
+                ByteBuffer buffer = BufferUtils.createByteBuffer(bytes.length).order(ByteOrder.BIG_ENDIAN);
+                buffer.put(bytes).flip();
+
+                int format = buffer.getInt();
+                int program = backend.createProgram(format, buffer.slice());
+
+                if (program != 0) {
+                    return program;
+                }
+            }
+
+            // rejected by the driver, it's compiled and stored again.
+            Files.delete(file);
+        } catch (IOException e) {
+            JMokaLog.o(TAG, "Could not read " + file + ": " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    private void store(RenderBackend backend, int program, Path file)
+    {
+        IntBuffer format = BufferUtils.createIntBuffer(1);
+        ByteBuffer binary = backend.getProgramBinary(program, format);
+
+        if (binary == null) {
+            return;
+        }
+
+        byte[] bytes = new byte[4 + binary.remaining()];
+        ByteBuffer.wrap(bytes).putInt(format.get(0)).put(binary);
+
+        try {
+            Files.createDirectories(directory);
+
+            // written aside first, so a crash never leaves half a binary behind.
+            Path temporary = directory.resolve(file.getFileName() + ".tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            JMokaLog.o(TAG, "Could not write " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String key(String driver, String vertexCode, String fragmentCode)
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(driver.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(vertexCode.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fragmentCode.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return programs created from a binary of the cache.
+     */
+    public int getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return programs that had to be compiled.
+     */
+    public int getMisses()
+    {
+        return misses;
+    }
+}
@@ -3,34 +3,49 @@ package com.moka.graphics;
 import com.moka.components.Sprite;
 import com.moka.core.Moka;
 import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
 import com.moka.math.Vector2;
 import com.moka.utils.CoreUtil;
 import org.lwjgl.BufferUtils;
 
-import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
 import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL30.*;
 
+/**
+ * Batches sprites on the CPU, writing the four corners of every sprite, and draws them in one
+ * call per texture.
+ * <p>
+ * A vertex takes 20 bytes: the position and the texture coordinates as floats, followed by the
+ * color packed as four normalized unsigned bytes. Vertices are kept as ints, floats are stored
+ * with their raw bits.
+ *
+ * @author Shelo
+ */
 public class SpriteBatch
 {
-    private static final int COMPONENTS_PER_VERTEX = 8;
-    private static final int MAX_SPRITES = 100;
+    static final int COMPONENTS_PER_VERTEX = 5;
+    private static final int MAX_SPRITES = 160;
     private static final int MAX_VERTICES = 4 * MAX_SPRITES;
     private static final int VERTEX_BUFFER_SIZE = COMPONENTS_PER_VERTEX * MAX_VERTICES;
     private static final int INDEX_BUFFER_SIZE = MAX_SPRITES * 6;
 
-    private float[] vertices;
+    /**
+     * The whole texture, as a clipping rectangle.
+     */
+    static final Rectangle FULL_REGION = new Rectangle(0, 0, 1, 1);
+
+    private int[] vertices;
     private int[] indices;
     private int vbo;
     private int ibo;
+    private RenderBackend backend;
+    private RenderStats stats;
     private int vao;
 
     private Texture texture;
-    private FloatBuffer vertexBuffer;
+    private IntBuffer vertexBuffer;
     private IntBuffer indexBuffer;
 
     // current vertex buffer counter.
@@ -42,21 +57,43 @@ public class SpriteBatch
     // current index buffer counter.
     private int ic;
 
-    // debug.
-    private int renderCounter;
-
     public SpriteBatch()
     {
-        vertices = new float[VERTEX_BUFFER_SIZE];
+        backend = Moka.getRenderer().getBackend();
+        stats = Moka.getRenderer().getStats();
+        vertices = new int[VERTEX_BUFFER_SIZE];
         indices = new int[INDEX_BUFFER_SIZE];
 
-        vertexBuffer = BufferUtils.createFloatBuffer(VERTEX_BUFFER_SIZE);
+        vertexBuffer = BufferUtils.createIntBuffer(VERTEX_BUFFER_SIZE);
         indexBuffer = BufferUtils.createIntBuffer(INDEX_BUFFER_SIZE);
 
-        vao = glGenVertexArrays();
+        vao = backend.genVertexArray();
+
+        vbo = backend.genBuffer();
+        ibo = backend.genBuffer();
+
+        // the layout is stored in the vertex array, so it is only described once.
+        RenderState state = Moka.getRenderer().getState();
+        state.bindVertexArray(vao);
 
-        vbo = glGenBuffers();
-        ibo = glGenBuffers();
+        state.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        describeLayout(backend, state);
+
+        state.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+    }
+
+    /**
+     * Describes the vertex layout of the batch to the bound vertex array, reading from the bound
+     * array buffer.
+     */
+    static void describeLayout(RenderBackend backend, RenderState state)
+    {
+        state.enableVertexAttribArray(0);
+        state.enableVertexAttribArray(1);
+        state.enableVertexAttribArray(2);
+        backend.vertexAttribPointer(0, 2, GL_FLOAT, false, COMPONENTS_PER_VERTEX * 4, 0);
+        backend.vertexAttribPointer(1, 2, GL_FLOAT, false, COMPONENTS_PER_VERTEX * 4, 2 * 4);
+        backend.vertexAttribPointer(2, 4, GL_UNSIGNED_BYTE, true, COMPONENTS_PER_VERTEX * 4, 4 * 4);
     }
 
     public void draw(Sprite sprite)
@@ -64,7 +101,7 @@ public class SpriteBatch
         Vector2 pos = sprite.getTransform().getPosition();
 
         draw(sprite.getTexture(), pos.x, pos.y, (int) sprite.getWidth(), (int) sprite.getHeight(),
-                sprite.getTint(), sprite.getTransform().getRotation());
+                sprite.getTint(), sprite.getTransform().getRotation(), sprite.getClipRect());
     }
 
     public void draw(Texture texture, float x, float y, Color color)
@@ -80,59 +117,32 @@ public class SpriteBatch
     public void draw(Texture texture, float x, float y, int width, int height, Color color,
                      Matrix3 rotation)
     {
-        // set the texture.
-        setTexture(texture);
+        draw(texture, x, y, width, height, color, rotation, FULL_REGION);
+    }
+
+    public void draw(Texture texture, float x, float y, int width, int height, Color color)
+    {
+        draw(texture, x, y, width, height, color, FULL_REGION);
+    }
 
+    /**
+     * Draws a rotated region of a texture, useful for sprite sheets.
+     *
+     * @param region    the source rectangle in texture coordinates, in the form of left, top,
+     *                  width, height (the same used by {@link Sprite}'s clipping rectangle).
+     */
+    public void draw(Texture texture, float x, float y, int width, int height, Color color,
+                     Matrix3 rotation, Rectangle region)
+    {
         // too large batch, render all.
         if (vc >= VERTEX_BUFFER_SIZE) {
-            render();
+            render(RenderStats.FlushReason.OVERFLOW);
         }
 
-        float minX = - width / 2;
-        float minY = - height / 2;
-        float maxX = width / 2;
-        float maxY = height / 2;
-
-        // put every vertex in the buffer.
-        // bottom left.
-        vertices[vc++] = minX * rotation.get(0, 0) + minY * rotation.get(0, 1) + x;
-        vertices[vc++] = minX * rotation.get(1, 0) + minY * rotation.get(1, 1) + y;
-        vertices[vc++] = 0;
-        vertices[vc++] = 0;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
-
-        // top left.
-        vertices[vc++] = minX * rotation.get(0, 0) + maxY * rotation.get(0, 1) + x;
-        vertices[vc++] = minX * rotation.get(1, 0) + maxY * rotation.get(1, 1) + y;
-        vertices[vc++] = 0;
-        vertices[vc++] = 1;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
-
-        // top right.
-        vertices[vc++] = maxX * rotation.get(0, 0) + maxY * rotation.get(0, 1) + x;
-        vertices[vc++] = maxX * rotation.get(1, 0) + maxY * rotation.get(1, 1) + y;
-        vertices[vc++] = 1;
-        vertices[vc++] = 1;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
+        // set the texture.
+        setTexture(texture);
 
-        // bottom right.
-        vertices[vc++] = maxX * rotation.get(0, 0) + minY * rotation.get(0, 1) + x;
-        vertices[vc++] = maxX * rotation.get(1, 0) + minY * rotation.get(1, 1) + y;
-        vertices[vc++] = 1;
-        vertices[vc++] = 0;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
+        vc = putSprite(vertices, vc, x, y, width, height, color, rotation, region);
 
         indices[ic++] = vi;
         indices[ic++] = vi + 1;
@@ -144,78 +154,100 @@ public class SpriteBatch
         vi += 4;
     }
 
-    public void draw(Texture texture, float x, float y, int width, int height, Color color)
+    /**
+     * Draws a region of a texture, useful for sprite sheets.
+     *
+     * @param region    the source rectangle in texture coordinates, in the form of left, top,
+     *                  width, height (the same used by {@link Sprite}'s clipping rectangle).
+     */
+    public void draw(Texture texture, float x, float y, int width, int height, Color color,
+                     Rectangle region)
     {
-        // Code duplicated to avoid non useful multiplication.
-
-        // set the texture.
-        setTexture(texture);
-
-        // batch overflow, render all.
-        if (vc >= VERTEX_BUFFER_SIZE) {
-            render();
-        }
+        draw(texture, x, y, width, height, color, null, region);
+    }
 
+    /**
+     * Writes the four vertices of a sprite, in the layout of the batch.
+     *
+     * @param vertices the vertex array.
+     * @param vc       where to start writing.
+     * @param rotation the rotation, or null to skip the rotation.
+     * @return the position after the last vertex written.
+     */
+    static int putSprite(int[] vertices, int vc, float x, float y, int width, int height,
+                         Color color, Matrix3 rotation, Rectangle region)
+    {
         float minX = - width / 2;
         float minY = - height / 2;
         float maxX = width / 2;
         float maxY = height / 2;
 
+        float minS = region.left;
+        float maxS = region.left + region.width;
+        float minT = region.top;
+        float maxT = region.top + region.height;
+
+        int packedColor = color.toABGR();
+        float blX, blY, tlX, tlY, trX, trY, brX, brY;
+
+        if (rotation == null) {
+            // no rotation, avoid the non useful multiplications.
+            blX = tlX = minX + x;
+            trX = brX = maxX + x;
+            blY = brY = minY + y;
+            tlY = trY = maxY + y;
+        } else {
+            float r00 = rotation.get(0, 0);
+            float r01 = rotation.get(0, 1);
+            float r10 = rotation.get(1, 0);
+            float r11 = rotation.get(1, 1);
+
+            blX = minX * r00 + minY * r01 + x;
+            blY = minX * r10 + minY * r11 + y;
+            tlX = minX * r00 + maxY * r01 + x;
+            tlY = minX * r10 + maxY * r11 + y;
+            trX = maxX * r00 + maxY * r01 + x;
+            trY = maxX * r10 + maxY * r11 + y;
+            brX = maxX * r00 + minY * r01 + x;
+            brY = maxX * r10 + minY * r11 + y;
+        }
+
         // put every vertex in the buffer.
         // bottom left.
-        vertices[vc++] = minX + x;
-        vertices[vc++] = minY + y;
-        vertices[vc++] = 0;
-        vertices[vc++] = 0;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
+        vertices[vc++] = Float.floatToRawIntBits(blX);
+        vertices[vc++] = Float.floatToRawIntBits(blY);
+        vertices[vc++] = Float.floatToRawIntBits(minS);
+        vertices[vc++] = Float.floatToRawIntBits(maxT);
+        vertices[vc++] = packedColor;
 
         // top left.
-        vertices[vc++] = minX + x;
-        vertices[vc++] = maxY + y;
-        vertices[vc++] = 0;
-        vertices[vc++] = 1;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
+        vertices[vc++] = Float.floatToRawIntBits(tlX);
+        vertices[vc++] = Float.floatToRawIntBits(tlY);
+        vertices[vc++] = Float.floatToRawIntBits(minS);
+        vertices[vc++] = Float.floatToRawIntBits(minT);
+        vertices[vc++] = packedColor;
 
         // top right.
-        vertices[vc++] = maxX + x;
-        vertices[vc++] = maxY + y;
-        vertices[vc++] = 1;
-        vertices[vc++] = 1;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
+        vertices[vc++] = Float.floatToRawIntBits(trX);
+        vertices[vc++] = Float.floatToRawIntBits(trY);
+        vertices[vc++] = Float.floatToRawIntBits(maxS);
+        vertices[vc++] = Float.floatToRawIntBits(minT);
+        vertices[vc++] = packedColor;
 
         // bottom right.
-        vertices[vc++] = maxX + x;
-        vertices[vc++] = minY + y;
-        vertices[vc++] = 1;
-        vertices[vc++] = 0;
-        vertices[vc++] = color.r;
-        vertices[vc++] = color.g;
-        vertices[vc++] = color.b;
-        vertices[vc++] = color.a;
+        vertices[vc++] = Float.floatToRawIntBits(brX);
+        vertices[vc++] = Float.floatToRawIntBits(brY);
+        vertices[vc++] = Float.floatToRawIntBits(maxS);
+        vertices[vc++] = Float.floatToRawIntBits(maxT);
+        vertices[vc++] = packedColor;
 
-        indices[ic++] = vi;
-        indices[ic++] = vi + 1;
-        indices[ic++] = vi + 2;
-        indices[ic++] = vi;
-        indices[ic++] = vi + 2;
-        indices[ic++] = vi + 3;
-
-        vi += 4;
+        return vc;
     }
 
     private void setTexture(Texture texture)
     {
         if (this.texture != null && texture != this.texture) {
-            render();
+            render(RenderStats.FlushReason.TEXTURE_CHANGE);
         }
 
         this.texture = texture;
@@ -228,41 +260,45 @@ public class SpriteBatch
     }
 
     public void render()
+    {
+        render(RenderStats.FlushReason.FRAME_END);
+    }
+
+    /**
+     * Draws every sprite in the batch.
+     *
+     * @param reason why the batch is drawn now, for the statistics.
+     */
+    public void render(RenderStats.FlushReason reason)
     {
         // check if there's something to draw.
         if (vc == 0) {
             return;
         }
 
+        stats.countFlush(reason, getSpritesInBatch());
+
+        // only the used part is uploaded.
         vertexBuffer.clear();
-        vertexBuffer.put(vertices);
+        vertexBuffer.put(vertices, 0, vc);
         vertexBuffer.flip();
 
         indexBuffer.clear();
-        indexBuffer.put(indices);
+        indexBuffer.put(indices, 0, ic);
         indexBuffer.flip();
 
         texture.bind();
 
-        glBindVertexArray(vao);
-
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
-
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
-        glEnableVertexAttribArray(2);
-        glVertexAttribPointer(0, 2, GL_FLOAT, false, 8 * 4, 0);
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 8 * 4, 2 * 4);
-        glVertexAttribPointer(2, 4, GL_FLOAT, false, 8 * 4, 4 * 4);
-
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
-        glDrawElements(GL_TRIANGLES, ic, GL_UNSIGNED_INT, 0);
+        RenderState state = Moka.getRenderer().getState();
+        state.bindVertexArray(vao);
 
-        glBindVertexArray(0);
+        state.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        backend.bufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
 
-        renderCounter++;
+        // the element buffer is already bound to the vertex array.
+        backend.bufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+        backend.drawElements(ic, 0);
+        stats.countDraw(vi);
 
         clean();
     }
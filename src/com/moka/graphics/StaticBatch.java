@@ -0,0 +1,245 @@
+package com.moka.graphics;
+
+import com.moka.core.Moka;
+import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
+import org.lwjgl.BufferUtils;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Retained sprite geometry. Unlike {@link SpriteBatch}, which regenerates and uploads its
+ * vertices every frame, a static batch is built once (between {@link #begin()} and {@link #end()})
+ * and kept in GPU memory until it is built again, so drawing it only costs one draw call per
+ * texture.
+ * <p>
+ * The vertex layout is the same one used by {@link SpriteBatch}, so it is drawn with the batch
+ * shader. Quads are grouped by texture when uploaded, so the order between sprites of different
+ * textures is not kept.
+ *
+ * @author Shelo
+ */
+public class StaticBatch
+{
+    private static final int COMPONENTS_PER_QUAD = 4 * SpriteBatch.COMPONENTS_PER_VERTEX;
+    private static final int INITIAL_QUADS = 64;
+
+    private int[] vertices = new int[INITIAL_QUADS * COMPONENTS_PER_QUAD];
+    private Texture[] textures = new Texture[INITIAL_QUADS];
+    private int quads;
+
+    private final ArrayList<Texture> runTextures = new ArrayList<>();
+    private int[] runOffsets = new int[4];
+    private int[] runCounts = new int[4];
+
+    private RenderBackend backend;
+    private RenderStats stats;
+    private int vao;
+    private int vbo;
+    private int ibo;
+    private int uploadedQuads;
+
+    private IntBuffer vertexBuffer;
+    private IntBuffer indexBuffer;
+    private boolean building;
+
+    public StaticBatch()
+    {
+        backend = Moka.getRenderer().getBackend();
+        stats = Moka.getRenderer().getStats();
+        vao = backend.genVertexArray();
+        vbo = backend.genBuffer();
+        ibo = backend.genBuffer();
+
+        RenderState state = Moka.getRenderer().getState();
+        state.bindVertexArray(vao);
+
+        state.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        SpriteBatch.describeLayout(backend, state);
+
+        state.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+    }
+
+    /**
+     * Starts building the batch, discarding everything that was added before.
+     */
+    public void begin()
+    {
+        quads = 0;
+        building = true;
+    }
+
+    /**
+     * Adds a quad that shows a region of a texture.
+     *
+     * @param region    the source rectangle in texture coordinates, in the form of left, top,
+     *                  width, height.
+     */
+    public void add(Texture texture, float x, float y, float width, float height, Color color,
+                    Matrix3 rotation, Rectangle region)
+    {
+        if (!building) {
+            begin();
+        }
+
+        ensureCapacity(quads + 1);
+
+        float cos = rotation.get(0, 0);
+        float sin = rotation.get(1, 0);
+
+        float minX = -width / 2;
+        float minY = -height / 2;
+        float maxX = width / 2;
+        float maxY = height / 2;
+
+        float minS = region.left;
+        float maxS = region.left + region.width;
+        float minT = region.top;
+        float maxT = region.top + region.height;
+
+        int packedColor = color.toABGR();
+
+        int vc = quads * COMPONENTS_PER_QUAD;
+        vc = putVertex(vc, minX * cos - minY * sin + x, minX * sin + minY * cos + y, minS, maxT, packedColor);
+        vc = putVertex(vc, minX * cos - maxY * sin + x, minX * sin + maxY * cos + y, minS, minT, packedColor);
+        vc = putVertex(vc, maxX * cos - maxY * sin + x, maxX * sin + maxY * cos + y, maxS, minT, packedColor);
+        putVertex(vc, maxX * cos - minY * sin + x, maxX * sin + minY * cos + y, maxS, maxT, packedColor);
+
+        textures[quads++] = texture;
+    }
+
+    private int putVertex(int vc, float x, float y, float s, float t, int packedColor)
+    {
+        vertices[vc++] = Float.floatToRawIntBits(x);
+        vertices[vc++] = Float.floatToRawIntBits(y);
+        vertices[vc++] = Float.floatToRawIntBits(s);
+        vertices[vc++] = Float.floatToRawIntBits(t);
+        vertices[vc++] = packedColor;
+        return vc;
+    }
+
+    private void ensureCapacity(int required)
+    {
+        if (required <= textures.length) {
+            return;
+        }
+
+        int newQuads = Math.max(required, textures.length * 2);
+
+        int[] newVertices = new int[newQuads * COMPONENTS_PER_QUAD];
+        System.arraycopy(vertices, 0, newVertices, 0, quads * COMPONENTS_PER_QUAD);
+        vertices = newVertices;
+
+        Texture[] newTextures = new Texture[newQuads];
+        System.arraycopy(textures, 0, newTextures, 0, quads);
+        textures = newTextures;
+    }
+
+    /**
+     * Finishes the building process, grouping the quads by texture and uploading them.
+     */
+    public void end()
+    {
+        building = false;
+        runTextures.clear();
+        uploadedQuads = 0;
+
+        if (quads == 0) {
+            return;
+        }
+
+        // find every different texture in the order they appeared.
+        for (int i = 0; i < quads; i++) {
+            if (!runTextures.contains(textures[i])) {
+                runTextures.add(textures[i]);
+            }
+        }
+
+        if (runOffsets.length < runTextures.size()) {
+            runOffsets = new int[runTextures.size()];
+            runCounts = new int[runTextures.size()];
+        }
+
+        // the upload buffers only grow, rebuilding a batch of the same size doesn't allocate.
+        if (vertexBuffer == null || vertexBuffer.capacity() < quads * COMPONENTS_PER_QUAD) {
+            vertexBuffer = BufferUtils.createIntBuffer(textures.length * COMPONENTS_PER_QUAD);
+            indexBuffer = BufferUtils.createIntBuffer(textures.length * 6);
+        }
+
+        vertexBuffer.clear();
+        indexBuffer.clear();
+
+        int written = 0;
+        for (int r = 0; r < runTextures.size(); r++) {
+            Texture texture = runTextures.get(r);
+            runOffsets[r] = written * 6;
+
+            for (int i = 0; i < quads; i++) {
+                if (textures[i] == texture) {
+                    vertexBuffer.put(vertices, i * COMPONENTS_PER_QUAD, COMPONENTS_PER_QUAD);
+
+                    int vi = written * 4;
+                    indexBuffer.put(vi).put(vi + 1).put(vi + 2);
+                    indexBuffer.put(vi).put(vi + 2).put(vi + 3);
+                    written++;
+                }
+            }
+
+            runCounts[r] = written * 6 - runOffsets[r];
+        }
+
+        vertexBuffer.flip();
+        indexBuffer.flip();
+
+        RenderState state = Moka.getRenderer().getState();
+        state.bindVertexArray(vao);
+
+        state.bindBuffer(GL_ARRAY_BUFFER, vbo);
+        backend.bufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
+        backend.bufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+
+        uploadedQuads = quads;
+    }
+
+    /**
+     * Draws the batch, one draw call for each texture. The batch shader has to be bound.
+     */
+    public void render()
+    {
+        if (runTextures.isEmpty()) {
+            return;
+        }
+
+        Moka.getRenderer().getState().bindVertexArray(vao);
+
+        for (int r = 0; r < runTextures.size(); r++) {
+            runTextures.get(r).bind();
+            backend.drawElements(runCounts[r], runOffsets[r] * 4L);
+            stats.countDraw(runCounts[r] / 6 * 4);
+        }
+    }
+
+    public void dispose()
+    {
+        RenderState state = Moka.getRenderer().getState();
+        state.deleteBuffer(vbo);
+        state.deleteBuffer(ibo);
+        state.deleteVertexArray(vao);
+    }
+
+    /**
+     * @return how many quads where uploaded by the last {@link #end()}.
+     */
+    public int getQuadCount()
+    {
+        return uploadedQuads;
+    }
+
+    public boolean isEmpty()
+    {
+        return runTextures.isEmpty();
+    }
+}
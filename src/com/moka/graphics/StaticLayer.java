@@ -0,0 +1,111 @@
+package com.moka.graphics;
+
+import com.moka.scene.entity.Entity;
+
+import java.util.List;
+
+/**
+ * The static drawables of a layer (see {@link DrawableComponent#isStatic()}) kept in a
+ * {@link StaticBatch}, so their vertices are only generated and uploaded again when one of them
+ * changes, moves, or stops being static, or when the entities of the layer change.
+ * <p>
+ * Checking for changes only reads a flag and the version of the transform of every static
+ * drawable, so a change made in any fixed step before the frame is seen.
+ *
+ * @author Shelo
+ */
+public class StaticLayer
+{
+    private final TransformVersions built = new TransformVersions();
+    private StaticBatch batch;
+    private boolean valid;
+
+    /**
+     * Forces the static drawables to be built again the next time they are drawn.
+     */
+    public void invalidate()
+    {
+        valid = false;
+    }
+
+    /**
+     * Builds the static batch again if something changed.
+     *
+     * @param entities the entities of the layer.
+     * @return true if the layer has static drawables to draw.
+     */
+    public boolean update(List<Entity> entities)
+    {
+        int count = 0;
+        boolean changed = !valid;
+
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+
+            if (isStatic(entity)) {
+                changed |= entity.getDrawable().hasChanged() || built.hasChanged(count, entity);
+                count++;
+            }
+        }
+
+        if (changed || count != built.getCount()) {
+            build(entities, count);
+        }
+
+        return count > 0;
+    }
+
+    private void build(List<Entity> entities, int count)
+    {
+        built.setCount(count);
+        valid = true;
+
+        if (count == 0) {
+            // keep the buffers, the layer may have static drawables again.
+            if (batch != null) {
+                batch.begin();
+                batch.end();
+            }
+
+            return;
+        }
+
+        if (batch == null) {
+            batch = new StaticBatch();
+        }
+
+        batch.begin();
+
+        for (int i = 0, index = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+
+            if (isStatic(entity)) {
+                built.set(index++, entity);
+                entity.getDrawable().buildStatic(batch);
+                entity.getDrawable().clearChanged();
+            }
+        }
+
+        batch.end();
+    }
+
+    private boolean isStatic(Entity entity)
+    {
+        return entity.hasDrawable() && entity.getDrawable().isEnabled() && entity.getDrawable().isStatic();
+    }
+
+    public StaticBatch getBatch()
+    {
+        return batch;
+    }
+
+    public void dispose()
+    {
+        if (batch != null) {
+            batch.dispose();
+            batch = null;
+        }
+
+        valid = false;
+    }
+}
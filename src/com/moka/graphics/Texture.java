@@ -9,7 +9,19 @@ import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
 
+/**
+ * A texture in video memory. Textures loaded from a file can be evicted by the
+ * {@link TextureManager} when the memory budget is exceeded, and are loaded again when bound.
+ * Anything that keeps a texture for a long time should {@link #acquire()} it and
+ * {@link #release()} it afterwards, so the texture is not evicted while it's needed.
+ * <p>
+ * Textures can also be loaded without stopping the game, see {@link #loadAsync}. Their size is
+ * known at once, but a transparent placeholder is bound in their place until they are ready.
+ *
+ * @author Shelo
+ */
 public class Texture
 {
     public enum Filter
@@ -22,42 +34,155 @@ public class Texture
     private int height;
     private int width;
 
+    private String filePath;
+    private Filter filter;
+    private int references;
+    private long lastUsed;
+    private volatile boolean ready = true;
+    private volatile boolean disposed;
+
     public Texture(String filePath, Filter filter)
     {
-        if (filePath != null) {
-            IntBuffer width = BufferUtils.createIntBuffer(1);
-            IntBuffer height = BufferUtils.createIntBuffer(1);
-            IntBuffer components = BufferUtils.createIntBuffer(1);
+        if (filePath == null) {
+            throw new JMokaException("The image's filePath cannot be null.");
+        }
 
-            ByteBuffer imageBuffer = STBImage.stbi_load(filePath, width, height, components, 4);
+        this.filePath = filePath;
+        this.filter = filter;
+        load(false);
+    }
 
-            if (imageBuffer == null)
-                throw new JMokaException("Image " + filePath + " does not exists.");
+    public Texture(String filePath)
+    {
+        this(filePath, Filter.NEAREST);
+    }
+
+    /**
+     * Creates a texture whose image is decoded and uploaded later, by the {@link TextureStreamer}.
+     */
+    private Texture(String filePath, Filter filter, int width, int height)
+    {
+        this.filePath = filePath;
+        this.filter = filter;
+        this.width = width;
+        this.height = height;
+        ready = false;
+    }
 
-            textureId = glGenTextures();
-            glBindTexture(GL_TEXTURE_2D, textureId);
+    /**
+     * Loads a texture without stopping the game: the image is decoded by another thread and
+     * uploaded in small parts during the next frames (see {@link TextureStreamer}). Only the
+     * header of the image is read now, so the size of the texture is known at once.
+     *
+     * @param filePath path to the image.
+     * @param filter   the filter to use.
+     * @return the texture, not ready yet.
+     */
+    public static Texture loadAsync(String filePath, Filter filter)
+    {
+        if (filePath == null) {
+            throw new JMokaException("The image's filePath cannot be null.");
+        }
 
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        IntBuffer width = BufferUtils.createIntBuffer(1);
+        IntBuffer height = BufferUtils.createIntBuffer(1);
+        IntBuffer components = BufferUtils.createIntBuffer(1);
 
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, getFilter(filter));
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, getFilter(filter));
+        if (STBImage.stbi_info(filePath, width, height, components) == 0)
+            throw new JMokaException("Image " + filePath + " does not exists.");
 
-            this.width = width.get();
-            this.height = height.get();
+        Texture texture = new Texture(filePath, filter, width.get(), height.get());
+        Moka.getRenderer().getTextureStreamer().decode(texture);
+        return texture;
+    }
 
-            glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, this.width, this.height, 0, GL_RGBA,
-                    GL_UNSIGNED_BYTE, imageBuffer);
+    /**
+     * Creates a texture of the given size whose pixels are uploaded later with
+     * {@link TextureStreamer#upload}, for images decoded by other means.
+     *
+     * @param width  width in pixels.
+     * @param height height in pixels.
+     * @param filter the filter to use.
+     * @return the texture, not ready yet.
+     */
+    public static Texture createAsync(int width, int height, Filter filter)
+    {
+        return new Texture(null, filter, width, height);
+    }
 
-            STBImage.stbi_image_free(imageBuffer);
-        } else {
-            throw new JMokaException("The image's filePath cannot be null.");
-        }
+    /**
+     * Creates a texture with the given RGBA pixels.
+     */
+    Texture(int width, int height, Filter filter, ByteBuffer pixels)
+    {
+        create(width, height, filter, GL_CLAMP_TO_EDGE, pixels);
+        Moka.getRenderer().getTextureManager().loaded(this, false);
     }
 
-    public Texture(String filePath)
+    /**
+     * Creates an empty texture, meant to be drawn into (see {@link FrameBuffer}).
+     *
+     * @param width  width in pixels.
+     * @param height height in pixels.
+     */
+    public Texture(int width, int height, Filter filter)
     {
-        this(filePath, Filter.NEAREST);
+        create(width, height, filter, GL_CLAMP_TO_EDGE, null);
+        Moka.getRenderer().getTextureManager().loaded(this, false);
+    }
+
+    private void load(boolean reload)
+    {
+        RenderBackend backend = Moka.getRenderer().getBackend();
+        IntBuffer width = BufferUtils.createIntBuffer(1);
+        IntBuffer height = BufferUtils.createIntBuffer(1);
+
+        ByteBuffer imageBuffer = backend.loadImage(filePath, width, height);
+
+        if (imageBuffer == null)
+            throw new JMokaException("Image " + filePath + " does not exists.");
+
+        create(width.get(), height.get(), filter, GL_REPEAT, imageBuffer);
+
+        backend.freeImage(imageBuffer);
+
+        Moka.getRenderer().getTextureManager().loaded(this, reload);
+    }
+
+    private void create(int width, int height, Filter filter, int wrap, ByteBuffer pixels)
+    {
+        RenderBackend backend = Moka.getRenderer().getBackend();
+
+        this.width = width;
+        this.height = height;
+
+        textureId = backend.genTexture();
+        Moka.getRenderer().bindTexture(textureId);
+
+        backend.texParameter(GL_TEXTURE_WRAP_S, wrap);
+        backend.texParameter(GL_TEXTURE_WRAP_T, wrap);
+
+        backend.texParameter(GL_TEXTURE_MIN_FILTER, getFilter(filter));
+        backend.texParameter(GL_TEXTURE_MAG_FILTER, getFilter(filter));
+
+        backend.texImage(width, height, pixels);
+    }
+
+    /**
+     * Creates the empty texture that the streamer uploads the image into.
+     */
+    void allocate()
+    {
+        create(width, height, filter, filePath == null ? GL_CLAMP_TO_EDGE : GL_REPEAT, null);
+    }
+
+    /**
+     * Called by the streamer once every row was uploaded.
+     */
+    void uploaded()
+    {
+        ready = true;
+        Moka.getRenderer().getTextureManager().loaded(this, false);
     }
 
     private int getFilter(Filter filter)
@@ -69,11 +194,148 @@ public class Texture
         return GL_LINEAR;
     }
 
+    /**
+     * Binds the texture, loading it again first if it was evicted.
+     */
     public void bind()
     {
+        if (!ready) {
+            Moka.getRenderer().getTextureStreamer().bindPlaceholder();
+            return;
+        }
+
+        if (textureId == 0 && filePath != null) {
+            load(true);
+        }
+
+        Moka.getRenderer().getTextureManager().touch(this);
         Moka.getRenderer().bindTexture(textureId);
     }
 
+    /**
+     * Marks the texture as needed, it will not be evicted until every acquire is released.
+     */
+    public void acquire()
+    {
+        references++;
+    }
+
+    /**
+     * Releases a previous {@link #acquire()}.
+     */
+    public void release()
+    {
+        if (references == 0)
+            throw new JMokaException("Texture.release: the texture was not acquired.");
+
+        references--;
+    }
+
+    /**
+     * Frees the video memory, the texture is loaded again the next time it's bound.
+     */
+    void evict()
+    {
+        Moka.getRenderer().getState().deleteTexture(textureId);
+        Moka.getRenderer().getTextureManager().unloaded(this);
+        textureId = 0;
+    }
+
+    /**
+     * Frees the texture memory, the texture cannot be used after this.
+     */
+    public void dispose()
+    {
+        disposed = true;
+
+        if (!ready) {
+            // the streamer drops it, deleting what was uploaded so far.
+            filePath = null;
+            return;
+        }
+
+        if (textureId != 0) {
+            evict();
+        } else if (filePath != null) {
+            Moka.getRenderer().getTextureManager().discarded();
+        }
+
+        filePath = null;
+    }
+
+    /**
+     * Deletes a texture that was disposed before being ready.
+     */
+    void discardUpload()
+    {
+        if (textureId != 0) {
+            Moka.getRenderer().getState().deleteTexture(textureId);
+            textureId = 0;
+        }
+    }
+
+    /**
+     * @return true once the image is in video memory, always true unless loaded asynchronously.
+     */
+    public boolean isReady()
+    {
+        return ready;
+    }
+
+    boolean isDisposed()
+    {
+        return disposed;
+    }
+
+    String getFilePath()
+    {
+        return filePath;
+    }
+
+    /**
+     * @return true if the texture is in video memory.
+     */
+    public boolean isResident()
+    {
+        return textureId != 0;
+    }
+
+    /**
+     * @return true if the texture can be evicted and loaded again.
+     */
+    public boolean isReloadable()
+    {
+        return filePath != null && ready;
+    }
+
+    public int getReferences()
+    {
+        return references;
+    }
+
+    /**
+     * @return estimated video memory used, in bytes.
+     */
+    public long getBytes()
+    {
+        return (long) width * height * 4;
+    }
+
+    long getLastUsed()
+    {
+        return lastUsed;
+    }
+
+    void setLastUsed(long lastUsed)
+    {
+        this.lastUsed = lastUsed;
+    }
+
+    public int getId()
+    {
+        return textureId;
+    }
+
     public int getWidth()
     {
         return width;
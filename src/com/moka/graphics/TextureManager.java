@@ -0,0 +1,163 @@
+package com.moka.graphics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Keeps track of the video memory used by textures, estimated as 4 bytes per pixel, and keeps it
+ * under a budget by evicting the least recently used textures.
+ * <p>
+ * Only textures loaded from a file can be evicted, since they can be loaded again: an evicted
+ * texture is reloaded the next time it is bound. Textures referenced by something alive (see
+ * {@link Texture#acquire()}) or drawn in the last frame are never evicted, so the budget can be
+ * exceeded if the scene really needs it. Evictions happen when a frame starts, never in the middle
+ * of one.
+ *
+ * @author Shelo
+ */
+public class TextureManager
+{
+    private static final Comparator<Texture> LEAST_RECENTLY_USED =
+            (a, b) -> Long.compare(a.getLastUsed(), b.getLastUsed());
+
+    private final ArrayList<Texture> resident = new ArrayList<>();
+    private final ArrayList<Texture> candidates = new ArrayList<>();
+
+    private long budget;
+    private long residentBytes;
+    private long frame;
+
+    private int evictedCount;
+    private int evictions;
+    private int reloads;
+
+    /**
+     * Starts a new frame, evicting textures if the budget was exceeded.
+     */
+    public void newFrame()
+    {
+        frame++;
+
+        if (budget > 0 && residentBytes > budget) {
+            evict();
+        }
+    }
+
+    private void evict()
+    {
+        candidates.clear();
+
+        for (int i = 0; i < resident.size(); i++) {
+            Texture texture = resident.get(i);
+
+            if (texture.isReloadable() && texture.getReferences() == 0
+                    && texture.getLastUsed() < frame - 1) {
+                candidates.add(texture);
+            }
+        }
+
+        candidates.sort(LEAST_RECENTLY_USED);
+
+        for (int i = 0; i < candidates.size() && residentBytes > budget; i++) {
+            candidates.get(i).evict();
+            evictedCount++;
+            evictions++;
+        }
+
+        candidates.clear();
+    }
+
+    void touch(Texture texture)
+    {
+        texture.setLastUsed(frame);
+    }
+
+    void loaded(Texture texture, boolean reload)
+    {
+        resident.add(texture);
+        residentBytes += texture.getBytes();
+        texture.setLastUsed(frame);
+
+        if (reload) {
+            evictedCount--;
+            reloads++;
+        }
+    }
+
+    void unloaded(Texture texture)
+    {
+        if (resident.remove(texture)) {
+            residentBytes -= texture.getBytes();
+        }
+    }
+
+    /**
+     * An evicted texture was disposed, it will never be loaded again.
+     */
+    void discarded()
+    {
+        evictedCount--;
+    }
+
+    /**
+     * @param budget bytes of video memory textures should stay under, 0 for no limit.
+     */
+    public void setBudget(long budget)
+    {
+        this.budget = budget;
+    }
+
+    public long getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * @return estimated bytes of video memory used by textures.
+     */
+    public long getResidentBytes()
+    {
+        return residentBytes;
+    }
+
+    public int getResidentCount()
+    {
+        return resident.size();
+    }
+
+    /**
+     * @return textures evicted right now, waiting to be used again.
+     */
+    public int getEvictedCount()
+    {
+        return evictedCount;
+    }
+
+    /**
+     * @return textures evicted since the start.
+     */
+    public int getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * @return evicted textures that had to be loaded again since the start.
+     */
+    public int getReloads()
+    {
+        return reloads;
+    }
+
+    @Override
+    public String toString()
+    {
+        String text = String.format("%d textures, %.1fMB", resident.size(), residentBytes / (1024.0 * 1024.0));
+
+        if (budget > 0) {
+            text += String.format(" of %.1fMB", budget / (1024.0 * 1024.0));
+        }
+
+        return text + ", " + evictedCount + " evicted, " + reloads + " reloads";
+    }
+}
@@ -0,0 +1,305 @@
+package com.moka.graphics;
+
+import com.moka.core.Moka;
+import com.moka.utils.JMokaException;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.stb.STBImage;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+
+/**
+ * Loads textures without stopping the game (see {@link Texture#loadAsync}). Images are decoded by
+ * worker threads, then uploaded by the renderer at the start of every frame, a few rows at a time
+ * until the time budget of the frame is spent.
+ * <p>
+ * Every part is copied into a pixel buffer object and uploaded from there, so the driver copies
+ * it to the texture without making the frame wait. The buffer is orphaned before being mapped, so
+ * mapping it never waits for the upload of the previous part either.
+ *
+ * @author Shelo
+ */
+public class TextureStreamer
+{
+    // default time spent uploading every frame, in nanoseconds.
+    private static final long DEFAULT_BUDGET = 2_000_000;
+
+    // bytes uploaded at once, at least a whole row is uploaded.
+    private static final int PART_SIZE = 256 * 1024;
+
+    private static class Upload
+    {
+        final Texture texture;
+        final String filePath;
+        ByteBuffer pixels;
+        boolean decoded;
+        int row;
+
+        Upload(Texture texture, String filePath, ByteBuffer pixels, boolean decoded)
+        {
+            this.texture = texture;
+            this.filePath = filePath;
+            this.pixels = pixels;
+            this.decoded = decoded;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Upload> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private ExecutorService decoders;
+    private Upload current;
+    private long budget = DEFAULT_BUDGET;
+    private int pixelBuffer;
+    private Texture placeholder;
+    private int placeholderBinds;
+
+    /**
+     * Decodes the image of the texture on a worker thread.
+     */
+    void decode(Texture texture)
+    {
+        if (decoders == null) {
+            decoders = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "jmoka-decoder");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        pending.incrementAndGet();
+        String filePath = texture.getFilePath();
+
+        decoders.execute(() -> {
+            IntBuffer width = BufferUtils.createIntBuffer(1);
+            IntBuffer height = BufferUtils.createIntBuffer(1);
+            IntBuffer components = BufferUtils.createIntBuffer(1);
+
+            ByteBuffer pixels = STBImage.stbi_load(filePath, width, height, components, 4);
+            ready.add(new Upload(texture, filePath, pixels, true));
+        });
+    }
+
+    /**
+     * Uploads already decoded pixels into a texture created with {@link Texture#createAsync}. Can
+     * be called from any thread, the buffer must not be changed until the texture is ready.
+     *
+     * @param texture the texture.
+     * @param pixels  RGBA bytes, row by row.
+     */
+    public void upload(Texture texture, ByteBuffer pixels)
+    {
+        if (texture.isReady()) {
+            throw new JMokaException("The texture is already uploaded.");
+        }
+
+        if (pixels.remaining() < texture.getBytes()) {
+            throw new JMokaException("The pixels don't fill the texture.");
+        }
+
+        pending.incrementAndGet();
+        ready.add(new Upload(texture, null, pixels.slice(), false));
+    }
+
+    /**
+     * Uploads decoded images until the budget of this frame is spent, called by the renderer at
+     * the start of every frame. At least one part is uploaded every frame.
+     */
+    public void update()
+    {
+        long start = System.nanoTime();
+
+        do {
+            if (current == null) {
+                current = next();
+
+                if (current == null) {
+                    break;
+                }
+            }
+
+            if (uploadPart(current)) {
+                finish(current);
+                current = null;
+            }
+        } while (System.nanoTime() - start < budget);
+    }
+
+    /**
+     * @return the next decoded image with its texture allocated, or null if there's none.
+     */
+    private Upload next()
+    {
+        Upload upload;
+
+        while ((upload = ready.poll()) != null) {
+            if (begin(upload)) {
+                return upload;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean begin(Upload upload)
+    {
+        if (upload.texture.isDisposed()) {
+            drop(upload);
+            return false;
+        }
+
+        if (upload.pixels == null) {
+            pending.decrementAndGet();
+            throw new JMokaException("Image " + upload.filePath + " could not be decoded.");
+        }
+
+        upload.texture.allocate();
+        return true;
+    }
+
+    /**
+     * @return true if every row of the texture was uploaded.
+     */
+    private boolean uploadPart(Upload upload)
+    {
+        Texture texture = upload.texture;
+
+        if (texture.isDisposed()) {
+            drop(upload);
+            return false;
+        }
+
+        RenderBackend backend = Moka.getRenderer().getBackend();
+        RenderState state = Moka.getRenderer().getState();
+
+        int stride = texture.getWidth() * 4;
+        int rows = Math.min(Math.max(1, PART_SIZE / stride), texture.getHeight() - upload.row);
+        int size = rows * stride;
+
+        if (pixelBuffer == 0) {
+            pixelBuffer = backend.genBuffer();
+        }
+
+        state.bindBuffer(GL_PIXEL_UNPACK_BUFFER, pixelBuffer);
+        backend.bufferData(GL_PIXEL_UNPACK_BUFFER, Math.max(size, PART_SIZE), GL_STREAM_DRAW);
+
+        ByteBuffer source = upload.pixels.duplicate();
+        source.position(upload.row * stride).limit(upload.row * stride + size);
+        backend.mapBuffer(GL_PIXEL_UNPACK_BUFFER, size).put(source);
+        backend.unmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+
+        Moka.getRenderer().bindTexture(texture.getId());
+        backend.texSubImage(upload.row, texture.getWidth(), rows, 0);
+
+        // other uploads read from client memory, which only works with no unpack buffer bound.
+        state.bindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+
+        upload.row += rows;
+        return upload.row == texture.getHeight();
+    }
+
+    private void finish(Upload upload)
+    {
+        free(upload);
+        upload.texture.uploaded();
+        pending.decrementAndGet();
+    }
+
+    private void drop(Upload upload)
+    {
+        free(upload);
+        upload.texture.discardUpload();
+        pending.decrementAndGet();
+
+        if (current == upload) {
+            current = null;
+        }
+    }
+
+    private void free(Upload upload)
+    {
+        if (upload.decoded && upload.pixels != null) {
+            STBImage.stbi_image_free(upload.pixels);
+        }
+
+        upload.pixels = null;
+    }
+
+    /**
+     * @return a transparent texture, bound in place of textures that are not ready.
+     */
+    public Texture getPlaceholder()
+    {
+        if (placeholder == null) {
+            placeholder = new Texture(1, 1, Texture.Filter.NEAREST, BufferUtils.createByteBuffer(4));
+        }
+
+        return placeholder;
+    }
+
+    /**
+     * Changes the time spent uploading every frame.
+     *
+     * @param milliseconds the time, at least one part is uploaded every frame anyway.
+     */
+    public void setBudget(double milliseconds)
+    {
+        budget = (long) (milliseconds * 1e6);
+    }
+
+    public double getBudget()
+    {
+        return budget / 1e6;
+    }
+
+    /**
+     * Binds the placeholder in place of a texture that is not ready.
+     */
+    void bindPlaceholder()
+    {
+        placeholderBinds++;
+        Moka.getRenderer().bindTexture(getPlaceholder().getId());
+    }
+
+    /**
+     * @return how many times the placeholder was bound, anything drawn while it changes is not
+     * final and must not be kept, like a cached layer.
+     */
+    public int getPlaceholderBinds()
+    {
+        return placeholderBinds;
+    }
+
+    /**
+     * @return textures that are not ready yet, useful for loading screens.
+     */
+    public int getPending()
+    {
+        return pending.get();
+    }
+
+    public void dispose()
+    {
+        if (decoders != null) {
+            decoders.shutdownNow();
+            decoders = null;
+        }
+
+        if (pixelBuffer != 0) {
+            Moka.getRenderer().getState().deleteBuffer(pixelBuffer);
+            pixelBuffer = 0;
+        }
+
+        if (placeholder != null) {
+            placeholder.dispose();
+            placeholder = null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.moka.graphics;
+
+import com.moka.scene.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the entities something was built from, in order, with the versions of their
+ * transforms at that time (see {@link com.moka.scene.entity.Transform#getVersion()}), so it can
+ * tell later if one of them was moved, rotated or resized, or if they are not the same entities.
+ *
+ * @author Shelo
+ */
+class TransformVersions
+{
+    private Entity[] entities = new Entity[0];
+    private int[] versions = new int[0];
+    private int count;
+
+    /**
+     * @return true if the entity at the given place is another one, or its transform changed.
+     */
+    boolean hasChanged(int index, Entity entity)
+    {
+        return index >= count || entities[index] != entity
+                || versions[index] != entity.getTransform().getVersion();
+    }
+
+    void set(int index, Entity entity)
+    {
+        if (index >= entities.length) {
+            int length = Math.max(index + 1, entities.length * 2);
+            entities = Arrays.copyOf(entities, length);
+            versions = Arrays.copyOf(versions, length);
+        }
+
+        entities[index] = entity;
+        versions[index] = entity.getTransform().getVersion();
+    }
+
+    /**
+     * Sets how many entities were used, the ones after them are forgotten.
+     */
+    void setCount(int count)
+    {
+        for (int i = count; i < this.count; i++) {
+            entities[i] = null;
+        }
+
+        this.count = count;
+    }
+
+    int getCount()
+    {
+        return count;
+    }
+}
@@ -37,6 +37,12 @@ public class Vertex
         return t;
     }
 
+    public void setTexCoords(float s, float t)
+    {
+        this.s = s;
+        this.t = t;
+    }
+
     public Vector2 getXY()
     {
         return xy;
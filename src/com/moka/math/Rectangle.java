@@ -110,4 +110,36 @@ public class Rectangle
         this.width = z;
         this.height = w;
     }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj instanceof Rectangle)
+        {
+            // compared as hashCode does, so -0 and 0 differ and NaN equals itself.
+            Rectangle other = (Rectangle) obj;
+            return Float.compare(left, other.left) == 0 && Float.compare(top, other.top) == 0
+                    && Float.compare(width, other.width) == 0 && Float.compare(height, other.height) == 0;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = Float.floatToIntBits(left);
+        result = 31 * result + Float.floatToIntBits(top);
+        result = 31 * result + Float.floatToIntBits(width);
+        result = 31 * result + Float.floatToIntBits(height);
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "(" + left + ", " + top + ", " + width + ", " + height + ")";
+    }
 }
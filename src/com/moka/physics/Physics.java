@@ -2,21 +2,39 @@ package com.moka.physics;
 
 import com.moka.components.Area;
 import com.moka.core.SubEngine;
+import com.moka.physics.arcade.ArcadeWorld;
 import org.jbox2d.callbacks.ContactImpulse;
 import org.jbox2d.callbacks.ContactListener;
 import org.jbox2d.collision.Manifold;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.World;
 import org.jbox2d.dynamics.contacts.Contact;
 
 import java.util.ArrayList;
 
+/**
+ * Steps the JBox2D world and copies the bodies back to their entities.
+ * <p>
+ * Only the bodies that can move are copied back, and only while they are awake: static bodies
+ * never are, and a body is left out as soon as JBox2D puts it to sleep, after copying its final
+ * position. A body is copied again when it wakes up through a contact, through the velocity
+ * setters of {@link PhysicsBody}, or through {@link #wake(PhysicsBody)}, so the cost of every
+ * step depends on the bodies that are moving.
+ *
+ * @author Shelo
+ */
 public class Physics extends SubEngine implements ContactListener
 {
     private World world;
     private Vec2 gravity = new Vec2(0, - 10.0f);
-    private ArrayList<PhysicsBody> physicsBodies;
+    private ArrayList<PhysicsBody> awakeBodies;
+    private ArrayList<PhysicsBody> followingBodies;
+
+    // the body being destroyed, its contacts end but it must not be tracked again.
+    private PhysicsBody destroying;
+    private final ArcadeWorld arcadeWorld = new ArcadeWorld();
 
     public void create()
     {
@@ -24,18 +42,100 @@ public class Physics extends SubEngine implements ContactListener
         world.setAllowSleep(true);
         world.setContactListener(this);
 
-        physicsBodies = new ArrayList<>();
+        awakeBodies = new ArrayList<>();
+        followingBodies = new ArrayList<>();
     }
 
     public void simulate()
     {
-        for (PhysicsBody physicsBody : physicsBodies)
-            physicsBody.sync();
+        for (int i = 0; i < followingBodies.size(); i++)
+            followingBodies.get(i).sync();
 
         world.step(getTime().getFixedDelta(), 6, 3);
 
-        for (PhysicsBody physicsBody : physicsBodies)
+        // backwards, the last body takes the place of the ones that fell asleep.
+        for (int i = awakeBodies.size() - 1; i >= 0; i--)
+        {
+            PhysicsBody physicsBody = awakeBodies.get(i);
             physicsBody.fixedUpdate();
+
+            // JBox2D also wakes bodies when others get near, without any callback, but they
+            // don't move until a contact touches them and it's reported.
+            if (!physicsBody.getBody().isAwake())
+                untrack(physicsBody);
+        }
+
+        arcadeWorld.step(getTime().getFixedDelta());
+    }
+
+    /**
+     * Wakes a body up so it's simulated and copied back to its entity again. Needed only when the
+     * JBox2D body is changed directly, for example applying a force to it.
+     *
+     * @param physicsBody the body.
+     */
+    public void wake(PhysicsBody physicsBody)
+    {
+        if (physicsBody.getBody().getType() != BodyType.STATIC)
+            physicsBody.getBody().setAwake(true);
+
+        track(physicsBody);
+    }
+
+    /**
+     * Starts copying a body back every step, if it can move and it's awake.
+     */
+    void track(PhysicsBody physicsBody)
+    {
+        Body body = physicsBody.getBody();
+
+        if (physicsBody.awakeIndex != -1 || body.getType() == BodyType.STATIC || !body.isAwake())
+            return;
+
+        physicsBody.awakeIndex = awakeBodies.size();
+        awakeBodies.add(physicsBody);
+    }
+
+    private void untrack(PhysicsBody physicsBody)
+    {
+        int index = physicsBody.awakeIndex;
+
+        if (index == -1)
+            return;
+
+        PhysicsBody last = awakeBodies.remove(awakeBodies.size() - 1);
+        if (last != physicsBody)
+        {
+            last.awakeIndex = index;
+            awakeBodies.set(index, last);
+        }
+
+        physicsBody.awakeIndex = -1;
+    }
+
+    /**
+     * @return the bodies copied back to their entities every step.
+     */
+    public int getAwakeCount()
+    {
+        return awakeBodies.size();
+    }
+
+    /**
+     * @return every body in the world.
+     */
+    public int getBodyCount()
+    {
+        return world.getBodyCount();
+    }
+
+    /**
+     * @return the world of the arcade bodies, a cheaper alternative to JBox2D when only overlaps
+     * are needed.
+     */
+    public ArcadeWorld getArcadeWorld()
+    {
+        return arcadeWorld;
     }
 
     public void setGravity(float x, float y)
@@ -50,9 +150,14 @@ public class Physics extends SubEngine implements ContactListener
 
     public Body add(PhysicsBody physicsBody)
     {
-        physicsBodies.add(physicsBody);
         Body body = world.createBody(physicsBody.getBodyDefinition());
         body.createFixture(physicsBody.getFixture());
+        physicsBody.setBody(body);
+
+        if (physicsBody.followsEntity())
+            followingBodies.add(physicsBody);
+
+        track(physicsBody);
         return body;
     }
 
@@ -62,6 +167,10 @@ public class Physics extends SubEngine implements ContactListener
         PhysicsBody bodyA = (PhysicsBody) contact.getFixtureA().getUserData();
         PhysicsBody bodyB = (PhysicsBody) contact.getFixtureB().getUserData();
 
+        // a new contact wakes both bodies.
+        track(bodyA);
+        track(bodyB);
+
         boolean areaA = bodyA instanceof Area;
         boolean areaB = bodyB instanceof Area;
 
@@ -85,6 +194,18 @@ public class Physics extends SubEngine implements ContactListener
         PhysicsBody bodyA = (PhysicsBody) contact.getFixtureA().getUserData();
         PhysicsBody bodyB = (PhysicsBody) contact.getFixtureB().getUserData();
 
+        // JBox2D doesn't wake the bodies touching a destroyed one, they would float where they
+        // were. Otherwise a contact ending during a step can wake its bodies.
+        if (bodyA == destroying)
+            wake(bodyB);
+        else if (bodyB == destroying)
+            wake(bodyA);
+        else
+        {
+            track(bodyA);
+            track(bodyB);
+        }
+
         if (bodyA instanceof Area)
             ((Area) bodyA).onExit(bodyB.getEntity());
         else if (bodyB instanceof Area)
@@ -100,11 +221,20 @@ public class Physics extends SubEngine implements ContactListener
     @Override
     public void postSolve(Contact contact, ContactImpulse contactImpulse)
     {
-
+        // awake bodies wake the sleeping ones they touch during the step.
+        track((PhysicsBody) contact.getFixtureA().getUserData());
+        track((PhysicsBody) contact.getFixtureB().getUserData());
     }
 
     public void destroy(PhysicsBody physicsBody)
     {
+        untrack(physicsBody);
+
+        if (physicsBody.followsEntity())
+            followingBodies.remove(physicsBody);
+
+        destroying = physicsBody;
         world.destroyBody(physicsBody.getBody());
+        destroying = null;
     }
 }
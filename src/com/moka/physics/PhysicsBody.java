@@ -31,6 +31,17 @@ public abstract class PhysicsBody extends Component
     private int maskBits = '\uffff';
     private int categoryBits = 1;
 
+    /**
+     * Position in the awake bodies of the physics, -1 if it's not there.
+     */
+    int awakeIndex = -1;
+
+    // reused to give vectors to JBox2D, it copies them.
+    private final Vec2 scratch = new Vec2();
+
+    // the angle last copied to the transform, so cos and sin are only calculated when it turns.
+    private float copiedAngle = Float.NaN;
+
     public enum Shapes
     {
         BOX,
@@ -62,22 +73,41 @@ public abstract class PhysicsBody extends Component
         fixture.filter.categoryBits = categoryBits;
         defineFixture(fixture);
 
-        body = Moka.getApplication().getPhysics().add(this);
+        Moka.getApplication().getPhysics().add(this);
     }
 
     protected abstract void defineFixture(FixtureDef fixture);
 
     protected abstract void defineBody(BodyDef bodyDefinition);
 
+    /**
+     * Called before every step if {@link #followsEntity()}, to move the body to its entity.
+     */
     public void sync()
     {
 
     }
 
+    /**
+     * @return true if the body is moved by its entity, only these bodies are synchronized before
+     * every step.
+     */
+    protected boolean followsEntity()
+    {
+        return false;
+    }
+
     public void fixedUpdate()
     {
-        getTransform().setPosition(toPixel(body.getPosition().x), toPixel(body.getPosition().y));
-        getTransform().setRotationRadians(body.getAngle());
+        Vec2 position = body.getPosition();
+        getTransform().setPosition(toPixel(position.x), toPixel(position.y));
+
+        float angle = body.getAngle();
+        if (angle != copiedAngle)
+        {
+            copiedAngle = angle;
+            getTransform().setRotationRadians(angle);
+        }
     }
 
     private void shapeAs()
@@ -128,11 +158,22 @@ public abstract class PhysicsBody extends Component
         return v / 50;
     }
 
+    /**
+     * Gets the JBox2D body. If it's woken up directly, for example applying a force to it, call
+     * {@link Physics#wake(PhysicsBody)} so its entity follows it again.
+     *
+     * @return the body.
+     */
     public Body getBody()
     {
         return body;
     }
 
+    void setBody(Body body)
+    {
+        this.body = body;
+    }
+
     public BodyDef getBodyDefinition()
     {
         return bodyDefinition;
@@ -143,9 +184,34 @@ public abstract class PhysicsBody extends Component
         return fixture;
     }
 
+    /**
+     * Sets the velocity in meters per second. Does nothing if the body already has it, so it can
+     * be called every frame without waking the body up.
+     *
+     * @param x horizontal velocity.
+     * @param y vertical velocity.
+     */
     public void setLinearVelocity(float x, float y)
     {
-        body.setLinearVelocity(new Vec2(x, y));
+        Vec2 velocity = body.getLinearVelocity();
+
+        if (velocity.x == x && velocity.y == y)
+            return;
+
+        scratch.set(x, y);
+        body.setLinearVelocity(scratch);
+        Moka.getPhysics().track(this);
+    }
+
+    /**
+     * Sets the velocity in pixels per second, see {@link #setLinearVelocity(float, float)}.
+     *
+     * @param x horizontal velocity.
+     * @param y vertical velocity.
+     */
+    public void setVelocity(float x, float y)
+    {
+        setLinearVelocity(toPos(x), toPos(y));
     }
 
     /**
@@ -156,6 +222,7 @@ public abstract class PhysicsBody extends Component
     public void setAngularVelocity(float radians)
     {
         body.setAngularVelocity(radians);
+        Moka.getPhysics().track(this);
     }
 
     /**
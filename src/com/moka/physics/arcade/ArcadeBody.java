@@ -0,0 +1,216 @@
+package com.moka.physics.arcade;
+
+import com.moka.core.Moka;
+import com.moka.math.Vector2;
+import com.moka.scene.entity.Component;
+import com.moka.scene.entity.ComponentAttribute;
+import com.moka.scene.entity.Entity;
+import com.moka.triggers.Trigger;
+
+/**
+ * A collider of the arcade physics (see {@link ArcadeWorld}): a box or a circle centered on the
+ * entity, moved by its velocity every physics step. It doesn't push nor get pushed, it only tells
+ * when it starts, keeps and stops overlapping other bodies, which is all most shooters need and
+ * costs far less than a JBox2D body.
+ *
+ * @author Shelo
+ */
+public class ArcadeBody extends Component
+{
+    public enum Shapes
+    {
+        BOX,
+        CIRCLE,
+    }
+
+    private Trigger<Entity> onEnterTrigger;
+    private Trigger<Entity> onStayTrigger;
+    private Trigger<Entity> onExitTrigger;
+
+    private Shapes shapeType = Shapes.BOX;
+    private float width;
+    private float height;
+    private Collidable shape;
+    private final Vector2 velocity = new Vector2();
+    private boolean isStatic;
+    private int categoryBits = 1;
+    private int maskBits = '\uffff';
+
+    // managed by the world.
+    int id = -1;
+    int index = -1;
+
+    @Override
+    public void onCreate()
+    {
+        if (width <= 0) {
+            raiseError("The body needs dimensions.");
+        }
+
+        Vector2 position = getTransform().getPosition();
+
+        if (shapeType == Shapes.CIRCLE) {
+            shape = new Circle(position.x, position.y, width);
+        } else {
+            shape = new AxisAlignedBoundingBox(position.x - width / 2, position.y - height / 2,
+                    position.x + width / 2, position.y + height / 2);
+        }
+
+        Moka.getPhysics().getArcadeWorld().add(this);
+    }
+
+    /**
+     * Moves the entity by the velocity and the shape with it, called by the world every step.
+     */
+    void integrate(float delta)
+    {
+        if (!isStatic && (velocity.x != 0 || velocity.y != 0)) {
+            getTransform().move(velocity.x * delta, velocity.y * delta);
+        }
+
+        Vector2 position = getTransform().getPosition();
+        shape.moveTo(position.x, position.y);
+    }
+
+    /**
+     * Called when another body starts overlapping this one.
+     */
+    public void onEnter(Entity other)
+    {
+        callTrigger(onEnterTrigger, other);
+    }
+
+    /**
+     * Called every step while another body overlaps this one, after the step it entered.
+     */
+    public void onStay(Entity other)
+    {
+        callTrigger(onStayTrigger, other);
+    }
+
+    /**
+     * Called when another body stops overlapping this one, or when either of them is removed.
+     */
+    public void onExit(Entity other)
+    {
+        callTrigger(onExitTrigger, other);
+    }
+
+    public Collidable getShape()
+    {
+        return shape;
+    }
+
+    public Vector2 getVelocity()
+    {
+        return velocity;
+    }
+
+    public boolean isStatic()
+    {
+        return isStatic;
+    }
+
+    public int getCategoryBits()
+    {
+        return categoryBits;
+    }
+
+    public int getMaskBits()
+    {
+        return maskBits;
+    }
+
+    /**
+     * @return true if both bodies accept each other through their category and mask bits.
+     */
+    public boolean accepts(ArcadeBody other)
+    {
+        return (categoryBits & other.maskBits) != 0 && (other.categoryBits & maskBits) != 0;
+    }
+
+    /**
+     * Sets the velocity in pixels per second.
+     */
+    @ComponentAttribute("Velocity")
+    public void setVelocity(float x, float y)
+    {
+        velocity.set(x, y);
+    }
+
+    @ComponentAttribute("Shape")
+    public void setShape(Shapes shape)
+    {
+        this.shapeType = shape;
+    }
+
+    /**
+     * Used in case this body is a box.
+     */
+    @ComponentAttribute("Size")
+    public void setSize(float width, float height)
+    {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Used in case this body is a circle.
+     */
+    @ComponentAttribute("Radius")
+    public void setRadius(float radius)
+    {
+        this.width = radius;
+    }
+
+    /**
+     * Static bodies never move by themselves and are never tested against each other, like walls.
+     */
+    @ComponentAttribute("Static")
+    public void setStatic(boolean isStatic)
+    {
+        this.isStatic = isStatic;
+    }
+
+    @ComponentAttribute("CategoryBits")
+    public void setCategoryBits(int categoryBits)
+    {
+        this.categoryBits = categoryBits;
+    }
+
+    @ComponentAttribute("MaskBits")
+    public void setMaskBits(int maskBits)
+    {
+        this.maskBits = maskBits;
+    }
+
+    @ComponentAttribute("OnEnter")
+    public void setOnEnterTrigger(Trigger<Entity> trigger)
+    {
+        onEnterTrigger = trigger;
+    }
+
+    @ComponentAttribute("OnStay")
+    public void setOnStayTrigger(Trigger<Entity> trigger)
+    {
+        onStayTrigger = trigger;
+    }
+
+    @ComponentAttribute("OnExit")
+    public void setOnExitTrigger(Trigger<Entity> trigger)
+    {
+        onExitTrigger = trigger;
+    }
+
+    @Override
+    public void onDestroy()
+    {
+        Moka.getPhysics().getArcadeWorld().remove(this);
+    }
+
+    @Override
+    public void onDispose()
+    {
+        Moka.getPhysics().getArcadeWorld().remove(this);
+    }
+}
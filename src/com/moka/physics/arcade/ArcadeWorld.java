@@ -0,0 +1,367 @@
+package com.moka.physics.arcade;
+
+import com.moka.utils.JMokaException;
+
+import java.util.Arrays;
+
+/**
+ * A lightweight collision world for {@link ArcadeBody} colliders, stepped by the physics engine
+ * next to JBox2D. Every step moves the bodies by their velocity, finds the overlapping pairs and
+ * tells both bodies of a pair when they enter, stay and exit.
+ * <p>
+ * Pairs are found with a uniform grid: every body is listed in the cells its bounds touch, the
+ * list is sorted by cell, and only the bodies sharing a cell are tested. A pair sharing many
+ * cells is only tested in the one at the corner of the area both touch. Bodies are tracked by
+ * ids that don't change while they live, so the pairs of a step can be compared with the pairs
+ * of the previous one. Nothing is allocated in a step once the arrays are big enough.
+ *
+ * @author Shelo
+ */
+public class ArcadeWorld
+{
+    public static final float DEFAULT_CELL_SIZE = 64;
+
+    private float cellSize = DEFAULT_CELL_SIZE;
+
+    // bodies in the world, without holes.
+    private ArcadeBody[] bodies = new ArcadeBody[64];
+    private int[] cellMinX = new int[64];
+    private int[] cellMinY = new int[64];
+    private int count;
+
+    // bodies by id, removed bodies stay until their exits are sent.
+    private ArcadeBody[] byId = new ArcadeBody[64];
+    private int[] freeIds = new int[64];
+    private int freeCount;
+    private int nextId;
+    private int[] removedIds = new int[16];
+    private int removedCount;
+
+    // every entry is the hash of a cell and the index of a body in it.
+    private long[] entries = new long[256];
+    private int entryCount;
+
+    // pairs of ids, the lower one first.
+    private long[] pairs = new long[64];
+    private int pairCount;
+    private long[] previousPairs = new long[64];
+    private int previousCount;
+
+    private int pairTests;
+
+    public void add(ArcadeBody body)
+    {
+        if (body.id != -1 && body.index != -1) {
+            return;
+        }
+
+        if (count == bodies.length) {
+            bodies = Arrays.copyOf(bodies, count * 2);
+            cellMinX = Arrays.copyOf(cellMinX, count * 2);
+            cellMinY = Arrays.copyOf(cellMinY, count * 2);
+        }
+
+        // a body removed and added back in the same step keeps its id.
+        if (body.id == -1) {
+            int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+
+            if (id == byId.length) {
+                byId = Arrays.copyOf(byId, id * 2);
+            }
+
+            body.id = id;
+            byId[id] = body;
+        }
+
+        body.index = count;
+        bodies[count++] = body;
+    }
+
+    /**
+     * Removes a body, the bodies it overlapped receive their exit on the next step.
+     */
+    public void remove(ArcadeBody body)
+    {
+        if (body.id == -1 || byId[body.id] != body || body.index == -1) {
+            return;
+        }
+
+        // the last body takes its place.
+        ArcadeBody last = bodies[--count];
+        bodies[body.index] = last;
+        last.index = body.index;
+        bodies[count] = null;
+        body.index = -1;
+
+        if (removedCount == removedIds.length) {
+            removedIds = Arrays.copyOf(removedIds, removedCount * 2);
+        }
+
+        removedIds[removedCount++] = body.id;
+    }
+
+    /**
+     * Moves every body and sends the events of the pairs that entered, stayed and exited.
+     *
+     * @param delta the time of the step in seconds.
+     */
+    public void step(float delta)
+    {
+        for (int i = 0; i < count; i++) {
+            bodies[i].integrate(delta);
+        }
+
+        // bodies removed by the events of this step are still in its pairs, their ids are only
+        // released after the next step sends their exits.
+        int exited = removedCount;
+
+        findCandidates();
+        findPairs();
+        sendEvents();
+        releaseRemoved(exited);
+    }
+
+    /**
+     * Lists every body in the cells its bounds touch, sorted by cell.
+     */
+    private void findCandidates()
+    {
+        entryCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            Collidable shape = bodies[i].getShape();
+            int minX = cell(shape.getMinX());
+            int minY = cell(shape.getMinY());
+            int maxX = cell(shape.getMaxX());
+            int maxY = cell(shape.getMaxY());
+
+            cellMinX[i] = minX;
+            cellMinY[i] = minY;
+
+            int cells = (maxX - minX + 1) * (maxY - minY + 1);
+
+            if (entryCount + cells > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length * 2, entryCount + cells));
+            }
+
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    entries[entryCount++] = (long) hash(x, y) << 32 | i;
+                }
+            }
+        }
+
+        Arrays.sort(entries, 0, entryCount);
+    }
+
+    /**
+     * Tests the bodies sharing a cell.
+     */
+    private void findPairs()
+    {
+        pairCount = 0;
+        pairTests = 0;
+
+        int start = 0;
+
+        while (start < entryCount) {
+            int cell = (int) (entries[start] >> 32);
+            int end = start + 1;
+
+            while (end < entryCount && (int) (entries[end] >> 32) == cell) {
+                end++;
+            }
+
+            for (int a = start; a < end; a++) {
+                int first = (int) entries[a];
+
+                for (int b = a + 1; b < end; b++) {
+                    int second = (int) entries[b];
+
+                    // the same body in two cells with the same hash.
+                    if (first != second) {
+                        testPair(first, second, cell);
+                    }
+                }
+            }
+
+            start = end;
+        }
+    }
+
+    private void testPair(int first, int second, int cell)
+    {
+        // only tested in the cell at the corner of the area both bodies touch.
+        if (hash(Math.max(cellMinX[first], cellMinX[second]), Math.max(cellMinY[first], cellMinY[second])) != cell) {
+            return;
+        }
+
+        ArcadeBody a = bodies[first];
+        ArcadeBody b = bodies[second];
+
+        if ((a.isStatic() && b.isStatic()) || !a.accepts(b) || !a.isEnabled() || !b.isEnabled()) {
+            return;
+        }
+
+        Collidable shapeA = a.getShape();
+        Collidable shapeB = b.getShape();
+
+        if (shapeA.getMaxX() < shapeB.getMinX() || shapeA.getMinX() > shapeB.getMaxX()
+                || shapeA.getMaxY() < shapeB.getMinY() || shapeA.getMinY() > shapeB.getMaxY()) {
+            return;
+        }
+
+        pairTests++;
+
+        if (!shapeA.collidesWith(shapeB)) {
+            return;
+        }
+
+        if (pairCount == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairCount * 2);
+        }
+
+        pairs[pairCount++] = a.id < b.id ? (long) a.id << 32 | b.id : (long) b.id << 32 | a.id;
+    }
+
+    /**
+     * Compares the sorted pairs of this step with the ones of the previous step.
+     */
+    private void sendEvents()
+    {
+        Arrays.sort(pairs, 0, pairCount);
+
+        int current = 0;
+        int previous = 0;
+
+        while (current < pairCount || previous < previousCount) {
+            if (previous == previousCount || (current < pairCount && pairs[current] < previousPairs[previous])) {
+                send(pairs[current++], 0);
+            } else if (current == pairCount || previousPairs[previous] < pairs[current]) {
+                send(previousPairs[previous++], 2);
+            } else {
+                send(pairs[current++], 1);
+                previous++;
+            }
+        }
+
+        long[] swap = previousPairs;
+        previousPairs = pairs;
+        pairs = swap;
+        previousCount = pairCount;
+    }
+
+    /**
+     * @param event 0 for enter, 1 for stay and 2 for exit.
+     */
+    private void send(long pair, int event)
+    {
+        ArcadeBody a = byId[(int) (pair >> 32)];
+        ArcadeBody b = byId[(int) pair];
+
+        if (a == null || b == null) {
+            return;
+        }
+
+        dispatch(a, b, event);
+        dispatch(b, a, event);
+    }
+
+    private void dispatch(ArcadeBody body, ArcadeBody other, int event)
+    {
+        // removed bodies only tell the others that they left.
+        if (body.index == -1) {
+            return;
+        }
+
+        switch (event) {
+            case 0:
+                body.onEnter(other.getEntity());
+                break;
+            case 1:
+                body.onStay(other.getEntity());
+                break;
+            default:
+                body.onExit(other.getEntity());
+                break;
+        }
+    }
+
+    /**
+     * Releases the ids of the first bodies removed, keeping the ones removed after them.
+     *
+     * @param exited how many of the removed bodies already sent their exits.
+     */
+    private void releaseRemoved(int exited)
+    {
+        for (int i = 0; i < exited; i++) {
+            int id = removedIds[i];
+
+            // added back, or removed twice.
+            if (byId[id] == null || byId[id].index != -1) {
+                continue;
+            }
+
+            byId[id].id = -1;
+            byId[id] = null;
+
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            }
+
+            freeIds[freeCount++] = id;
+        }
+
+        System.arraycopy(removedIds, exited, removedIds, 0, removedCount - exited);
+        removedCount -= exited;
+    }
+
+    private int cell(float coordinate)
+    {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static int hash(int x, int y)
+    {
+        return x * 0x8da6b343 ^ y * 0xd8163841;
+    }
+
+    /**
+     * Changes the size of the cells of the grid. Cells about the size of the common bodies work
+     * best: smaller ones list big bodies many times, bigger ones test bodies that are far.
+     */
+    public void setCellSize(float cellSize)
+    {
+        if (cellSize <= 0) {
+            throw new JMokaException("The cell size has to be positive.");
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    public float getCellSize()
+    {
+        return cellSize;
+    }
+
+    public int getBodyCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return pairs overlapping after the last step.
+     */
+    public int getPairCount()
+    {
+        return previousCount;
+    }
+
+    /**
+     * @return pairs whose shapes were tested in the last step, after the broadphase.
+     */
+    public int getPairTests()
+    {
+        return pairTests;
+    }
+}
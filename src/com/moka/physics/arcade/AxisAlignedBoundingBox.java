@@ -8,6 +8,11 @@ public class AxisAlignedBoundingBox implements Collidable
     private float maxY;
 
     public AxisAlignedBoundingBox(float minX, float minY, float maxX, float maxY)
+    {
+        set(minX, minY, maxX, maxY);
+    }
+
+    public void set(float minX, float minY, float maxX, float maxY)
     {
         this.minX = minX;
         this.minY = minY;
@@ -18,11 +23,11 @@ public class AxisAlignedBoundingBox implements Collidable
     @Override
     public boolean collidesWith(AxisAlignedBoundingBox other)
     {
-        if (maxX < other.minX || minX > maxX) {
+        if (maxX < other.minX || minX > other.maxX) {
             return false;
         }
 
-        if (maxY < other.minY || minY > maxY) {
+        if (maxY < other.minY || minY > other.maxY) {
             return false;
         }
 
@@ -32,6 +37,45 @@ public class AxisAlignedBoundingBox implements Collidable
     @Override
     public boolean collidesWith(Circle other)
     {
-        return false;
+        return other.collidesWith(this);
+    }
+
+    @Override
+    public boolean collidesWith(Collidable other)
+    {
+        return other.collidesWith(this);
+    }
+
+    @Override
+    public void moveTo(float x, float y)
+    {
+        float halfWidth = (maxX - minX) / 2;
+        float halfHeight = (maxY - minY) / 2;
+
+        set(x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight);
+    }
+
+    @Override
+    public float getMinX()
+    {
+        return minX;
+    }
+
+    @Override
+    public float getMinY()
+    {
+        return minY;
+    }
+
+    @Override
+    public float getMaxX()
+    {
+        return maxX;
+    }
+
+    @Override
+    public float getMaxY()
+    {
+        return maxY;
     }
 }
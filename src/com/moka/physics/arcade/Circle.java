@@ -16,7 +16,11 @@ public class Circle implements Collidable
     @Override
     public boolean collidesWith(AxisAlignedBoundingBox other)
     {
-        return false;
+        // distance from the center to the closest point of the box.
+        float dx = x - Math.max(other.getMinX(), Math.min(x, other.getMaxX()));
+        float dy = y - Math.max(other.getMinY(), Math.min(y, other.getMaxY()));
+
+        return dx * dx + dy * dy < radius * radius;
     }
 
     @Override
@@ -29,4 +33,61 @@ public class Circle implements Collidable
 
         return dx * dx + dy * dy < circlesRadius * circlesRadius;
     }
+
+    @Override
+    public boolean collidesWith(Collidable other)
+    {
+        return other.collidesWith(this);
+    }
+
+    @Override
+    public void moveTo(float x, float y)
+    {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void setRadius(float radius)
+    {
+        this.radius = radius;
+    }
+
+    public float getX()
+    {
+        return x;
+    }
+
+    public float getY()
+    {
+        return y;
+    }
+
+    public float getRadius()
+    {
+        return radius;
+    }
+
+    @Override
+    public float getMinX()
+    {
+        return x - radius;
+    }
+
+    @Override
+    public float getMinY()
+    {
+        return y - radius;
+    }
+
+    @Override
+    public float getMaxX()
+    {
+        return x + radius;
+    }
+
+    @Override
+    public float getMaxY()
+    {
+        return y + radius;
+    }
 }
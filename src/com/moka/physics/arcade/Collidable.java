@@ -1,7 +1,26 @@
 package com.moka.physics.arcade;
 
+/**
+ * A shape of the arcade physics (see {@link ArcadeWorld}). Any pair of shapes can be tested with
+ * {@link #collidesWith(Collidable)}, which finds the right test for both types.
+ */
 public interface Collidable
 {
     boolean collidesWith(AxisAlignedBoundingBox other);
     boolean collidesWith(Circle other);
+
+    /**
+     * Tests against a shape of any type.
+     */
+    boolean collidesWith(Collidable other);
+
+    /**
+     * Moves the shape so its center is at the given point.
+     */
+    void moveTo(float x, float y);
+
+    float getMinX();
+    float getMinY();
+    float getMaxX();
+    float getMaxY();
 }
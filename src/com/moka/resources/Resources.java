@@ -1,6 +1,7 @@
 package com.moka.resources;
 
 import com.moka.core.Moka;
+import com.moka.graphics.BitmapFont;
 import com.moka.graphics.Texture;
 import com.moka.prefabs.Prefab;
 import com.moka.utils.ConfigDataFile;
@@ -50,6 +51,12 @@ import java.util.ArrayList;
  *          }
  *      }
  *
+ *      \@BindLoad(path = "fonts/", extension = "fnt")
+ *      public static class fonts
+ *      {
+ *          public static BitmapFont hud;
+ *      }
+ *
  *      \@BindLoad(path = "data/", extension = "oping")
  *      public static class data
  *      {
@@ -90,6 +97,15 @@ public abstract class Resources
         }
     }
 
+    public static class BitmapFontLoader extends ResourceLoader
+    {
+        @Override
+        public Object load(String path)
+        {
+            return new BitmapFont(path);
+        }
+    }
+
     public static class PrefabLoader extends ResourceLoader
     {
         @Override
@@ -118,10 +134,13 @@ public abstract class Resources
     }
 
     private String root;
+    private ArrayList<Texture> textures = new ArrayList<>();
+    private ArrayList<BitmapFont> fonts = new ArrayList<>();
 
     // Loaders.
     // TODO: support custom loaders.
     private TextureLoader textureLoader = new TextureLoader();
+    private BitmapFontLoader bitmapFontLoader = new BitmapFontLoader();
     private PrefabLoader prefabLoader = new PrefabLoader();
     private ResourceLoader fileHandleLoader = new FileHandleLoader();
     private ConfigDataFileLoader configDataFileLoader = new ConfigDataFileLoader();
@@ -133,12 +152,28 @@ public abstract class Resources
 
     public Texture texture(String path)
     {
-        return new Texture(root + path);
+        return track(new Texture(root + path));
     }
 
     public Texture texture(String path, Texture.Filter filter)
     {
-        return new Texture(root + path, filter);
+        return track(new Texture(root + path, filter));
+    }
+
+    private Texture track(Texture texture)
+    {
+        textures.add(texture);
+        return texture;
+    }
+
+    /**
+     * Loads a BMFont descriptor (.fnt in text format) and its pages.
+     */
+    public BitmapFont font(String path)
+    {
+        BitmapFont font = new BitmapFont(root + path);
+        fonts.add(font);
+        return font;
     }
 
     public Prefab prefab(String path)
@@ -195,11 +230,23 @@ public abstract class Resources
     }
 
     /**
-     * Override to dispose loaded resources if needed.
+     * Frees every texture and font loaded through these resources. Override to dispose other resources
+     * loaded in {@link #load()}, calling this one too.
      */
     public void dispose()
     {
+        for (Texture texture : textures) {
+            texture.dispose();
+        }
 
+        textures.clear();
+
+        for (BitmapFont font : fonts) {
+            font.dispose();
+        }
+
+        fonts.clear();
+        JMokaLog.o("Resources", "All disposed.");
     }
 
     private void inspectBindLoads()
@@ -304,7 +351,15 @@ public abstract class Resources
             ResourceLoader loader = getLoader(field.getType());
 
             if (loader != null) {
-                field.set(this, loader.load(file));
+                Object resource = loader.load(file);
+
+                if (resource instanceof Texture) {
+                    track((Texture) resource);
+                } else if (resource instanceof BitmapFont) {
+                    fonts.add((BitmapFont) resource);
+                }
+
+                field.set(this, resource);
             } else {
                 throw new JMokaException("Not supported loader for type: " + field.getType());
             }
@@ -318,6 +373,8 @@ public abstract class Resources
     {
         if (type == Texture.class) {
             return textureLoader;
+        } else if (type == BitmapFont.class) {
+            return bitmapFontLoader;
         } else if (type == Prefab.class) {
             return prefabLoader;
         } else if (type == FileHandle.class) {
@@ -0,0 +1,251 @@
+package com.moka.scene;
+
+import com.moka.scene.entity.Entity;
+import com.moka.utils.JMokaException;
+
+import java.util.List;
+
+/**
+ * Keeps the entities of a layer ordered by a key every frame, see
+ * {@link Scene#setLayerSort(int, Mode)}. Smaller keys are drawn first, entities with the same key
+ * keep their order.
+ * <p>
+ * The keys are turned into integers and sorted with a stable radix sort, so the cost grows
+ * linearly with the entities. Layers usually change little between frames: the order of the
+ * previous frame is kept if it's still sorted, and an insertion sort is used if only a few
+ * entities are out of place. The insertion sort gives up for the radix sort when those few
+ * entities have to travel too far.
+ *
+ * @author Shelo
+ */
+public class LayerSorter
+{
+    public enum Mode
+    {
+        /**
+         * Insertion order, the layer is not sorted.
+         */
+        NONE,
+
+        /**
+         * Entities lower on the screen are drawn over the higher ones, for top-down and
+         * isometric views.
+         */
+        Y,
+
+        /**
+         * By the z of the transform, greater values are drawn over smaller ones.
+         */
+        Z,
+    }
+
+    /**
+     * Custom sorting key of an entity.
+     */
+    public interface Key
+    {
+        float of(Entity entity);
+    }
+
+    private static final Key Y_KEY = entity -> -entity.getTransform().getPosition().y;
+    private static final Key Z_KEY = entity -> entity.getTransform().getZ();
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    // out of place entities allowed to use the insertion sort, besides one every 64 entities.
+    private static final int NEARLY_SORTED = 8;
+
+    // moves per entity the insertion sort may do, about the work of the radix sort passes.
+    private static final int MOVES_PER_ENTITY = 32 / RADIX_BITS;
+
+    private final Key key;
+    private final int[] counts = new int[RADIX];
+    private int[] keys = new int[0];
+    private int[] order = new int[0];
+    private int[] swapKeys = new int[0];
+    private int[] swapOrder = new int[0];
+    private Entity[] sorted = new Entity[0];
+    private int radixSorts;
+
+    public LayerSorter(Mode mode)
+    {
+        switch (mode) {
+            case Y:
+                key = Y_KEY;
+                break;
+            case Z:
+                key = Z_KEY;
+                break;
+            default:
+                throw new JMokaException("There's no key to sort by " + mode + ".");
+        }
+    }
+
+    public LayerSorter(Key key)
+    {
+        if (key == null) {
+            throw new JMokaException("The sorting key cannot be null.");
+        }
+
+        this.key = key;
+    }
+
+    /**
+     * Sorts the layer in place.
+     *
+     * @param layer the entities of the layer.
+     * @return true if the order changed.
+     */
+    public boolean sort(List<Entity> layer)
+    {
+        int size = layer.size();
+
+        if (size < 2) {
+            return false;
+        }
+
+        ensureCapacity(size);
+
+        int descents = 0;
+
+        for (int i = 0; i < size; i++) {
+            keys[i] = toSortable(key.of(layer.get(i)));
+            order[i] = i;
+
+            if (i > 0 && keys[i] < keys[i - 1]) {
+                descents++;
+            }
+        }
+
+        if (descents == 0) {
+            return false;
+        }
+
+        // the keys are only partly sorted if the insertion sort gives up, which the radix sort
+        // doesn't mind.
+        if (descents > NEARLY_SORTED + size / 64 || !insertionSort(size)) {
+            radixSort(size);
+        }
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = layer.get(order[i]);
+        }
+
+        for (int i = 0; i < size; i++) {
+            layer.set(i, sorted[i]);
+            sorted[i] = null;
+        }
+
+        return true;
+    }
+
+    /**
+     * Maps a float to an int with the same order when compared as signed ints.
+     */
+    private static int toSortable(float value)
+    {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * @return false if it gave up after moving entities too many times.
+     */
+    private boolean insertionSort(int size)
+    {
+        int moves = size * MOVES_PER_ENTITY;
+
+        for (int i = 1; i < size; i++) {
+            int k = keys[i];
+            int index = order[i];
+            int j = i;
+
+            while (j > 0 && keys[j - 1] > k) {
+                keys[j] = keys[j - 1];
+                order[j] = order[j - 1];
+                j--;
+            }
+
+            keys[j] = k;
+            order[j] = index;
+            moves -= i - j;
+
+            if (moves < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void radixSort(int size)
+    {
+        radixSorts++;
+
+        for (int shift = 0; shift < 32; shift += RADIX_BITS) {
+            for (int i = 0; i < RADIX; i++) {
+                counts[i] = 0;
+            }
+
+            for (int i = 0; i < size; i++) {
+                counts[digit(keys[i], shift)]++;
+            }
+
+            // every key has the same digit, this pass would not move anything.
+            if (counts[digit(keys[0], shift)] == size) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int i = 0; i < RADIX; i++) {
+                int count = counts[i];
+                counts[i] = offset;
+                offset += count;
+            }
+
+            for (int i = 0; i < size; i++) {
+                int position = counts[digit(keys[i], shift)]++;
+                swapKeys[position] = keys[i];
+                swapOrder[position] = order[i];
+            }
+
+            int[] temp = keys;
+            keys = swapKeys;
+            swapKeys = temp;
+
+            temp = order;
+            order = swapOrder;
+            swapOrder = temp;
+        }
+    }
+
+    private static int digit(int key, int shift)
+    {
+        // the sign bit is flipped so negative keys come first.
+        return ((key ^ Integer.MIN_VALUE) >>> shift) & (RADIX - 1);
+    }
+
+    private void ensureCapacity(int size)
+    {
+        if (keys.length >= size) {
+            return;
+        }
+
+        int length = Math.max(size, keys.length * 2);
+        keys = new int[length];
+        order = new int[length];
+        swapKeys = new int[length];
+        swapOrder = new int[length];
+        sorted = new Entity[length];
+    }
+
+    /**
+     * @return times the whole layer was radix sorted, instead of keeping or fixing the order of
+     * the previous frame.
+     */
+    public int getRadixSorts()
+    {
+        return radixSorts;
+    }
+}
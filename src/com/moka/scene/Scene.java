@@ -2,6 +2,8 @@ package com.moka.scene;
 
 import com.moka.components.Camera;
 import com.moka.components.Sprite;
+import com.moka.graphics.LayerCache;
+import com.moka.graphics.StaticLayer;
 import com.moka.graphics.Texture;
 import com.moka.scene.entity.Entity;
 import com.moka.utils.JMokaException;
@@ -19,6 +21,10 @@ public abstract class Scene implements Iterable<Entity>
     public static final int LAYERS = 16;
 
     private ArrayList<List<Entity>> layers = new ArrayList<>(LAYERS);
+    private LayerCache[] layerCaches = new LayerCache[LAYERS];
+    private StaticLayer[] staticLayers = new StaticLayer[LAYERS];
+    private LayerSorter[] sorters = new LayerSorter[LAYERS];
+    private SpatialIndex spatialIndex;
     private boolean created;
     private Context context;
 
@@ -154,6 +160,10 @@ public abstract class Scene implements Iterable<Entity>
         for (Entity entity : this) {
             entity.postUpdate();
         }
+
+        if (spatialIndex != null) {
+            spatialIndex.update();
+        }
     }
 
     public void clean()
@@ -164,7 +174,13 @@ public abstract class Scene implements Iterable<Entity>
             for (int i = entities.size() - 1; i >= 0; i--) {
                 if (entities.get(i).isDestroyed()) {
                     entities.get(i).onDestroy();
+
+                    if (spatialIndex != null) {
+                        spatialIndex.remove(entities.get(i));
+                    }
+
                     entities.remove(i);
+                    invalidateLayer(j);
                 }
             }
         }
@@ -232,9 +248,153 @@ public abstract class Scene implements Iterable<Entity>
     public final Entity addEntity(Entity entity, int layer)
     {
         layers.get(layer).add(entity);
+        invalidateLayer(layer);
+
+        if (spatialIndex != null) {
+            spatialIndex.add(entity);
+        }
+
         return entity;
     }
 
+    /**
+     * Gets the index used to find the entities of the scene by position. It's created the first
+     * time it's asked for, from then on it's kept up to date every frame, so scenes that never
+     * use it don't pay for it.
+     *
+     * @return the spatial index of the scene.
+     */
+    public SpatialIndex getSpatialIndex()
+    {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialIndex();
+
+            for (List<Entity> layer : layers) {
+                for (int i = 0; i < layer.size(); i++) {
+                    spatialIndex.add(layer.get(i));
+                }
+            }
+        }
+
+        return spatialIndex;
+    }
+
+    /**
+     * Makes the renderer keep a drawing of the whole layer and draw it as a single quad while
+     * nothing in the layer changes. Useful for backgrounds made of many sprites that stay still.
+     * The cache is drawn again automatically when an entity of the layer is added, removed, moved
+     * or its drawable is marked as changed, and also when the camera moves.
+     *
+     * @param layer  the layer number.
+     * @param cached true to cache the layer.
+     */
+    public void setLayerCached(int layer, boolean cached)
+    {
+        if (cached && layerCaches[layer] == null) {
+            layerCaches[layer] = new LayerCache();
+        } else if (!cached && layerCaches[layer] != null) {
+            layerCaches[layer].dispose();
+            layerCaches[layer] = null;
+        }
+    }
+
+    public boolean isLayerCached(int layer)
+    {
+        return layerCaches[layer] != null;
+    }
+
+    /**
+     * Makes a layer be sorted every frame before drawing it, instead of keeping the order in which
+     * the entities were added. Useful to draw by Y in top-down and isometric scenes.
+     *
+     * @param layer the layer number.
+     * @param mode  how to sort the layer, {@link LayerSorter.Mode#NONE} to stop sorting it.
+     */
+    public void setLayerSort(int layer, LayerSorter.Mode mode)
+    {
+        sorters[layer] = mode == LayerSorter.Mode.NONE ? null : new LayerSorter(mode);
+    }
+
+    /**
+     * Makes a layer be sorted every frame by a custom key, smaller keys are drawn first.
+     *
+     * @param layer the layer number.
+     * @param key   the key of every entity, or null to stop sorting the layer.
+     */
+    public void setLayerSort(int layer, LayerSorter.Key key)
+    {
+        sorters[layer] = key == null ? null : new LayerSorter(key);
+    }
+
+    /**
+     * @return the sorter of the layer, or null if the layer is not sorted.
+     */
+    public LayerSorter getLayerSorter(int layer)
+    {
+        return sorters[layer];
+    }
+
+    /**
+     * Sorts the layers that have a sort mode, called by the renderer before drawing.
+     */
+    public void sortLayers()
+    {
+        for (int i = 0; i < layers.size(); i++) {
+            if (sorters[i] != null && sorters[i].sort(layers.get(i))) {
+                invalidateLayer(i);
+            }
+        }
+    }
+
+    /**
+     * Forces a cached layer to be drawn again, for changes that are not noticed automatically.
+     *
+     * @param layer the layer number.
+     */
+    public void invalidateLayer(int layer)
+    {
+        if (layerCaches[layer] != null) {
+            layerCaches[layer].invalidate();
+        }
+
+        if (staticLayers[layer] != null) {
+            staticLayers[layer].invalidate();
+        }
+    }
+
+    /**
+     * @return the static drawables of the layer, created the first time it's asked for.
+     */
+    public StaticLayer getStaticLayer(int layer)
+    {
+        if (staticLayers[layer] == null) {
+            staticLayers[layer] = new StaticLayer();
+        }
+
+        return staticLayers[layer];
+    }
+
+    /**
+     * @return the cache of the layer, or null if the layer is not cached.
+     */
+    public LayerCache getLayerCache(int layer)
+    {
+        return layerCaches[layer];
+    }
+
+    /**
+     * @return the entities of a layer, in drawing order.
+     */
+    public List<Entity> getLayer(int layer)
+    {
+        return layers.get(layer);
+    }
+
+    public int getLayerCount()
+    {
+        return layers.size();
+    }
+
     /**
      * Creates a new {@link Entity} with a camera on it.
      *
@@ -275,12 +435,26 @@ public abstract class Scene implements Iterable<Entity>
                 entity.dispose();
             }
         }
+
+        for (int i = 0; i < LAYERS; i++) {
+            setLayerCached(i, false);
+
+            if (staticLayers[i] != null) {
+                staticLayers[i].dispose();
+                staticLayers[i] = null;
+            }
+        }
     }
 
     public void destroy()
     {
         layers.clear();
 
+        if (spatialIndex != null) {
+            spatialIndex.clear();
+            spatialIndex = null;
+        }
+
         created = false;
 
         log("Scene destroyed.");
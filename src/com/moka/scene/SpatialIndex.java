@@ -0,0 +1,638 @@
+package com.moka.scene;
+
+import com.moka.components.Sprite;
+import com.moka.math.Matrix3;
+import com.moka.math.Vector2;
+import com.moka.scene.entity.Component;
+import com.moka.scene.entity.Entity;
+import com.moka.scene.entity.Transform;
+import com.moka.utils.JMokaException;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Finds the entities of a scene by position: inside a rectangle, a circle, under a point, or the
+ * nearest ones to a point. Meant for things that would otherwise go through every entity of the
+ * scene, like picking with the mouse, culling, or an enemy looking for targets.
+ * <p>
+ * The index is a spatial hash: the bounds of every entity (its position and size, rotated) are
+ * kept in the cells of a uniform grid they touch. It's updated once per frame after
+ * {@link Scene#postUpdate()}, only entities whose bounds changed move between cells, and only
+ * when they leave the cells they were in. Entities bigger than {@link #LARGE_CELLS} cells are
+ * kept apart and checked by every query instead.
+ * <p>
+ * Queries don't allocate: the entities found are added to a list given by the caller, so
+ * reusing the list makes a query free once the list has grown enough. Every query can be limited
+ * to a group and to the entities that have a type of component, null means any.
+ *
+ * @author Shelo
+ */
+public class SpatialIndex
+{
+    public static final float DEFAULT_CELL_SIZE = 128;
+
+    /**
+     * Entities covering more cells than this are not added to the grid.
+     */
+    public static final int LARGE_CELLS = 64;
+
+    private static class Entry
+    {
+        Entity entity;
+        float minX, minY, maxX, maxY;
+        int cellMinX, cellMinY, cellMaxX, cellMaxY;
+        boolean large;
+        int index;
+        int stamp;
+    }
+
+    private static class Cell
+    {
+        Entry[] entries = new Entry[4];
+        int size;
+
+        void add(Entry entry)
+        {
+            if (size == entries.length) {
+                Entry[] newEntries = new Entry[size * 2];
+                System.arraycopy(entries, 0, newEntries, 0, size);
+                entries = newEntries;
+            }
+
+            entries[size++] = entry;
+        }
+
+        void remove(Entry entry)
+        {
+            for (int i = 0; i < size; i++) {
+                if (entries[i] == entry) {
+                    entries[i] = entries[--size];
+                    entries[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    private final IdentityHashMap<Entity, Entry> entries = new IdentityHashMap<>();
+    private final ArrayList<Entry> dense = new ArrayList<>();
+    private final ArrayList<Entry> large = new ArrayList<>();
+    private float cellSize = DEFAULT_CELL_SIZE;
+
+    // open addressing table of cells, keyed by both coordinates. Cells are never removed, a cell
+    // that was used once stays empty.
+    private long[] keys = new long[256];
+    private Cell[] cells = new Cell[256];
+    private int cellCount;
+
+    // cells that can have something, grows as entities go further.
+    private int extentMinX = Integer.MAX_VALUE, extentMinY = Integer.MAX_VALUE;
+    private int extentMaxX = Integer.MIN_VALUE, extentMaxY = Integer.MIN_VALUE;
+
+    // marks the entries already seen by the current query, so entries in many cells are visited
+    // only once.
+    private int stamp;
+
+    // the k nearest found so far, sorted by distance.
+    private Entry[] nearest = new Entry[8];
+    private float[] nearestDistances = new float[8];
+
+    /**
+     * Adds an entity, it's placed by its current bounds.
+     */
+    public void add(Entity entity)
+    {
+        if (entries.containsKey(entity)) {
+            return;
+        }
+
+        Entry entry = new Entry();
+        entry.entity = entity;
+        entry.index = dense.size();
+        entries.put(entity, entry);
+        dense.add(entry);
+
+        calculateBounds(entry);
+        insert(entry);
+    }
+
+    /**
+     * Removes an entity, does nothing if it wasn't in the index.
+     */
+    public void remove(Entity entity)
+    {
+        Entry entry = entries.remove(entity);
+
+        if (entry == null) {
+            return;
+        }
+
+        extract(entry);
+
+        Entry last = dense.remove(dense.size() - 1);
+        if (last != entry) {
+            last.index = entry.index;
+            dense.set(entry.index, last);
+        }
+    }
+
+    public boolean contains(Entity entity)
+    {
+        return entries.containsKey(entity);
+    }
+
+    /**
+     * Moves the entities whose bounds changed since the last update. Called by the scene every
+     * frame, call it again to see changes made after that in the same frame.
+     */
+    public void update()
+    {
+        for (int i = 0; i < dense.size(); i++) {
+            Entry entry = dense.get(i);
+            float minX = entry.minX, minY = entry.minY, maxX = entry.maxX, maxY = entry.maxY;
+
+            calculateBounds(entry);
+
+            if (minX == entry.minX && minY == entry.minY && maxX == entry.maxX && maxY == entry.maxY) {
+                continue;
+            }
+
+            int cellMinX = cell(entry.minX), cellMinY = cell(entry.minY);
+            int cellMaxX = cell(entry.maxX), cellMaxY = cell(entry.maxY);
+
+            if (cellMinX != entry.cellMinX || cellMinY != entry.cellMinY
+                    || cellMaxX != entry.cellMaxX || cellMaxY != entry.cellMaxY) {
+                extract(entry);
+                insert(entry);
+            }
+        }
+    }
+
+    /**
+     * Changes the size of the cells, every entity is placed again. It should be around the size
+     * of the common entities and queries.
+     */
+    public void setCellSize(float cellSize)
+    {
+        if (cellSize <= 0) {
+            throw new JMokaException("The cell size must be positive.");
+        }
+
+        this.cellSize = cellSize;
+
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = null;
+        }
+
+        cellCount = 0;
+        large.clear();
+        extentMinX = extentMinY = Integer.MAX_VALUE;
+        extentMaxX = extentMaxY = Integer.MIN_VALUE;
+
+        for (int i = 0; i < dense.size(); i++) {
+            insert(dense.get(i));
+        }
+    }
+
+    public float getCellSize()
+    {
+        return cellSize;
+    }
+
+    /**
+     * Removes every entity.
+     */
+    public void clear()
+    {
+        entries.clear();
+        dense.clear();
+        setCellSize(cellSize);
+    }
+
+    /**
+     * @return the entities in the index.
+     */
+    public int size()
+    {
+        return dense.size();
+    }
+
+    /**
+     * Finds the entities whose bounds overlap a rectangle.
+     *
+     * @param result where the entities are added, in no particular order.
+     * @return how many entities were added.
+     */
+    public int queryRect(float minX, float minY, float maxX, float maxY, List<Entity> result)
+    {
+        return queryRect(minX, minY, maxX, maxY, null, null, result);
+    }
+
+    /**
+     * Finds the entities whose bounds overlap a rectangle.
+     *
+     * @param group  the group of the entities, or null for any.
+     * @param type   a component the entities must have, or null for any.
+     * @param result where the entities are added, in no particular order.
+     * @return how many entities were added.
+     */
+    public int queryRect(float minX, float minY, float maxX, float maxY, String group,
+                         Class<? extends Component> type, List<Entity> result)
+    {
+        int found = 0;
+        stamp++;
+
+        for (int i = 0; i < large.size(); i++) {
+            Entry entry = large.get(i);
+
+            if (overlaps(entry, minX, minY, maxX, maxY) && accepts(entry, group, type)) {
+                result.add(entry.entity);
+                found++;
+            }
+        }
+
+        int cellMinX = Math.max(cell(minX), extentMinX), cellMaxX = Math.min(cell(maxX), extentMaxX);
+        int cellMinY = Math.max(cell(minY), extentMinY), cellMaxY = Math.min(cell(maxY), extentMaxY);
+
+        for (int cx = cellMinX; cx <= cellMaxX; cx++) {
+            for (int cy = cellMinY; cy <= cellMaxY; cy++) {
+                Cell cell = getCell(cx, cy);
+
+                if (cell == null) {
+                    continue;
+                }
+
+                for (int i = 0; i < cell.size; i++) {
+                    Entry entry = cell.entries[i];
+
+                    if (entry.stamp == stamp) {
+                        continue;
+                    }
+
+                    entry.stamp = stamp;
+
+                    if (overlaps(entry, minX, minY, maxX, maxY) && accepts(entry, group, type)) {
+                        result.add(entry.entity);
+                        found++;
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Finds the entities whose bounds overlap a circle.
+     *
+     * @param result where the entities are added, in no particular order.
+     * @return how many entities were added.
+     */
+    public int queryRadius(float x, float y, float radius, List<Entity> result)
+    {
+        return queryRadius(x, y, radius, null, null, result);
+    }
+
+    /**
+     * Finds the entities whose bounds overlap a circle.
+     *
+     * @param group  the group of the entities, or null for any.
+     * @param type   a component the entities must have, or null for any.
+     * @param result where the entities are added, in no particular order.
+     * @return how many entities were added.
+     */
+    public int queryRadius(float x, float y, float radius, String group,
+                           Class<? extends Component> type, List<Entity> result)
+    {
+        int start = result.size();
+        queryRect(x - radius, y - radius, x + radius, y + radius, group, type, result);
+
+        // the rectangle around the circle found the candidates, keep only the ones touching it.
+        float radius2 = radius * radius;
+        int kept = start;
+
+        for (int i = start; i < result.size(); i++) {
+            Entry entry = entries.get(result.get(i));
+            float dx = x - Math.max(entry.minX, Math.min(x, entry.maxX));
+            float dy = y - Math.max(entry.minY, Math.min(y, entry.maxY));
+
+            if (dx * dx + dy * dy <= radius2) {
+                result.set(kept++, entry.entity);
+            }
+        }
+
+        for (int i = result.size() - 1; i >= kept; i--) {
+            result.remove(i);
+        }
+
+        return kept - start;
+    }
+
+    /**
+     * Finds the entities whose bounds contain a point, like the ones under the mouse.
+     *
+     * @param result where the entities are added, in no particular order.
+     * @return how many entities were added.
+     */
+    public int queryPoint(float x, float y, List<Entity> result)
+    {
+        return queryRect(x, y, x, y, null, null, result);
+    }
+
+    /**
+     * Finds the entities whose bounds contain a point, like the ones under the mouse.
+     *
+     * @param group  the group of the entities, or null for any.
+     * @param type   a component the entities must have, or null for any.
+     * @param result where the entities are added, in no particular order.
+     * @return how many entities were added.
+     */
+    public int queryPoint(float x, float y, String group, Class<? extends Component> type,
+                          List<Entity> result)
+    {
+        return queryRect(x, y, x, y, group, type, result);
+    }
+
+    /**
+     * Finds the k entities whose position is the nearest to a point. The cells are searched in
+     * rings around the point, stopping as soon as no further cell can have a nearer entity.
+     *
+     * @param k      how many entities to find at most.
+     * @param group  the group of the entities, or null for any.
+     * @param type   a component the entities must have, or null for any.
+     * @param result where the entities are added, the nearest first.
+     * @return how many entities were added, less than k if there are not enough.
+     */
+    public int queryNearest(float x, float y, int k, String group, Class<? extends Component> type,
+                            List<Entity> result)
+    {
+        if (k <= 0) {
+            return 0;
+        }
+
+        if (nearest.length < k) {
+            nearest = new Entry[k];
+            nearestDistances = new float[k];
+        }
+
+        int found = 0;
+        stamp++;
+
+        for (int i = 0; i < large.size(); i++) {
+            found = offerNearest(large.get(i), x, y, k, found, group, type);
+        }
+
+        int cx = cell(x), cy = cell(y);
+
+        // only the rings that touch the cells with something are searched, and only the part of
+        // them inside those cells, so far away points and small populations stay cheap.
+        int firstRing = Math.max(Math.max(extentMinX - cx, cx - extentMaxX),
+                Math.max(extentMinY - cy, cy - extentMaxY));
+        int lastRing = Math.max(Math.max(Math.abs(extentMinX - cx), Math.abs(extentMaxX - cx)),
+                Math.max(Math.abs(extentMinY - cy), Math.abs(extentMaxY - cy)));
+
+        // nothing was ever added to the cells.
+        if (extentMinX > extentMaxX) {
+            lastRing = -1;
+        }
+
+        for (int ring = Math.max(firstRing, 0); ring <= lastRing; ring++) {
+            // every cell outside the rings already searched is at least this far.
+            float reach = ring == 0 ? 0 : (ring - 1) * cellSize;
+
+            if (found == k && nearestDistances[k - 1] <= reach * reach) {
+                break;
+            }
+
+            int minDx = Math.max(-ring, extentMinX - cx), maxDx = Math.min(ring, extentMaxX - cx);
+            int minDy = Math.max(-ring, extentMinY - cy), maxDy = Math.min(ring, extentMaxY - cy);
+
+            for (int dx = minDx; dx <= maxDx; dx++) {
+                // the whole column at the sides of the ring, only the ends in between.
+                if (dx == -ring || dx == ring) {
+                    for (int dy = minDy; dy <= maxDy; dy++) {
+                        found = offerNearest(getCell(cx + dx, cy + dy), x, y, k, found, group, type);
+                    }
+                } else {
+                    if (minDy == -ring) {
+                        found = offerNearest(getCell(cx + dx, cy - ring), x, y, k, found, group, type);
+                    }
+
+                    if (maxDy == ring) {
+                        found = offerNearest(getCell(cx + dx, cy + ring), x, y, k, found, group, type);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < found; i++) {
+            result.add(nearest[i].entity);
+            nearest[i] = null;
+        }
+
+        return found;
+    }
+
+    private int offerNearest(Cell cell, float x, float y, int k, int found, String group,
+                             Class<? extends Component> type)
+    {
+        if (cell != null) {
+            for (int i = 0; i < cell.size; i++) {
+                found = offerNearest(cell.entries[i], x, y, k, found, group, type);
+            }
+        }
+
+        return found;
+    }
+
+    private int offerNearest(Entry entry, float x, float y, int k, int found, String group,
+                             Class<? extends Component> type)
+    {
+        if (entry.stamp == stamp) {
+            return found;
+        }
+
+        entry.stamp = stamp;
+
+        if (!accepts(entry, group, type)) {
+            return found;
+        }
+
+        Vector2 position = entry.entity.getTransform().getPosition();
+        float dx = position.x - x;
+        float dy = position.y - y;
+        float distance = dx * dx + dy * dy;
+
+        if (found == k && distance >= nearestDistances[k - 1]) {
+            return found;
+        }
+
+        int i = found == k ? k - 1 : found++;
+
+        while (i > 0 && nearestDistances[i - 1] > distance) {
+            nearest[i] = nearest[i - 1];
+            nearestDistances[i] = nearestDistances[i - 1];
+            i--;
+        }
+
+        nearest[i] = entry;
+        nearestDistances[i] = distance;
+        return found;
+    }
+
+    private boolean overlaps(Entry entry, float minX, float minY, float maxX, float maxY)
+    {
+        return entry.minX <= maxX && entry.maxX >= minX && entry.minY <= maxY && entry.maxY >= minY;
+    }
+
+    private boolean accepts(Entry entry, String group, Class<? extends Component> type)
+    {
+        Entity entity = entry.entity;
+
+        return !entity.isDestroyed() && (group == null || entity.belongsTo(group))
+                && (type == null || entity.getComponent(type) != null);
+    }
+
+    private void calculateBounds(Entry entry)
+    {
+        Entity entity = entry.entity;
+        Transform transform = entity.getTransform();
+        Vector2 position = transform.getPosition();
+        Matrix3 rotation = transform.getRotation();
+        float hw = 0;
+        float hh = 0;
+
+        // the size of a sprite without a texture yet is unknown, it's a point until it has one.
+        if (transform.hasOwnSize() || !(entity.getDrawable() instanceof Sprite)
+                || ((Sprite) entity.getDrawable()).getTexture() != null) {
+            Vector2 size = transform.getSize();
+            hw = size.x / 2;
+            hh = size.y / 2;
+        }
+
+        // half extents of the rotated rectangle.
+        float ex = Math.abs(rotation.get(0, 0)) * hw + Math.abs(rotation.get(0, 1)) * hh;
+        float ey = Math.abs(rotation.get(1, 0)) * hw + Math.abs(rotation.get(1, 1)) * hh;
+
+        entry.minX = position.x - ex;
+        entry.minY = position.y - ey;
+        entry.maxX = position.x + ex;
+        entry.maxY = position.y + ey;
+    }
+
+    private void insert(Entry entry)
+    {
+        entry.cellMinX = cell(entry.minX);
+        entry.cellMinY = cell(entry.minY);
+        entry.cellMaxX = cell(entry.maxX);
+        entry.cellMaxY = cell(entry.maxY);
+
+        long covered = (long) (entry.cellMaxX - entry.cellMinX + 1) * (entry.cellMaxY - entry.cellMinY + 1);
+        entry.large = covered > LARGE_CELLS;
+
+        if (entry.large) {
+            large.add(entry);
+            return;
+        }
+
+        extentMinX = Math.min(extentMinX, entry.cellMinX);
+        extentMinY = Math.min(extentMinY, entry.cellMinY);
+        extentMaxX = Math.max(extentMaxX, entry.cellMaxX);
+        extentMaxY = Math.max(extentMaxY, entry.cellMaxY);
+
+        for (int cx = entry.cellMinX; cx <= entry.cellMaxX; cx++) {
+            for (int cy = entry.cellMinY; cy <= entry.cellMaxY; cy++) {
+                getOrCreateCell(cx, cy).add(entry);
+            }
+        }
+    }
+
+    private void extract(Entry entry)
+    {
+        if (entry.large) {
+            large.remove(entry);
+            return;
+        }
+
+        for (int cx = entry.cellMinX; cx <= entry.cellMaxX; cx++) {
+            for (int cy = entry.cellMinY; cy <= entry.cellMaxY; cy++) {
+                getCell(cx, cy).remove(entry);
+            }
+        }
+    }
+
+    private int cell(float coordinate)
+    {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy)
+    {
+        return (long) cx << 32 | (cy & 0xffffffffL);
+    }
+
+    private int slot(long key)
+    {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & (keys.length - 1);
+    }
+
+    private Cell getCell(int cx, int cy)
+    {
+        long key = key(cx, cy);
+
+        for (int i = slot(key); cells[i] != null; i = (i + 1) & (keys.length - 1)) {
+            if (keys[i] == key) {
+                return cells[i];
+            }
+        }
+
+        return null;
+    }
+
+    private Cell getOrCreateCell(int cx, int cy)
+    {
+        long key = key(cx, cy);
+        int i = slot(key);
+
+        for (; cells[i] != null; i = (i + 1) & (keys.length - 1)) {
+            if (keys[i] == key) {
+                return cells[i];
+            }
+        }
+
+        Cell cell = new Cell();
+        keys[i] = key;
+        cells[i] = cell;
+
+        if (++cellCount * 2 > keys.length) {
+            grow();
+        }
+
+        return cell;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        Cell[] oldCells = cells;
+        keys = new long[oldKeys.length * 2];
+        cells = new Cell[oldCells.length * 2];
+
+        for (int j = 0; j < oldCells.length; j++) {
+            if (oldCells[j] == null) {
+                continue;
+            }
+
+            int i = slot(oldKeys[j]);
+            while (cells[i] != null) {
+                i = (i + 1) & (keys.length - 1);
+            }
+
+            keys[i] = oldKeys[j];
+            cells[i] = oldCells[j];
+        }
+    }
+}
@@ -125,7 +125,10 @@ public class Entity
             return componentClass.cast(drawable);
         }
 
-        for (Component component : components) {
+        // indexed, spatial queries call this for every candidate.
+        for (int i = 0; i < components.size(); i++) {
+            Component component = components.get(i);
+
             if (componentClass.isInstance(component)) {
                 return componentClass.cast(component);
             }
@@ -162,6 +165,10 @@ public class Entity
     {
         getTransform().dispose();
 
+        if (hasDrawable()) {
+            drawable.onDispose();
+        }
+
         for (Component component : components) {
             component.onDispose();
         }
@@ -199,6 +206,10 @@ public class Entity
 
     public void onDestroy()
     {
+        if (hasDrawable() && drawable.isEnabled()) {
+            drawable.onDestroy();
+        }
+
         for (Component component : components) {
             if (component.isEnabled()) {
                 component.onDestroy();
@@ -32,6 +32,16 @@ public class Transform
      */
     private boolean useOwnSize;
 
+    /**
+     * Drawing depth inside the layer, only used by layers sorted by z.
+     */
+    private float z;
+
+    /**
+     * Changes with the position, rotation and size, see {@link #getVersion()}.
+     */
+    private int version;
+
     /**
      * Save a previous state in order to check changes.
      */
@@ -73,6 +83,7 @@ public class Transform
     public void move(float x, float y)
     {
         position.add(x, y);
+        version++;
     }
 
     /**
@@ -89,11 +100,13 @@ public class Transform
     public void move(Vector2 distance)
     {
         position.add(distance);
+        version++;
     }
 
     public void rotate(float radians)
     {
         CalcUtil.rotateMatrix(rotation, radians);
+        version++;
     }
 
     private void set(Transform other)
@@ -108,10 +121,13 @@ public class Transform
     {
         useOwnSize = true;
         this.size.set(width, height);
+        version++;
     }
 
     public void setSize(Vector2 size)
     {
+        version++;
+
         if (size == null)
         {
             useOwnSize = false;
@@ -122,24 +138,42 @@ public class Transform
         useOwnSize = true;
     }
 
+    /**
+     * Sets the drawing depth inside the layer, used when the layer is sorted by z (see
+     * {@link com.moka.scene.Scene#setLayerSort}). Greater values are drawn over smaller ones.
+     */
+    public void setZ(float z)
+    {
+        this.z = z;
+    }
+
+    public float getZ()
+    {
+        return z;
+    }
+
     public void setPosition(float x, float y)
     {
         this.position.set(x, y);
+        version++;
     }
 
     public void setPosition(Vector2 position)
     {
         this.position.set(position);
+        version++;
     }
 
     public void setRotation(float degrees)
     {
         this.rotation.toRotation(degrees * 0.01745329252f);
+        version++;
     }
 
     public void setRotationRadians(float radians)
     {
         this.rotation.toRotation(radians);
+        version++;
     }
 
     /**
@@ -224,6 +258,14 @@ public class Transform
         return rSize;
     }
 
+    /**
+     * @return true if a size was given to the transform, false if it uses the sprite's size.
+     */
+    public boolean hasOwnSize()
+    {
+        return useOwnSize;
+    }
+
     /**
      * Returns the rotation matrix used at this moment.
      *
@@ -270,14 +312,28 @@ public class Transform
         return hasRotated() || hasMoved();
     }
 
+    /**
+     * Returns a number that changes every time the position, rotation or size are set. Unlike
+     * {@link #hasChanged()}, which only looks at the last update, comparing it with a version
+     * seen before tells if the transform changed since then.
+     *
+     * @return the version of the transform.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
     public void moveX(float distance)
     {
         position.add(distance, 0);
+        version++;
     }
 
     public void moveY(float distance)
     {
         position.add(0, distance);
+        version++;
     }
 
     public void dispose()
@@ -289,6 +345,7 @@ public class Transform
     public void scale(float value)
     {
         size.mul(value);
+        version++;
     }
 
     public void lookAt(Vector2 target)
@@ -0,0 +1,174 @@
+package com.moka.tests;
+
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.physics.arcade.ArcadeBody;
+import com.moka.physics.arcade.ArcadeWorld;
+import com.moka.physics.arcade.AxisAlignedBoundingBox;
+import com.moka.physics.arcade.Circle;
+import com.moka.scene.entity.Entity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ArcadeWorldTests
+{
+    private final List<String> events = new ArrayList<>();
+    private final List<Entity> entities = new ArrayList<>();
+    private ArcadeWorld world;
+
+    private class RecordingBody extends ArcadeBody
+    {
+        @Override
+        public void onEnter(Entity other)
+        {
+            events.add(getEntity().getName() + " enter " + other.getName());
+        }
+
+        @Override
+        public void onStay(Entity other)
+        {
+            events.add(getEntity().getName() + " stay " + other.getName());
+        }
+
+        @Override
+        public void onExit(Entity other)
+        {
+            events.add(getEntity().getName() + " exit " + other.getName());
+        }
+    }
+
+    private Entity createBody(String name, float x, float y, float velocityX)
+    {
+        Entity entity = new Entity(name);
+        ArcadeBody body = new RecordingBody();
+        body.setSize(10, 10);
+        body.setVelocity(velocityX, 0);
+        entity.addComponent(body);
+        entity.getTransform().setPosition(x, y);
+        entity.create();
+
+        entities.add(entity);
+        return entity;
+    }
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        world = Moka.getPhysics().getArcadeWorld();
+    }
+
+    @After
+    public void tearDown()
+    {
+        for (Entity entity : entities) {
+            entity.getComponent(ArcadeBody.class).onDestroy();
+        }
+
+        world.step(0);
+    }
+
+    @Test
+    public void shapesOverlap()
+    {
+        AxisAlignedBoundingBox box = new AxisAlignedBoundingBox(0, 0, 10, 10);
+
+        assertThat(box.collidesWith(new AxisAlignedBoundingBox(20, 0, 30, 10)), is(false));
+        assertThat(box.collidesWith(new AxisAlignedBoundingBox(-30, 0, -20, 10)), is(false));
+        assertThat(box.collidesWith(new AxisAlignedBoundingBox(5, 5, 30, 30)), is(true));
+
+        assertThat(box.collidesWith(new Circle(15, 5, 4)), is(false));
+        assertThat(new Circle(15, 5, 6).collidesWith(box), is(true));
+        assertThat(box.collidesWith(new Circle(13, 13, 4)), is(false));
+    }
+
+    @Test
+    public void bodiesEnterStayAndExit()
+    {
+        createBody("a", 0, 0, 0);
+        createBody("b", 30, 0, -10);
+
+        world.step(1);
+        assertThat(events.isEmpty(), is(true));
+
+        world.step(1);
+        assertThat(events.toString(), is("[a enter b, b enter a]"));
+
+        events.clear();
+        world.step(1);
+        assertThat(events.toString(), is("[a stay b, b stay a]"));
+
+        events.clear();
+        world.step(3);
+        assertThat(events.toString(), is("[a exit b, b exit a]"));
+        assertThat(world.getPairCount(), is(0));
+    }
+
+    @Test
+    public void removedBodiesExitTheOthers()
+    {
+        createBody("a", 0, 0, 0);
+        Entity b = createBody("b", 5, 200, 0);
+
+        // bodies far from each other are not even tested.
+        world.step(1);
+        assertThat(world.getPairTests(), is(0));
+
+        b.getTransform().setPosition(5, 0);
+        world.step(1);
+        events.clear();
+
+        b.getComponent(ArcadeBody.class).onDestroy();
+        world.step(1);
+
+        assertThat(events.toString(), is("[a exit b]"));
+        assertThat(world.getBodyCount(), is(1));
+    }
+
+    @Test
+    public void bodiesRemovedByTheirOwnEventsExitTheOthers()
+    {
+        createBody("a", 0, 0, 0);
+
+        // removes itself when it enters, like a bullet destroyed on hit.
+        Entity b = new Entity("b");
+        ArcadeBody body = new RecordingBody()
+        {
+            @Override
+            public void onEnter(Entity other)
+            {
+                super.onEnter(other);
+                onDestroy();
+            }
+        };
+        body.setSize(10, 10);
+        b.addComponent(body);
+        b.getTransform().setPosition(5, 0);
+        b.create();
+
+        world.step(1);
+        assertThat(events.size(), is(2));
+        assertThat(events.contains("a enter b") && events.contains("b enter a"), is(true));
+
+        // a new body must not take the id before the exit is sent.
+        events.clear();
+        createBody("c", 500, 0, 0);
+        world.step(1);
+        assertThat(events.toString(), is("[a exit b]"));
+
+        events.clear();
+        world.step(1);
+        assertThat(events.isEmpty(), is(true));
+        assertThat(world.getBodyCount(), is(2));
+    }
+}
@@ -0,0 +1,61 @@
+package com.moka.tests;
+
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.BitmapFont;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.Texture;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class BitmapFontTests
+{
+    private static final String DESCRIPTOR =
+            "info face=\"Test\" size=16\n" +
+            "common lineHeight=18 base=14 scaleW=64 scaleH=32 pages=1 packed=0\n" +
+            "page id=0 file=\"test font_0.png\"\n" +
+            "chars count=3\n" +
+            "char id=65 x=0 y=0 width=8 height=10 xoffset=0 yoffset=4 xadvance=9 page=0 chnl=15\n" +
+            "char id=86 x=16 y=16 width=8 height=10 xoffset=0 yoffset=4 xadvance=9 page=0 chnl=15\n" +
+            "char id=32 x=0 y=0 width=0 height=0 xoffset=0 yoffset=0 xadvance=4 page=0 chnl=15\n" +
+            "kernings count=1\n" +
+            "kerning first=65 second=86 amount=-2\n";
+
+    private BitmapFont font;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        Moka.getRenderer().setBackend(new RecordingBackend());
+        font = new BitmapFont(DESCRIPTOR, new Texture(64, 32, Texture.Filter.NEAREST));
+    }
+
+    @Test
+    public void glyphsAreRead()
+    {
+        BitmapFont.Glyph glyph = font.getGlyph('V');
+
+        assertThat(font.getLineHeight(), is(18));
+        assertThat(font.getBase(), is(14));
+        assertThat(glyph.xAdvance, is(9));
+        assertThat(glyph.region.left, is(0.25f));
+        assertThat(glyph.region.top, is(0.5f));
+        assertThat(glyph.region.width, is(0.125f));
+        assertThat(font.getGlyph('Z') == null, is(true));
+    }
+
+    @Test
+    public void widthUsesKerningAndTheWidestLine()
+    {
+        assertThat(font.getKerning('A', 'V'), is(-2));
+        assertThat(font.getWidth("AV"), is(16));
+        assertThat(font.getWidth("A A\nAVA"), is(25));
+    }
+}
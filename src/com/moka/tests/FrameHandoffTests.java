@@ -0,0 +1,50 @@
+package com.moka.tests;
+
+import com.moka.graphics.FrameHandoff;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+
+public class FrameHandoffTests
+{
+    @Test
+    public void theNewestFrameIsPresented()
+    {
+        FrameHandoff handoff = new FrameHandoff();
+
+        assertThat(handoff.acquire(), is(false));
+
+        int first = handoff.getBack();
+        assertThat(handoff.publish(), is(false));
+
+        int second = handoff.getBack();
+        assertThat(second, is(not(first)));
+        assertThat(handoff.publish(), is(true));
+
+        assertThat(handoff.acquire(), is(true));
+        assertThat(handoff.getFront(), is(second));
+        assertThat(handoff.acquire(), is(false));
+
+        assertThat(handoff.getPublished(), is(2L));
+        assertThat(handoff.getPresented(), is(1L));
+        assertThat(handoff.getDropped(), is(1L));
+    }
+
+    @Test
+    public void theBackSlotIsNeverPresented()
+    {
+        FrameHandoff handoff = new FrameHandoff();
+
+        for (int i = 0; i < 10; i++) {
+            handoff.publish();
+
+            if (i % 3 == 0) {
+                handoff.acquire();
+            }
+
+            assertThat(handoff.getBack(), is(not(handoff.getFront())));
+        }
+    }
+}
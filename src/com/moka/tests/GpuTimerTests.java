@@ -0,0 +1,87 @@
+package com.moka.tests;
+
+import com.moka.graphics.GpuTimer;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.RenderStats;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * GPU times of layers, with a recording backend whose queries finish one frame late.
+ */
+public class GpuTimerTests
+{
+    private RecordingBackend backend;
+    private GpuTimer timer;
+    private RenderStats stats;
+
+    @Before
+    public void setUp()
+    {
+        backend = new RecordingBackend();
+        backend.setQueriesDelayed(true);
+        timer = new GpuTimer(backend);
+        stats = new RenderStats();
+    }
+
+    /**
+     * Starts a frame, while the GPU finishes the previous one, and times the given layers.
+     *
+     * @return true if new times were published.
+     */
+    private boolean frame(long nanoseconds, int... layers)
+    {
+        boolean published = timer.newFrame(stats);
+        backend.finishQueries();
+        backend.setQueryTime(nanoseconds);
+
+        for (int layer : layers) {
+            timer.begin(layer);
+            timer.end(layer);
+        }
+
+        return published;
+    }
+
+    @Test
+    public void timesArrivingLateArePublished()
+    {
+        assertThat(frame(2000000, 0, 1), is(false));
+        assertThat(frame(3000000, 0), is(false));
+
+        assertThat(frame(1000000, 0, 1), is(true));
+        assertThat(stats.getLayerGpuTime(0), is(2.0));
+        assertThat(stats.getGpuTime(), is(4.0));
+
+        // the layer not drawn in that frame no longer counts.
+        assertThat(frame(1000000, 0, 1), is(true));
+        assertThat(stats.getLayerGpuTime(1), is(0.0));
+        assertThat(stats.getGpuTime(), is(3.0));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(frame(1000000, 0, 1), is(true));
+        }
+
+        assertThat(stats.getGpuTime(), is(2.0));
+    }
+
+    @Test
+    public void nothingIsPublishedWhileTheGpuIsBehind()
+    {
+        frame(2000000, 0);
+        frame(2000000, 0);
+        frame(2000000, 0);
+
+        // the GPU stops finishing frames, the last times are kept but they are not new.
+        timer.newFrame(stats);
+        backend.setQueryTime(5000000);
+        timer.begin(0);
+        timer.end(0);
+
+        assertThat(timer.newFrame(stats), is(false));
+        assertThat(stats.getGpuTime(), is(2.0));
+    }
+}
@@ -0,0 +1,102 @@
+package com.moka.tests;
+
+import com.moka.scene.LayerSorter;
+import com.moka.scene.entity.Entity;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class LayerSorterTests
+{
+    private List<Entity> createLayer(float... ys)
+    {
+        List<Entity> layer = new ArrayList<>();
+
+        for (int i = 0; i < ys.length; i++) {
+            Entity entity = new Entity(String.valueOf(i));
+            entity.getTransform().setPosition(0, ys[i]);
+            layer.add(entity);
+        }
+
+        return layer;
+    }
+
+    private String names(List<Entity> layer)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (Entity entity : layer) {
+            builder.append(entity.getName());
+        }
+
+        return builder.toString();
+    }
+
+    @Test
+    public void higherEntitiesAreDrawnFirstKeepingTies()
+    {
+        List<Entity> layer = createLayer(5, -3, 10, 5, 0, 10);
+        LayerSorter sorter = new LayerSorter(LayerSorter.Mode.Y);
+
+        assertThat(sorter.sort(layer), is(true));
+        assertThat(names(layer), is("250341"));
+        assertThat(sorter.sort(layer), is(false));
+    }
+
+    @Test
+    public void shuffledLayersAreRadixSorted()
+    {
+        int size = 1000;
+        float[] ys = new float[size];
+
+        for (int i = 0; i < size; i++) {
+            ys[i] = (i * 7919) % size - size / 2;
+        }
+
+        List<Entity> layer = createLayer(ys);
+        LayerSorter sorter = new LayerSorter(entity -> entity.getTransform().getPosition().y);
+        sorter.sort(layer);
+
+        assertThat(sorter.getRadixSorts(), is(1));
+
+        for (int i = 1; i < size; i++) {
+            assertThat(layer.get(i - 1).getTransform().getPosition().y < layer.get(i).getTransform().getPosition().y,
+                    is(true));
+        }
+
+        // a single entity out of place is fixed without sorting everything again.
+        layer.get(10).getTransform().setPosition(0, size);
+        sorter.sort(layer);
+
+        assertThat(sorter.getRadixSorts(), is(1));
+        assertThat(layer.get(size - 1).getTransform().getPosition().y, is((float) size));
+    }
+
+    @Test
+    public void fewEntitiesTravellingFarAreRadixSorted()
+    {
+        int size = 1000;
+        float[] ys = new float[size];
+
+        // a few entities at the end belong at the start, so each one crosses the whole layer.
+        for (int i = 0; i < size; i++) {
+            ys[i] = i < size - 10 ? i : i - size;
+        }
+
+        List<Entity> layer = createLayer(ys);
+        LayerSorter sorter = new LayerSorter(entity -> entity.getTransform().getPosition().y);
+        sorter.sort(layer);
+
+        assertThat(sorter.getRadixSorts(), is(1));
+        assertThat(names(layer.subList(0, 3)), is("990991992"));
+
+        for (int i = 1; i < size; i++) {
+            assertThat(layer.get(i - 1).getTransform().getPosition().y < layer.get(i).getTransform().getPosition().y,
+                    is(true));
+        }
+    }
+}
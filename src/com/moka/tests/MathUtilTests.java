@@ -1,6 +1,7 @@
 package com.moka.tests;
 
 import com.moka.math.MathUtil;
+import com.moka.math.Rectangle;
 import org.junit.Test;
 
 import static org.hamcrest.core.Is.is;
@@ -76,4 +77,15 @@ public class MathUtilTests
 
         assertThat(next, is(-10.f));
     }
+
+    @Test
+    public void equalRectanglesHaveEqualHashes()
+    {
+        Rectangle zero = new Rectangle(0, 0, 1, 1);
+        Rectangle negativeZero = new Rectangle(-0f, 0, 1, 1);
+        Rectangle nan = new Rectangle(Float.NaN, 0, 1, 1);
+
+        assertThat(zero.equals(negativeZero), is(zero.hashCode() == negativeZero.hashCode()));
+        assertThat(nan.equals(new Rectangle(Float.NaN, 0, 1, 1)), is(true));
+    }
 }
@@ -0,0 +1,74 @@
+package com.moka.tests;
+
+import com.moka.graphics.ParticlePool;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ParticlePoolTests
+{
+    @Test
+    public void spawnStopsWhenFull()
+    {
+        ParticlePool pool = new ParticlePool(2);
+
+        assertThat(pool.spawn(0, 0, 0, 0, 1, 1), is(true));
+        assertThat(pool.spawn(0, 0, 0, 0, 1, 1), is(true));
+        assertThat(pool.spawn(0, 0, 0, 0, 1, 1), is(false));
+        assertThat(pool.getCount(), is(2));
+    }
+
+    @Test
+    public void particlesMoveAndFall()
+    {
+        ParticlePool pool = new ParticlePool(1);
+        pool.spawn(0, 0, 10, 0, 5, 1);
+
+        pool.update(0.5f, 0, -4, false);
+
+        assertThat(pool.x[0], is(5f));
+        assertThat(pool.vy[0], is(-2f));
+        assertThat(pool.y[0], is(-1f));
+        assertThat(pool.getProgress(0), is(0.1f));
+    }
+
+    @Test
+    public void deadParticlesAreReplacedByTheLast()
+    {
+        ParticlePool pool = new ParticlePool(3);
+        pool.spawn(1, 0, 0, 0, 0.5f, 1);
+        pool.spawn(2, 0, 0, 0, 2, 1);
+        pool.spawn(3, 0, 0, 0, 0.5f, 1);
+
+        pool.update(1, 0, 0, false);
+
+        assertThat(pool.getCount(), is(1));
+        assertThat(pool.x[0], is(2f));
+    }
+
+    @Test
+    public void parallelUpdateMatchesSequential()
+    {
+        int count = ParticlePool.PARALLEL_THRESHOLD * 3 + 7;
+        ParticlePool sequential = new ParticlePool(count);
+        ParticlePool parallel = new ParticlePool(count);
+
+        for (int i = 0; i < count; i++) {
+            sequential.spawn(i, -i, i % 13, i % 7, 1 + i % 3, 1);
+            parallel.spawn(i, -i, i % 13, i % 7, 1 + i % 3, 1);
+        }
+
+        for (int step = 0; step < 5; step++) {
+            sequential.update(0.4f, 1, -9.8f, false);
+            parallel.update(0.4f, 1, -9.8f, true);
+        }
+
+        assertThat(parallel.getCount(), is(sequential.getCount()));
+
+        for (int i = 0; i < sequential.getCount(); i++) {
+            assertThat(parallel.x[i], is(sequential.x[i]));
+            assertThat(parallel.y[i], is(sequential.y[i]));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.moka.tests;
+
+import com.moka.components.Area;
+import com.moka.components.RigidBody;
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.physics.Physics;
+import com.moka.physics.PhysicsBody;
+import com.moka.scene.entity.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Steps 5000 moving bodies and checks that the bridge between the entities and JBox2D doesn't
+ * allocate. Measured with the bytes allocated by the thread, which needs a HotSpot JVM.
+ */
+public class PhysicsAllocationTests
+{
+    private static final int BODIES = 5000;
+    private static final int STEPS = 100;
+
+    private final List<Entity> areas = new ArrayList<>();
+    private Physics physics;
+    private int steps;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        physics = Moka.getPhysics();
+        physics.setGravity(0, 0);
+        physics.create();
+        Moka.getTime().update(1 / 60.0);
+
+        for (int i = 0; i < BODIES; i++) {
+            PhysicsBody body = i % 10 == 0 ? new Area() : new RigidBody();
+            Entity entity = new Entity("body");
+
+            // far enough from each other to never touch.
+            entity.getTransform().setPosition((i % 100) * 100, (i / 100) * 100);
+            body.setShape(PhysicsBody.Shapes.BOX);
+            body.setSize(10, 10);
+            entity.addComponent(body);
+            entity.create();
+
+            if (body instanceof Area) {
+                areas.add(entity);
+            } else {
+                body.setVelocity(20, 10);
+            }
+        }
+    }
+
+    private void step()
+    {
+        // the areas go back and forth, so they are moved to their entities every step.
+        float distance = steps++ % 2 == 0 ? 1 : -1;
+
+        for (int i = 0; i < areas.size(); i++) {
+            areas.get(i).getTransform().move(distance, 0);
+        }
+
+        physics.simulate();
+    }
+
+    @Test
+    public void steppingMovingBodiesDoesNotAllocate()
+    {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // let the JIT and JBox2D's pools settle. JBox2D still allocates when new contacts appear,
+        // so the bodies never get near each other.
+        for (int i = 0; i < STEPS; i++) {
+            step();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+
+        for (int i = 0; i < STEPS; i++) {
+            step();
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertThat(physics.getAwakeCount(), is(BODIES));
+        assertThat(allocated / STEPS, is(0L));
+    }
+}
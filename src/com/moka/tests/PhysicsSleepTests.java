@@ -0,0 +1,121 @@
+package com.moka.tests;
+
+import com.moka.components.RigidBody;
+import com.moka.components.StaticBody;
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.physics.Physics;
+import com.moka.physics.PhysicsBody;
+import com.moka.scene.entity.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class PhysicsSleepTests
+{
+    private Physics physics;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        physics = Moka.getPhysics();
+        physics.setGravity(0, -10);
+        physics.create();
+        Moka.getTime().update(1 / 60.0);
+    }
+
+    private Entity createBody(PhysicsBody body, float x, float y, float width, float height)
+    {
+        Entity entity = new Entity("body");
+        entity.getTransform().setPosition(x, y);
+        body.setShape(PhysicsBody.Shapes.BOX);
+        body.setSize(width, height);
+        entity.addComponent(body);
+        entity.create();
+        return entity;
+    }
+
+    private void settle()
+    {
+        for (int i = 0; i < 600 && physics.getAwakeCount() > 0; i++) {
+            physics.simulate();
+        }
+    }
+
+    @Test
+    public void staticAndSleepingBodiesAreNotCopiedBack()
+    {
+        createBody(new StaticBody(), 0, 0, 1000, 50);
+        assertThat(physics.getAwakeCount(), is(0));
+
+        RigidBody box = new RigidBody();
+        Entity entity = createBody(box, 0, 100, 50, 50);
+        assertThat(physics.getAwakeCount(), is(1));
+
+        settle();
+
+        assertThat(box.getBody().isAwake(), is(false));
+        assertThat(physics.getAwakeCount(), is(0));
+        assertThat(physics.getBodyCount(), is(2));
+
+        // the last position was copied before leaving it out.
+        assertThat(entity.getTransform().getPosition().y, is(box.getBody().getPosition().y * 50));
+
+        box.setLinearVelocity(1, 0);
+        assertThat(physics.getAwakeCount(), is(1));
+    }
+
+    @Test
+    public void contactsWakeSleepingBodiesUp()
+    {
+        createBody(new StaticBody(), 0, 0, 1000, 50);
+        RigidBody bottom = new RigidBody();
+        createBody(bottom, 0, 50, 50, 50);
+
+        settle();
+        assertThat(bottom.getBody().isAwake(), is(false));
+
+        createBody(new RigidBody(), 0, 200, 50, 50);
+
+        // lands on it after about 40 steps.
+        for (int i = 0; i < 60; i++) {
+            physics.simulate();
+        }
+
+        assertThat(bottom.getBody().isAwake(), is(true));
+        assertThat(physics.getAwakeCount(), is(2));
+
+        settle();
+        assertThat(physics.getAwakeCount(), is(0));
+    }
+
+    @Test
+    public void destroyingABodyWakesTheOnesOnIt()
+    {
+        createBody(new StaticBody(), 0, 0, 1000, 50);
+        RigidBody bottom = new RigidBody();
+        createBody(bottom, 0, 50, 50, 50);
+        RigidBody top = new RigidBody();
+        Entity entity = createBody(top, 0, 100, 50, 50);
+
+        settle();
+        assertThat(top.getBody().isAwake(), is(false));
+
+        physics.destroy(bottom);
+        assertThat(physics.getAwakeCount(), is(1));
+
+        for (int i = 0; i < 10; i++) {
+            physics.simulate();
+        }
+
+        // the entity falls with its body.
+        assertThat(entity.getTransform().getPosition().y, is(top.getBody().getPosition().y * 50));
+        assertThat(entity.getTransform().getPosition().y < 95, is(true));
+    }
+}
@@ -0,0 +1,257 @@
+package com.moka.tests;
+
+import com.moka.components.ParticleEmitter;
+import com.moka.components.Sprite;
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.*;
+import com.moka.math.Matrix3;
+import com.moka.math.Rectangle;
+import com.moka.scene.entity.Entity;
+import com.moka.utils.JMokaException;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.opengl.GL11;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Measures the batching without a GPU, using the recording backend.
+ */
+public class RecordingBackendTests
+{
+    private RecordingBackend backend;
+    private Texture first;
+    private Texture second;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        backend = new RecordingBackend();
+        Moka.getRenderer().setBackend(backend);
+
+        first = new Texture(16, 16, Texture.Filter.NEAREST);
+        second = new Texture(16, 16, Texture.Filter.NEAREST);
+    }
+
+    @Test
+    public void spritesOfOneTextureAreOneDrawCall()
+    {
+        SpriteBatch batch = new SpriteBatch();
+        backend.reset();
+
+        for (int i = 0; i < 50; i++) {
+            batch.draw(first, i, i, 16, 16, Color.WHITE);
+        }
+
+        batch.render();
+
+        assertThat(backend.getDrawCalls(), is(1));
+        assertThat(backend.getIndicesDrawn(), is(50L * 6));
+    }
+
+    @Test
+    public void textureChangesBreakTheBatch()
+    {
+        SpriteBatch batch = new SpriteBatch();
+        backend.reset();
+
+        for (int i = 0; i < 10; i++) {
+            batch.draw(i % 2 == 0 ? first : second, i, i, 16, 16, Color.WHITE);
+        }
+
+        batch.render();
+
+        assertThat(backend.getDrawCalls(), is(10));
+    }
+
+    @Test
+    public void onlyTheUsedPartOfTheBatchIsUploaded()
+    {
+        SpriteBatch batch = new SpriteBatch();
+        backend.reset();
+
+        batch.draw(first, 0, 0, 16, 16, Color.WHITE);
+        batch.render();
+
+        // 4 vertices of 20 bytes and 6 indices of 4 bytes.
+        assertThat(backend.getBytesUploaded(), is(4L * 20 + 6 * 4));
+    }
+
+    @Test
+    public void flushReasonsAreCounted()
+    {
+        SpriteBatch batch = new SpriteBatch();
+        RenderStats stats = Moka.getRenderer().getStats();
+        stats.newFrame();
+
+        for (int i = 0; i < 4; i++) {
+            batch.draw(i % 2 == 0 ? first : second, i, i, 16, 16, Color.WHITE);
+        }
+
+        batch.render();
+        stats.newFrame();
+
+        assertThat(stats.getFlushes(RenderStats.FlushReason.TEXTURE_CHANGE), is(3));
+        assertThat(stats.getFlushes(RenderStats.FlushReason.FRAME_END), is(1));
+        assertThat(stats.getDrawCalls(), is(4));
+        assertThat(stats.getBatchedSprites(), is(4));
+    }
+
+    @Test
+    public void staticBatchDrawsOncePerTexture()
+    {
+        StaticBatch staticBatch = new StaticBatch();
+        Rectangle region = new Rectangle(0, 0, 1, 1);
+
+        staticBatch.begin();
+        for (int i = 0; i < 10; i++) {
+            staticBatch.add(i % 2 == 0 ? first : second, i, i, 16, 16, Color.WHITE,
+                    Matrix3.ROTATION_IDENTITY, region);
+        }
+        staticBatch.end();
+
+        backend.reset();
+        staticBatch.render();
+        staticBatch.render();
+
+        assertThat(backend.getDrawCalls(), is(4));
+        assertThat(backend.getBytesUploaded(), is(0L));
+    }
+
+    @Test
+    public void recordedCommandsSplitOnTextureAndBlend()
+    {
+        DrawCommandBuffer buffer = new DrawCommandBuffer();
+        Rectangle region = new Rectangle(0, 0, 1, 1);
+
+        for (int i = 0; i < 3; i++) {
+            buffer.draw(first, i, i, 16, 16, Color.WHITE, null, region);
+        }
+
+        buffer.draw(second, 0, 0, 16, 16, Color.WHITE, null, region);
+        buffer.setBlend(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
+        buffer.draw(second, 0, 0, 16, 16, Color.WHITE, null, region);
+        buffer.end();
+
+        assertThat(buffer.getSpriteCount(), is(5));
+        assertThat(buffer.getCommandCount(), is(3));
+        assertThat(buffer.getCount(0), is(3));
+        assertThat(buffer.getTexture(2) == second, is(true));
+
+        buffer.clear();
+        buffer.end();
+
+        assertThat(buffer.getCommandCount(), is(0));
+    }
+
+    @Test
+    public void redundantStateChangesAreFiltered()
+    {
+        SpriteBatch batch = new SpriteBatch();
+
+        batch.draw(first, 0, 0, 16, 16, Color.WHITE);
+        batch.render();
+
+        backend.reset();
+        batch.draw(first, 0, 0, 16, 16, Color.WHITE);
+        batch.render();
+
+        // the texture, vertex array and buffers are still bound from the first frame.
+        assertThat(backend.getStateChanges(), is(0));
+    }
+
+    @Test
+    public void premultipliedAlphaKeepsTheCoverage()
+    {
+        RenderState state = new RenderState(backend);
+        state.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+
+        state.setPremultipliedAlpha(true);
+        assertThat(backend.getAlphaBlendSource(), is(GL11.GL_ONE));
+        assertThat(backend.getAlphaBlendDestination(), is(GL11.GL_ONE_MINUS_SRC_ALPHA));
+
+        // additive sprites don't cover what is behind them.
+        state.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
+        assertThat(backend.getAlphaBlendSource(), is(GL11.GL_ZERO));
+        assertThat(backend.getAlphaBlendDestination(), is(GL11.GL_ONE));
+
+        state.setPremultipliedAlpha(false);
+        assertThat(backend.getAlphaBlendSource(), is(GL11.GL_SRC_ALPHA));
+        assertThat(backend.getAlphaBlendDestination(), is(GL11.GL_ONE));
+
+        backend.reset();
+        state.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
+        assertThat(backend.getStateChanges(), is(0));
+    }
+
+    @Test
+    public void animatedSpritesKeepTheirQuad()
+    {
+        Moka.getRenderer().setShader(new Shader("vertex", "fragment"));
+
+        Entity entity = new Entity("animated");
+        Sprite sprite = new Sprite(first);
+        entity.addComponent(sprite);
+        entity.create();
+
+        sprite.setRegion(0, 0, 0.5f, 0.5f);
+        sprite.render(Moka.getRenderer());
+        int objects = backend.getObjectsCreated();
+        int shared = Quad.getSharedCount();
+
+        for (int frame = 0; frame < 8; frame++) {
+            sprite.setRegion((frame % 2) * 0.5f, 0, 0.5f, 0.5f);
+            sprite.render(Moka.getRenderer());
+        }
+
+        assertThat(backend.getObjectsCreated(), is(objects));
+        assertThat(Quad.getSharedCount(), is(shared));
+        assertThat(sprite.getQuad().isDynamic(), is(true));
+
+        entity.dispose();
+        Moka.getRenderer().setShader(null);
+    }
+
+    @Test
+    public void particlesAreOneCommandWhateverTheirNumber()
+    {
+        Entity entity = new Entity("emitter");
+        ParticleEmitter emitter = new ParticleEmitter();
+        emitter.setTexture(first);
+        emitter.setCapacity(100000);
+        emitter.setInitialBurst(100000);
+        emitter.setBlend(Sprite.BLEND.ADDITIVE);
+        entity.addComponent(emitter);
+        entity.create();
+
+        DrawCommandBuffer buffer = new DrawCommandBuffer();
+        Moka.getRenderer().record(emitter, buffer);
+        buffer.draw(first, 0, 0, 16, 16, Color.WHITE, null, new Rectangle(0, 0, 1, 1));
+        buffer.end();
+
+        // a sprite of the same texture after the particles is not drawn additively.
+        assertThat(emitter.getParticleCount(), is(100000));
+        assertThat(buffer.getCommandCount(), is(2));
+        assertThat(buffer.getCount(0), is(100000));
+
+        entity.dispose();
+    }
+
+    @Test(expected = JMokaException.class)
+    public void sharedQuadsAreReleasedNotDisposed()
+    {
+        Quad quad = Quad.obtain(new Rectangle(0, 0, 0.25f, 0.25f));
+
+        try {
+            quad.dispose();
+        } finally {
+            quad.release();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.moka.tests;
+
+import com.moka.graphics.ResolutionScaler;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ResolutionScalerTests
+{
+    private float run(ResolutionScaler scaler, double gpuTime, int frames)
+    {
+        float scale = scaler.getScale();
+
+        for (int i = 0; i < frames; i++) {
+            scale = scaler.update(gpuTime);
+        }
+
+        return scale;
+    }
+
+    @Test
+    public void slowFramesLowerTheScaleWithinBounds()
+    {
+        ResolutionScaler scaler = new ResolutionScaler(0.5f, 1, 10);
+
+        assertThat(run(scaler, 20, 10), is(1f));
+        assertThat(run(scaler, 20, 20) < 1, is(true));
+        assertThat(run(scaler, 100, 1000), is(0.5f));
+    }
+
+    @Test
+    public void theScaleOnlyGoesUpWellBelowTheTarget()
+    {
+        ResolutionScaler scaler = new ResolutionScaler(0.5f, 1, 10);
+        run(scaler, 100, 1000);
+
+        // just below the target is inside the hysteresis band.
+        assertThat(run(scaler, 9, 1000), is(0.5f));
+        assertThat(run(scaler, 5, 30), is(0.55f));
+        assertThat(run(scaler, 5, 1000), is(1f));
+    }
+}
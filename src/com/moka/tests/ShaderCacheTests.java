@@ -0,0 +1,83 @@
+package com.moka.tests;
+
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.Shader;
+import com.moka.graphics.ShaderCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ShaderCacheTests
+{
+    private RecordingBackend backend;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        backend = new RecordingBackend();
+        Moka.getRenderer().setBackend(backend);
+
+        directory = Files.createTempDirectory("shaders").toFile();
+        Moka.getRenderer().setShaderCache(directory.getPath());
+    }
+
+    @After
+    public void tearDown()
+    {
+        Moka.getRenderer().setShaderCache(null);
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        directory.delete();
+    }
+
+    @Test
+    public void programsAreCompiledOnlyOnce()
+    {
+        ShaderCache cache = Moka.getRenderer().getShaderCache();
+
+        new Shader("vertex", "fragment");
+        new Shader("vertex", "fragment");
+        new Shader("vertex", "other fragment");
+
+        assertThat(cache.getMisses(), is(2));
+        assertThat(cache.getHits(), is(1));
+        assertThat(backend.getProgramBinariesLoaded(), is(1));
+        assertThat(directory.listFiles().length, is(2));
+    }
+
+    @Test
+    public void rejectedBinariesAreCompiledAgain() throws IOException
+    {
+        new Shader("vertex", "fragment");
+
+        File binary = directory.listFiles()[0];
+        Files.write(binary.toPath(), new byte[]{0, 0, 0, 2, 1, 2, 3, 4});
+
+        ShaderCache cache = new ShaderCache(directory.getPath());
+        cache.createProgram(backend, "vertex", "fragment");
+
+        assertThat(cache.getMisses(), is(1));
+        assertThat(backend.getProgramBinariesLoaded(), is(0));
+        assertThat(binary.length(), is(8L));
+    }
+}
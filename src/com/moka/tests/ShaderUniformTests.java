@@ -0,0 +1,110 @@
+package com.moka.tests;
+
+import com.moka.components.Sprite;
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.Shader;
+import com.moka.graphics.Texture;
+import com.moka.math.Matrix3;
+import com.moka.scene.entity.Entity;
+import com.moka.scene.entity.Transform;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ShaderUniformTests
+{
+    @Test
+    public void firstValueIsUploaded()
+    {
+        Shader.Uniform uniform = new Shader.Uniform("u_color", 0);
+
+        assertThat(uniform.cache(1, 1, 1, 1), is(true));
+    }
+
+    @Test
+    public void sameValueIsSkipped()
+    {
+        Shader.Uniform uniform = new Shader.Uniform("u_color", 0);
+        uniform.cache(1, 0.5f, 1, 1);
+
+        assertThat(uniform.cache(1, 0.5f, 1, 1), is(false));
+        assertThat(uniform.cache(1, 0.25f, 1, 1), is(true));
+    }
+
+    @Test
+    public void matrixChangesAreDetected()
+    {
+        Shader.Uniform uniform = new Shader.Uniform("u_model", 0);
+        Matrix3 matrix = new Matrix3().toTranslation(10, 20);
+
+        assertThat(uniform.cache(matrix), is(true));
+        assertThat(uniform.cache(matrix), is(false));
+
+        matrix.toTranslation(10, 21);
+        assertThat(uniform.cache(matrix), is(true));
+    }
+
+    @Test
+    public void invalidateForcesUpload()
+    {
+        Shader.Uniform uniform = new Shader.Uniform("u_model", 0);
+        Matrix3 matrix = new Matrix3().toIdentity();
+        uniform.cache(matrix);
+        uniform.invalidate();
+
+        assertThat(uniform.cache(matrix), is(true));
+    }
+
+    /**
+     * Updates the shader of a moving sprite many times, as it happens once per non batched sprite,
+     * including the model matrix calculation and the uploads, and checks that it doesn't allocate.
+     */
+    @Test
+    public void matrixUploadDoesNotAllocate()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        RecordingBackend backend = new RecordingBackend();
+        Moka.getRenderer().setBackend(backend);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        Shader shader = new Shader("vertex", "fragment");
+        Sprite sprite = new Sprite(new Texture(16, 16, Texture.Filter.NEAREST));
+        Entity entity = new Entity("sprite");
+        entity.addComponent(sprite);
+        entity.create();
+
+        // warm up, so the measured loop is compiled code.
+        updateLoop(shader, entity, sprite, 20000);
+        backend.reset();
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        updateLoop(shader, entity, sprite, 20000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // every step moves the sprite, so every matrix is uploaded. The JIT may still allocate a
+        // few bytes once, so what is checked is the bytes per update.
+        assertThat(backend.getUniformUploads(), is(20000));
+        assertThat("Allocated " + allocated + " bytes", allocated / 20000, is(0L));
+    }
+
+    private void updateLoop(Shader shader, Entity entity, Sprite sprite, int count)
+    {
+        Transform transform = entity.getTransform();
+
+        for (int i = 0; i < count; i++) {
+            transform.setPosition(i % 2, 0);
+            shader.update(transform, sprite);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.moka.tests;
+
+import com.moka.components.Sprite;
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.Texture;
+import com.moka.scene.SpatialIndex;
+import com.moka.scene.entity.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class SpatialIndexTests
+{
+    private final List<Entity> entities = new ArrayList<>();
+    private final List<Entity> result = new ArrayList<>();
+    private SpatialIndex index;
+
+    @Before
+    public void setUp()
+    {
+        index = new SpatialIndex();
+        index.setCellSize(32);
+
+        Random random = new Random(7);
+
+        for (int i = 0; i < 500; i++) {
+            Entity entity = new Entity(String.valueOf(i));
+            entity.getTransform().setPosition(random.nextFloat() * 1000, random.nextFloat() * 1000);
+            entity.getTransform().setSize(4 + random.nextFloat() * 40, 4 + random.nextFloat() * 40);
+            entity.setGroup(i % 2 == 0 ? "even" : "odd");
+            entities.add(entity);
+            index.add(entity);
+        }
+
+        // covers more cells than a normal entity may.
+        Entity background = new Entity("background");
+        background.getTransform().setPosition(500, 500);
+        background.getTransform().setSize(1000, 1000);
+        entities.add(background);
+        index.add(background);
+    }
+
+    private HashSet<Entity> bruteRect(float minX, float minY, float maxX, float maxY)
+    {
+        HashSet<Entity> found = new HashSet<>();
+
+        for (Entity entity : entities) {
+            float x = entity.getTransform().getPosition().x;
+            float y = entity.getTransform().getPosition().y;
+            float hw = entity.getTransform().getSize().x / 2;
+            float hh = entity.getTransform().getSize().y / 2;
+
+            if (x - hw <= maxX && x + hw >= minX && y - hh <= maxY && y + hh >= minY) {
+                found.add(entity);
+            }
+        }
+
+        return found;
+    }
+
+    @Test
+    public void rectanglesFindWhatOverlapsThemOnce()
+    {
+        Random random = new Random(3);
+
+        for (int i = 0; i < 50; i++) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 1000;
+            float size = random.nextFloat() * 200;
+
+            result.clear();
+            int found = index.queryRect(x, y, x + size, y + size, result);
+
+            assertThat(found, is(result.size()));
+            assertThat(new HashSet<>(result).size(), is(result.size()));
+            assertThat(new HashSet<>(result), is(bruteRect(x, y, x + size, y + size)));
+        }
+    }
+
+    @Test
+    public void movedAndRemovedEntitiesAreFoundWhereTheyAre()
+    {
+        Entity moved = entities.get(10);
+        moved.getTransform().setPosition(-500, -500);
+        index.remove(entities.get(11));
+        index.update();
+
+        result.clear();
+        index.queryPoint(-500, -500, result);
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0), is(moved));
+
+        Entity removed = entities.get(11);
+        float x = removed.getTransform().getPosition().x;
+        float y = removed.getTransform().getPosition().y;
+
+        result.clear();
+        index.queryPoint(x, y, result);
+        assertThat(result.contains(removed), is(false));
+        assertThat(index.size(), is(entities.size() - 1));
+    }
+
+    @Test
+    public void radiusAndGroupLimitTheResults()
+    {
+        result.clear();
+        index.queryRadius(300, 300, 100, "odd", null, result);
+
+        for (Entity entity : entities) {
+            float x = entity.getTransform().getPosition().x;
+            float y = entity.getTransform().getPosition().y;
+            float hw = entity.getTransform().getSize().x / 2;
+            float hh = entity.getTransform().getSize().y / 2;
+            float dx = 300 - Math.max(x - hw, Math.min(300, x + hw));
+            float dy = 300 - Math.max(y - hh, Math.min(300, y + hh));
+            boolean expected = "odd".equals(entity.getGroup()) && dx * dx + dy * dy <= 100 * 100;
+
+            assertThat(entity.getName(), result.contains(entity), is(expected));
+        }
+    }
+
+    @Test
+    public void nearestAreSortedByDistance()
+    {
+        result.clear();
+        int found = index.queryNearest(250, 750, 5, "even", null, result);
+
+        List<Entity> expected = new ArrayList<>();
+        for (Entity entity : entities) {
+            if ("even".equals(entity.getGroup())) {
+                expected.add(entity);
+            }
+        }
+
+        expected.sort((a, b) -> Float.compare(distance(a, 250, 750), distance(b, 250, 750)));
+
+        assertThat(found, is(5));
+        assertThat(result, is(expected.subList(0, 5)));
+
+        result.clear();
+        assertThat(index.queryNearest(250, 750, 1000, null, null, result), is(entities.size()));
+    }
+
+    @Test(timeout = 2000)
+    public void nearestFromFarAwayOnlySearchesTheUsedCells()
+    {
+        HashSet<Entity> expected = new HashSet<>();
+        for (Entity entity : entities) {
+            if ("even".equals(entity.getGroup())) {
+                expected.add(entity);
+            }
+        }
+
+        // more than there are, so every cell with something must be searched.
+        result.clear();
+        int found = index.queryNearest(1e6f, -1e6f, 1000, "even", null, result);
+
+        assertThat(found, is(expected.size()));
+        assertThat(new HashSet<>(result), is(expected));
+
+        // so far away many distances are the same float, only their order is checked.
+        for (int i = 1; i < result.size(); i++) {
+            assertThat(distance(result.get(i - 1), 1e6f, -1e6f) <= distance(result.get(i), 1e6f, -1e6f),
+                    is(true));
+        }
+    }
+
+    @Test
+    public void spritesAreAsLargeAsTheirTextureOrTheirTransform()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        Moka.getRenderer().setBackend(new RecordingBackend());
+        index = new SpatialIndex();
+        index.setCellSize(32);
+
+        Entity textured = new Entity("textured");
+        textured.addComponent(new Sprite(new Texture(64, 64, Texture.Filter.NEAREST)));
+        textured.getTransform().setPosition(0, 0);
+
+        Entity sized = new Entity("sized");
+        sized.addComponent(new Sprite());
+        sized.getTransform().setPosition(200, 0);
+        sized.getTransform().setSize(64, 64);
+
+        // no texture yet, so only its position is known.
+        Entity empty = new Entity("empty");
+        empty.addComponent(new Sprite());
+        empty.getTransform().setPosition(400, 0);
+
+        index.add(textured);
+        index.add(sized);
+        index.add(empty);
+
+        result.clear();
+        index.queryPoint(30, 30, result);
+        index.queryPoint(230, 30, result);
+        index.queryPoint(430, 30, result);
+        index.queryPoint(400, 0, result);
+
+        assertThat(result.size(), is(3));
+        assertThat(result.get(0), is(textured));
+        assertThat(result.get(1), is(sized));
+        assertThat(result.get(2), is(empty));
+    }
+
+    private float distance(Entity entity, float x, float y)
+    {
+        float dx = entity.getTransform().getPosition().x - x;
+        float dy = entity.getTransform().getPosition().y - y;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,108 @@
+package com.moka.tests;
+
+import com.moka.components.Sprite;
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.StaticLayer;
+import com.moka.graphics.Texture;
+import com.moka.scene.entity.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Static sprites are only built again when they change.
+ */
+public class StaticLayerTests
+{
+    private RecordingBackend backend;
+    private ArrayList<Entity> entities;
+    private StaticLayer layer;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        backend = new RecordingBackend();
+        Moka.getRenderer().setBackend(backend);
+
+        Texture texture = new Texture(16, 16, Texture.Filter.NEAREST);
+        entities = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            Sprite sprite = new Sprite(texture);
+            sprite.setStatic(true);
+
+            Entity entity = new Entity("static" + i);
+            entity.addComponent(sprite);
+            entity.create();
+            entity.getTransform().update();
+            entities.add(entity);
+        }
+
+        layer = new StaticLayer();
+    }
+
+    @Test
+    public void unchangedSpritesAreNotUploadedAgain()
+    {
+        assertThat(layer.update(entities), is(true));
+        assertThat(layer.getBatch().getQuadCount(), is(3));
+
+        backend.reset();
+        layer.update(entities);
+
+        assertThat(backend.getBytesUploaded(), is(0L));
+    }
+
+    @Test
+    public void changesBuildTheLayerAgain()
+    {
+        layer.update(entities);
+
+        backend.reset();
+        entities.get(0).getTransform().move(10, 0);
+        layer.update(entities);
+
+        assertThat(backend.getBytesUploaded() > 0, is(true));
+
+        entities.get(0).getTransform().update();
+        ((Sprite) entities.get(1).getDrawable()).setStatic(false);
+        layer.update(entities);
+
+        assertThat(layer.getBatch().getQuadCount(), is(2));
+    }
+
+    @Test
+    public void changesBeforeTheLastFixedStepAreSeen()
+    {
+        layer.update(entities);
+
+        // moved in a fixed step, then another step runs before the frame is drawn.
+        backend.reset();
+        entities.get(0).getTransform().move(10, 0);
+        entities.get(0).getTransform().update();
+        layer.update(entities);
+
+        assertThat(backend.getBytesUploaded() > 0, is(true));
+
+        backend.reset();
+        entities.get(1).getTransform().setSize(32, 32);
+        layer.update(entities);
+
+        assertThat(backend.getBytesUploaded() > 0, is(true));
+
+        backend.reset();
+        layer.update(entities);
+
+        assertThat(backend.getBytesUploaded(), is(0L));
+    }
+}
@@ -0,0 +1,108 @@
+package com.moka.tests;
+
+import com.moka.components.Sprite;
+import com.moka.components.Text;
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.BitmapFont;
+import com.moka.graphics.DrawCommandBuffer;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.Texture;
+import com.moka.scene.entity.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Layout and batching of texts, recorded into a command buffer so it runs without a context.
+ */
+public class TextTests
+{
+    private static final String DESCRIPTOR =
+            "common lineHeight=18 base=14 scaleW=64 scaleH=32 pages=1 packed=0\n" +
+            "page id=0 file=\"test.png\"\n" +
+            "char id=65 x=0 y=0 width=8 height=10 xoffset=0 yoffset=4 xadvance=9 page=0 chnl=15\n" +
+            "char id=86 x=16 y=16 width=8 height=10 xoffset=0 yoffset=4 xadvance=9 page=0 chnl=15\n" +
+            "char id=32 x=0 y=0 width=0 height=0 xoffset=0 yoffset=0 xadvance=4 page=0 chnl=15\n" +
+            "kerning first=65 second=86 amount=-2\n";
+
+    private BitmapFont font;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        Moka.getRenderer().setBackend(new RecordingBackend());
+        font = new BitmapFont(DESCRIPTOR, new Texture(64, 32, Texture.Filter.NEAREST));
+    }
+
+    private Text createText(String string, Text.ALIGN align)
+    {
+        Text text = new Text();
+        Entity entity = new Entity("text");
+        entity.addComponent(text);
+        entity.create();
+        text.setFont(font);
+        text.setAlign(align);
+        text.setText(string);
+        return text;
+    }
+
+    private String offsets(Text text)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < text.getGlyphCount(); i++) {
+            builder.append(text.getGlyphX(i)).append(',').append(text.getGlyphY(i)).append(' ');
+        }
+
+        return builder.toString().trim();
+    }
+
+    @Test
+    public void glyphsFollowKerningSpacesAndLines()
+    {
+        // V is pulled 2 pixels towards A, the space only moves the pen.
+        Text text = createText("AV A\nA", Text.ALIGN.LEFT);
+
+        assertThat(offsets(text), is("4.0,-9.0 11.0,-9.0 24.0,-9.0 4.0,-27.0"));
+    }
+
+    @Test
+    public void everyLineIsAlignedByItsOwnWidth()
+    {
+        assertThat(offsets(createText("AV\nA", Text.ALIGN.CENTER)), is("-4.0,-9.0 3.0,-9.0 -0.5,-27.0"));
+        assertThat(offsets(createText("AV", Text.ALIGN.RIGHT)), is("-12.0,-9.0 -5.0,-9.0"));
+
+        Text scaled = createText("AV", Text.ALIGN.RIGHT);
+        scaled.setScale(2);
+        assertThat(offsets(scaled), is("-24.0,-18.0 -10.0,-18.0"));
+    }
+
+    @Test
+    public void onePageIsOneDrawCallWithNormalBlending()
+    {
+        DrawCommandBuffer buffer = new DrawCommandBuffer();
+
+        // an additive sprite batched right before the text.
+        Sprite sprite = new Sprite(font.getPage(0));
+        Entity entity = new Entity("sprite");
+        entity.addComponent(sprite);
+        entity.create();
+        sprite.setBatch(true);
+        sprite.setBlend(Sprite.BLEND.ADDITIVE);
+        Moka.getRenderer().record(sprite, buffer);
+
+        Text text = createText("AVAVAV\nVAVAVA", Text.ALIGN.LEFT);
+        Moka.getRenderer().record(text, buffer);
+        buffer.end();
+
+        assertThat(buffer.getCommandCount(), is(2));
+        assertThat(buffer.getCount(1), is(12));
+    }
+}
@@ -0,0 +1,179 @@
+package com.moka.tests;
+
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.Texture;
+import com.moka.graphics.TextureManager;
+import com.moka.utils.JMokaException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Video memory accounting of textures, using the recording backend.
+ */
+public class TextureManagerTests
+{
+    private static final long IMAGE_BYTES = RecordingBackend.IMAGE_SIZE * RecordingBackend.IMAGE_SIZE * 4;
+
+    private RecordingBackend backend;
+    private TextureManager manager;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        backend = new RecordingBackend();
+        Moka.getRenderer().setBackend(backend);
+        manager = Moka.getRenderer().getTextureManager();
+        manager.setBudget(0);
+    }
+
+    /**
+     * Binds every texture in its own frame, in the given order, then leaves room for the given
+     * amount of them, besides what other tests left resident.
+     */
+    private void useInOrder(int room, Texture... textures)
+    {
+        long others = manager.getResidentBytes() - textures.length * IMAGE_BYTES;
+
+        for (Texture texture : textures) {
+            manager.newFrame();
+            texture.bind();
+        }
+
+        // one byte more, as no budget at all would be 0.
+        manager.setBudget(others + room * IMAGE_BYTES + 1);
+
+        // only textures unused in the last frame can go.
+        manager.newFrame();
+        manager.newFrame();
+    }
+
+    private void dispose(Texture... textures)
+    {
+        manager.setBudget(0);
+
+        for (Texture texture : textures) {
+            texture.dispose();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedAreEvictedFirst()
+    {
+        Texture a = new Texture("a.png");
+        Texture b = new Texture("b.png");
+        Texture c = new Texture("c.png");
+
+        useInOrder(2, c, a, b);
+
+        assertThat(c.isResident(), is(false));
+        assertThat(a.isResident(), is(true));
+        assertThat(b.isResident(), is(true));
+
+        manager.setBudget(manager.getBudget() - IMAGE_BYTES);
+        manager.newFrame();
+
+        assertThat(a.isResident(), is(false));
+        assertThat(b.isResident(), is(true));
+        assertThat(manager.getEvictedCount(), is(2));
+
+        dispose(a, b, c);
+        assertThat(manager.getEvictedCount(), is(0));
+    }
+
+    @Test
+    public void acquiredTexturesAreNeverEvicted()
+    {
+        Texture a = new Texture("a.png");
+        Texture b = new Texture("b.png");
+        a.acquire();
+
+        useInOrder(0, a, b);
+
+        assertThat(a.isResident(), is(true));
+        assertThat(b.isResident(), is(false));
+
+        a.release();
+        manager.newFrame();
+
+        assertThat(a.isResident(), is(false));
+
+        dispose(a, b);
+    }
+
+    @Test
+    public void evictedTexturesAreLoadedAgainWhenBound()
+    {
+        Texture texture = new Texture("a.png");
+        int reloads = manager.getReloads();
+
+        useInOrder(0, texture);
+        assertThat(texture.isResident(), is(false));
+
+        backend.reset();
+        texture.bind();
+        texture.bind();
+
+        assertThat(texture.isResident(), is(true));
+        assertThat(backend.getImagesLoaded(), is(1));
+        assertThat(backend.getBytesUploaded(), is(IMAGE_BYTES));
+        assertThat(manager.getReloads(), is(reloads + 1));
+        assertThat(manager.getEvictedCount(), is(0));
+
+        dispose(texture);
+    }
+
+    @Test
+    public void residentBytesFollowTheTextures()
+    {
+        long before = manager.getResidentBytes();
+        int count = manager.getResidentCount();
+
+        Texture texture = new Texture(32, 16, Texture.Filter.NEAREST);
+
+        assertThat(texture.getBytes(), is(32L * 16 * 4));
+        assertThat(manager.getResidentBytes(), is(before + texture.getBytes()));
+        assertThat(manager.getResidentCount(), is(count + 1));
+
+        texture.dispose();
+        texture.dispose();
+
+        assertThat(texture.isResident(), is(false));
+        assertThat(manager.getResidentBytes(), is(before));
+        assertThat(manager.getResidentCount(), is(count));
+    }
+
+    @Test
+    public void drawnIntoTexturesAreNeverEvicted()
+    {
+        Texture texture = new Texture(64, 64, Texture.Filter.NEAREST);
+        manager.setBudget(1);
+
+        for (int i = 0; i < 3; i++) {
+            manager.newFrame();
+        }
+
+        assertThat(texture.isResident(), is(true));
+        assertThat(texture.isReloadable(), is(false));
+
+        manager.setBudget(0);
+        texture.dispose();
+    }
+
+    @Test(expected = JMokaException.class)
+    public void releaseNeedsAnAcquire()
+    {
+        Texture texture = new Texture(8, 8, Texture.Filter.NEAREST);
+        texture.acquire();
+        texture.release();
+        texture.release();
+    }
+}
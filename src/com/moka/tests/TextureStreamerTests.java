@@ -0,0 +1,91 @@
+package com.moka.tests;
+
+import com.moka.core.Application;
+import com.moka.core.Moka;
+import com.moka.graphics.RecordingBackend;
+import com.moka.graphics.Texture;
+import com.moka.graphics.TextureStreamer;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Uploads of the texture streamer, using the recording backend.
+ */
+public class TextureStreamerTests
+{
+    private RecordingBackend backend;
+    private TextureStreamer streamer;
+
+    @Before
+    public void setUp()
+    {
+        if (Moka.getApplication() == null) {
+            new Application(null);
+        }
+
+        backend = new RecordingBackend();
+        Moka.getRenderer().setBackend(backend);
+        streamer = Moka.getRenderer().getTextureStreamer();
+    }
+
+    @Test
+    public void largeTexturesAreUploadedInParts()
+    {
+        Texture texture = Texture.createAsync(512, 512, Texture.Filter.NEAREST);
+        streamer.upload(texture, BufferUtils.createByteBuffer(512 * 512 * 4));
+        streamer.setBudget(0);
+
+        for (int frame = 0; frame < 3; frame++) {
+            streamer.update();
+            texture.bind();
+            assertThat(texture.isReady(), is(false));
+        }
+
+        backend.reset();
+        streamer.update();
+
+        assertThat(texture.isReady(), is(true));
+        assertThat(texture.isResident(), is(true));
+        assertThat(streamer.getPending(), is(0));
+        assertThat(backend.getBytesUploaded(), is(256L * 1024));
+
+        texture.dispose();
+    }
+
+    @Test
+    public void placeholderBindsAreCountedUntilTheTextureIsReady()
+    {
+        Texture texture = Texture.createAsync(4, 4, Texture.Filter.NEAREST);
+        streamer.upload(texture, BufferUtils.createByteBuffer(4 * 4 * 4));
+
+        // what a cached layer checks to know if it drew something that is not final.
+        int binds = streamer.getPlaceholderBinds();
+        texture.bind();
+        assertThat(streamer.getPlaceholderBinds(), is(binds + 1));
+
+        streamer.update();
+        texture.bind();
+        assertThat(texture.isReady(), is(true));
+        assertThat(streamer.getPlaceholderBinds(), is(binds + 1));
+
+        texture.dispose();
+    }
+
+    @Test
+    public void texturesDisposedBeforeBeingReadyAreDropped()
+    {
+        Texture texture = Texture.createAsync(4, 4, Texture.Filter.NEAREST);
+        streamer.upload(texture, BufferUtils.createByteBuffer(4 * 4 * 4));
+        texture.dispose();
+
+        streamer.update();
+
+        assertThat(texture.isReady(), is(false));
+        assertThat(texture.isResident(), is(false));
+        assertThat(streamer.getPending(), is(0));
+    }
+}
@@ -71,6 +71,50 @@ public class CoreUtil
         return (FloatBuffer) buffer.flip();
     }
 
+    /**
+     * Writes the matrix in column major order into an existing buffer, ready to be uploaded.
+     *
+     * @param matrix the matrix to write.
+     * @param buffer a buffer with room for at least 16 floats.
+     * @return the same buffer, flipped.
+     */
+    public static FloatBuffer fillBuffer(Matrix4 matrix, FloatBuffer buffer)
+    {
+        buffer.clear();
+
+        for (int i = 0; i < 4; i++)
+        {
+            for (int j = 0; j < 4; j++)
+            {
+                buffer.put(matrix.get(j, i));
+            }
+        }
+
+        return (FloatBuffer) buffer.flip();
+    }
+
+    /**
+     * Writes the matrix in column major order into an existing buffer, ready to be uploaded.
+     *
+     * @param matrix the matrix to write.
+     * @param buffer a buffer with room for at least 9 floats.
+     * @return the same buffer, flipped.
+     */
+    public static FloatBuffer fillBuffer(Matrix3 matrix, FloatBuffer buffer)
+    {
+        buffer.clear();
+
+        for (int i = 0; i < 3; i++)
+        {
+            for (int j = 0; j < 3; j++)
+            {
+                buffer.put(matrix.get(j, i));
+            }
+        }
+
+        return (FloatBuffer) buffer.flip();
+    }
+
     public static String readFile(String filePath)
     {
         try